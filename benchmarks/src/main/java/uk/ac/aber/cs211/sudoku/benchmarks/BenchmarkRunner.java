@@ -0,0 +1,34 @@
+package uk.ac.aber.cs211.sudoku.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so that the allocation rate of
+ * each benchmark is reported alongside its score. The solver's hot paths are
+ * meant to allocate nothing, so a rise in {@code gc.alloc.rate.norm} is a
+ * regression just like a rise in time.
+ * 
+ * <p>The arguments are the same as JMH's own, such as a pattern to choose the
+ * benchmarks to run or {@code -p set=HARD} to choose the puzzles.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class BenchmarkRunner {
+	/**
+	 * Runs the benchmarks.
+	 * @param args the JMH command line options
+	 * @throws CommandLineOptionException if the options aren't valid
+	 * @throws RunnerException if a benchmark fails
+	 */
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		new Runner(new OptionsBuilder()
+			.parent(new CommandLineOptions(args))
+			.addProfiler(GCProfiler.class)
+			.build()).run();
+	}
+}
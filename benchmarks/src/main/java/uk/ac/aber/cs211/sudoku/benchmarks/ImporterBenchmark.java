@@ -0,0 +1,127 @@
+package uk.ac.aber.cs211.sudoku.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.ac.aber.cs211.sudoku.model.Grid;
+import uk.ac.aber.cs211.sudoku.model.InvalidSudFileException;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+import uk.ac.aber.cs211.sudoku.model.PuzzleLineReader;
+import uk.ac.aber.cs211.sudoku.model.SudFileImporter;
+
+/**
+ * Measures the throughput of reading puzzles: a whole SUD file through
+ * {@link SudFileImporter#importGrid()}, and a file of one puzzle per line
+ * through a {@link PuzzleLineReader}.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImporterBenchmark {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** The number of puzzles in the line file */
+	private static final int LINES = 1000;
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** A SUD file holding one puzzle */
+	private File sudFile;
+	
+	/** The contents of a file holding a puzzle on each line */
+	private byte[] lineFile;
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Writes the files to be read.
+	 * @throws IOException if the SUD file can't be written
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		final PackedGrid puzzle = PuzzleSet.MEDIUM.getPuzzles()[0];
+		final String line = puzzle.toString() + "\n";
+		final StringBuilder sud = new StringBuilder();
+		final StringBuilder lines = new StringBuilder();
+		
+		for (int y = 0; y < 9; y++) {
+			sud.append(line.substring(y * 9, y * 9 + 9).replace('.', ' ')).append('\n');
+		}
+		
+		for (int i = 0; i < LINES; i++) {
+			lines.append(line);
+		}
+		
+		sudFile = File.createTempFile("benchmark", ".sud");
+		lineFile = lines.toString().getBytes("US-ASCII");
+		
+		try (OutputStream out = new FileOutputStream(sudFile)) {
+			out.write(sud.toString().getBytes("US-ASCII"));
+		}
+	}
+	
+	/**
+	 * Deletes the SUD file.
+	 */
+	@TearDown
+	public void tearDown() {
+		sudFile.delete();
+	}
+	
+	/**
+	 * Opens and imports a SUD file.
+	 * @return the imported grid
+	 * @throws IOException if the file can't be read
+	 * @throws InvalidSudFileException if the file isn't valid
+	 */
+	@Benchmark
+	public Grid importGrid() throws IOException, InvalidSudFileException {
+		try (SudFileImporter importer = new SudFileImporter(sudFile)) {
+			return importer.importGrid();
+		}
+	}
+	
+	/**
+	 * Reads every puzzle in a file of one puzzle per line. The score is the
+	 * number of files read, each holding {@value #LINES} puzzles.
+	 * @param blackhole consumes the puzzles so they aren't optimised away
+	 * @throws IOException if the file can't be read
+	 * @throws InvalidSudFileException if a line isn't valid
+	 */
+	@Benchmark
+	public void readLines(Blackhole blackhole) throws IOException, InvalidSudFileException {
+		final byte[] cells = new byte[81];
+		
+		try (PuzzleLineReader reader = new PuzzleLineReader(new ByteArrayInputStream(lineFile))) {
+			while (reader.hasNext()) {
+				reader.next(cells);
+				blackhole.consume(cells);
+			}
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package uk.ac.aber.cs211.sudoku.benchmarks;
+
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+
+/**
+ * Sets of puzzles used by the benchmarks, grouped by the work the solver has
+ * to do to solve them. Every puzzle has exactly one solution.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public enum PuzzleSet {
+	/** Puzzles that can be solved with naked singles alone. */
+	EASY(
+		"003020600900305001001806400008102900700000008006708200002609500800203009005010300",
+		"480006902002008001900370060840010200003704100001060049020085007700900600609200018",
+		"53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79"),
+	
+	/** Puzzles that need hidden singles as well as naked singles. */
+	MEDIUM(
+		"200080300060070084030500209000105408000000000402706000301007040720040060004010003",
+		"000000907000420180000705026100904000050000040000507009920108000034059000507000000",
+		"030050040008010500460000012070502080000603000040109030250000098001020600080060020",
+		"000900002050123400030000160908000000070000090000000205091000050007439020400007000"),
+	
+	/** Puzzles that can't be solved with singles alone. */
+	HARD(
+		"100920000524010000000000070050008102000000000402700090060000000000030945000071006",
+		"043080250600000000000001094900004070000608000010200003820500000000000005034090710",
+		"001900003900700160030005007050000009004302600200000070600100030042007006500006800",
+		"8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4.."),
+	
+	/**
+	 * Puzzles with only 17 clues, the fewest a sudoku with one solution can
+	 * have. Most of these need a lot of searching.
+	 */
+	SEVENTEEN_CLUE(
+		"...8.1..........435............7.8........1...2..3....6......75..34........2..6..",
+		".......1.4.........2...........5.4.7..8...3....1.9....3..4..2...5.1........8.6...",
+		"..............3.85..1.2.......5.7.....4...1...9.......5......73..2.1........4...9",
+		"4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......",
+		"52...6.........7.13...........4..8..6......5...........418.........3..2...87.....",
+		"6.....8.3.4.7.................5.4.7.3..2.....1.6.......2.....5.....8.6......1....",
+		"48.3............71.2.......7.5....6....2..8.............1.76...3.....4......5....");
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The puzzles in the set */
+	private final PackedGrid[] puzzles;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a set of puzzles.
+	 * @param lines the puzzles as lines of 81 characters
+	 */
+	private PuzzleSet(String... lines) {
+		puzzles = new PackedGrid[lines.length];
+		
+		for (int i = 0; i < lines.length; i++) {
+			puzzles[i] = PackedGrid.parse(lines[i]);
+		}
+	}
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Gets the puzzles in the set.
+	 * @return a copy of the array of puzzles
+	 */
+	public PackedGrid[] getPuzzles() {
+		return puzzles.clone();
+	}
+}
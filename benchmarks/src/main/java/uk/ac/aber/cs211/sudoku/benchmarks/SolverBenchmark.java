@@ -0,0 +1,125 @@
+package uk.ac.aber.cs211.sudoku.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.aber.cs211.sudoku.model.Grid;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+import uk.ac.aber.cs211.sudoku.solver.DancingLinksSolver;
+import uk.ac.aber.cs211.sudoku.solver.SolveMode;
+import uk.ac.aber.cs211.sudoku.solver.Solver;
+
+/**
+ * Measures the average time taken to solve one puzzle from each
+ * {@link PuzzleSet}. Each call solves the next puzzle in the set, so the
+ * score is the average over the whole set.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The set of puzzles to solve */
+	@Param
+	public PuzzleSet set;
+	
+	/** The puzzles in the set */
+	private PackedGrid[] puzzles;
+	
+	/** The index of the next puzzle to solve */
+	private int next;
+	
+	/** A solver that is reused for every puzzle */
+	private Solver solver;
+	
+	/** A dancing links solver that is reused for every puzzle */
+	private DancingLinksSolver dancingLinks;
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Loads the puzzles and creates the solvers.
+	 */
+	@Setup
+	public void setUp() {
+		puzzles = set.getPuzzles();
+		solver = new Solver(SolveMode.LOGIC_AND_SEARCH);
+		dancingLinks = new DancingLinksSolver();
+	}
+	
+	/**
+	 * Gets the next puzzle in the set.
+	 * @return the puzzle
+	 */
+	private PackedGrid nextPuzzle() {
+		final PackedGrid puzzle = puzzles[next];
+		
+		next = (next + 1) % puzzles.length;
+		
+		return puzzle;
+	}
+	
+	/**
+	 * Solves a puzzle the way the user interface does: a new solver is run
+	 * on a {@link Grid}, which is updated as each number is placed. This
+	 * includes the cost of creating the grid.
+	 * @return the solved grid
+	 */
+	@Benchmark
+	public Grid run() {
+		final Grid grid = nextPuzzle().toGrid();
+		
+		new Solver(grid, SolveMode.LOGIC_AND_SEARCH).run();
+		
+		return grid;
+	}
+	
+	/**
+	 * Solves a packed puzzle with a reused solver, the way the batch mode
+	 * does.
+	 * @return the solution
+	 */
+	@Benchmark
+	public PackedGrid solvePacked() {
+		return solver.solve(nextPuzzle());
+	}
+	
+	/**
+	 * Checks that a puzzle has only one solution with a reused solver, the
+	 * way a puzzle generator does.
+	 * @return the number of solutions, up to 2
+	 */
+	@Benchmark
+	public int countSolutions() {
+		return solver.countSolutions(nextPuzzle(), 2);
+	}
+	
+	/**
+	 * Solves a packed puzzle with a reused dancing links solver, for
+	 * comparison.
+	 * @return the solution
+	 */
+	@Benchmark
+	public PackedGrid dancingLinks() {
+		return dancingLinks.solve(nextPuzzle());
+	}
+}
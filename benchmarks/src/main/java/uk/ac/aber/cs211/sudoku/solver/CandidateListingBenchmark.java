@@ -0,0 +1,64 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.aber.cs211.sudoku.benchmarks.PuzzleSet;
+
+/**
+ * Measures {@link Solver#listCandidates()} on its own. It is in the solver's
+ * package so that it can call the package-private stages of the solver.
+ * 
+ * <p>Listing the candidates only reads the values and masks loaded into the
+ * solver, so it can be repeated on the same puzzle.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CandidateListingBenchmark {
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The set the puzzle is taken from */
+	@Param({"EASY", "SEVENTEEN_CLUE"})
+	public PuzzleSet set;
+	
+	/** The solver the puzzle is loaded into */
+	private Solver solver;
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Loads the first puzzle of the set into a solver.
+	 */
+	@Setup
+	public void setUp() {
+		solver = new Solver(SolveMode.LOGIC_ONLY);
+		solver.load(set.getPuzzles()[0]);
+	}
+	
+	/**
+	 * Lists the candidates of every empty cell.
+	 */
+	@Benchmark
+	public void listCandidates() {
+		solver.listCandidates();
+	}
+}
@@ -1,37 +1,35 @@
 package uk.ac.aber.cs211.sudoku;
 
-import javax.swing.SwingUtilities;
-import javax.swing.UIManager;
-import javax.swing.UnsupportedLookAndFeelException;
+import java.util.Arrays;
 
+import uk.ac.aber.cs211.sudoku.batch.BatchSolver;
+import uk.ac.aber.cs211.sudoku.generator.PuzzleGenerator;
+import uk.ac.aber.cs211.sudoku.server.SolveServer;
 import uk.ac.aber.cs211.sudoku.ui.MainWindow;
 
 
 /**
  * Hours of work so far: 40
  * 
+ * <p>Opens the main window, unless the first argument is {@code --batch},
+ * {@code --generate} or {@code --server}, in which case the remaining
+ * arguments are passed to the {@link BatchSolver}, {@link PuzzleGenerator} or
+ * {@link SolveServer} without loading any AWT or Swing classes.
+ * 
 * @author Josh Tumath (jmt14@aber.ac.uk)
 * @since 1.0
 * @version 1.0
 */
 public class Main {
 	public static void main(String[] args) {
-		// Set the look and feel to a native system UI.
-		try {
-			UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-		} catch (UnsupportedLookAndFeelException
-				|ClassNotFoundException
-				|InstantiationException
-				|IllegalAccessException e) {
-			System.err.println(e);
+		if (args.length > 0 && args[0].equals("--batch")) {
+			BatchSolver.main(Arrays.copyOfRange(args, 1, args.length));
+		} else if (args.length > 0 && args[0].equals("--generate")) {
+			PuzzleGenerator.main(Arrays.copyOfRange(args, 1, args.length));
+		} else if (args.length > 0 && args[0].equals("--server")) {
+			SolveServer.main(Arrays.copyOfRange(args, 1, args.length));
+		} else {
+			MainWindow.open();
 		}
-		
-		// Open the main window.
-		SwingUtilities.invokeLater(new Runnable() {
-			@Override
-			public void run() {
-				new MainWindow();
-			}
-		});
 	}
 }
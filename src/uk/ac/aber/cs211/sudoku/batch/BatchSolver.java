@@ -0,0 +1,552 @@
+package uk.ac.aber.cs211.sudoku.batch;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.management.JMException;
+
+import uk.ac.aber.cs211.sudoku.generator.Difficulty;
+import uk.ac.aber.cs211.sudoku.generator.DifficultyGrader;
+import uk.ac.aber.cs211.sudoku.model.InvalidSudFileException;
+import uk.ac.aber.cs211.sudoku.model.MappedPuzzleFile;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+import uk.ac.aber.cs211.sudoku.solver.CachingSolver;
+import uk.ac.aber.cs211.sudoku.solver.Engine;
+import uk.ac.aber.cs211.sudoku.solver.LockstepSolver;
+import uk.ac.aber.cs211.sudoku.solver.PuzzleSolver;
+import uk.ac.aber.cs211.sudoku.solver.SolutionCache;
+import uk.ac.aber.cs211.sudoku.solver.SolveTrace;
+import uk.ac.aber.cs211.sudoku.solver.Solver;
+import uk.ac.aber.cs211.sudoku.solver.SolverStats;
+import uk.ac.aber.cs211.sudoku.solver.TechniquePipeline;
+import uk.ac.aber.cs211.sudoku.solver.TechniqueStage;
+
+
+/**
+ * Solves a file of puzzles without a user interface, using a pool of worker
+ * threads. The input file is read through a {@link MappedPuzzleFile}, which
+ * is split into chunks that the workers parse and solve independently. Each
+ * line of the output file is the solved grid in the same format. Puzzles that
+ * can't be solved are written out as they were read, with '.' for the empty
+ * cells and anything after the cells left off, and lines that aren't valid
+ * puzzles are reported and skipped. The puzzles can also be graded by
+ * difficulty as they are solved.
+ * 
+ * <p>This class must not use any AWT or Swing classes, so that it can be run
+ * on a headless JVM.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class BatchSolver {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	private static final String USAGE =
+		"Usage: --batch <input file> <output file> [--threads <n>] " +
+		"[--engine logic|search|dlx|lockstep] [--cache <size>] [--grade] " +
+		"[--techniques singles|basic|all|adaptive]";
+	
+	/** The size of the chunks of the input file given to the workers. */
+	private static final long CHUNK_SIZE = 1 << 20;
+	
+	/** The number of chunks that can be waiting per worker thread. */
+	private static final int CHUNKS_PER_THREAD = 4;
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The file containing the puzzles */
+	private final File input;
+	
+	/** The file the solutions are written to */
+	private final File output;
+	
+	/** The number of worker threads */
+	private final int threads;
+	
+	/** Creates a solver for each worker thread */
+	private final ThreadLocal<PuzzleSolver> solvers;
+	
+	/** The engine used to solve the puzzles */
+	private final Engine engine;
+	
+	/** The solutions shared by the workers, or null if they aren't cached */
+	private SolutionCache cache;
+	
+	/** Grades each puzzle as it is solved, or null if they aren't graded */
+	private DifficultyGrader grader;
+	
+	/** The logical techniques shared by the workers, or null for the default */
+	private TechniquePipeline pipeline;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a batch solver.
+	 * @param input the file containing the puzzles
+	 * @param output the file the solutions are written to
+	 * @param threads the number of worker threads
+	 * @param engine the engine used to solve the puzzles
+	 */
+	public BatchSolver(File input, File output, int threads, final Engine engine) {
+		this.input = input;
+		this.output = output;
+		this.threads = threads;
+		this.engine = engine;
+		this.solvers = new ThreadLocal<PuzzleSolver>() {
+			@Override
+			protected PuzzleSolver initialValue() {
+				final PuzzleSolver solver = engine.createSolver();
+				
+				// Grades are only comparable if every technique is tried
+				// before searching, as it is when puzzles are generated
+				if (pipeline != null && solver instanceof Solver) {
+					((Solver) solver).setPipeline(pipeline);
+				} else if (grader != null && solver instanceof Solver) {
+					((Solver) solver).setPipeline(TechniquePipeline.ALL);
+				}
+				
+				return cache == null ? solver : new CachingSolver(solver, cache);
+			}
+		};
+	}
+	
+	// ////////////////////// //
+	// Read/Write properties. //
+	// ////////////////////// //
+	/**
+	 * Sets a cache for the workers to share, so that repeated puzzles, and
+	 * rearrangements of them, are only solved once. This must be set before
+	 * the batch is run.
+	 * @param cache the cache, or null to solve every puzzle
+	 */
+	public void setCache(SolutionCache cache) {
+		this.cache = cache;
+	}
+	
+	/**
+	 * Sets a grader to grade each puzzle from the trace of the solver, which
+	 * is recorded as the puzzle is solved. Grading needs the {@link Solver},
+	 * so the engine must be {@link Engine#LOGIC} or {@link Engine#SEARCH},
+	 * and there must be no cache. This must be set before the batch is run.
+	 * @param grader the grader, or null not to grade the puzzles
+	 */
+	public void setGrader(DifficultyGrader grader) {
+		this.grader = grader;
+	}
+	
+	/**
+	 * Sets the pipeline of logical techniques used by every worker, which
+	 * only the {@link Solver} has. Sharing an adaptive pipeline lets it learn
+	 * from the puzzles solved by all of the workers. This must be set before
+	 * the batch is run.
+	 * @param pipeline the pipeline, or null for the solver's default
+	 */
+	public void setPipeline(TechniquePipeline pipeline) {
+		this.pipeline = pipeline;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Reads the command line arguments, solves the puzzles and prints a
+	 * summary.
+	 * @param args the command line arguments
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		
+		int threads = Runtime.getRuntime().availableProcessors();
+		Engine engine = null;
+		SolutionCache cache = null;
+		boolean grade = false;
+		TechniquePipeline pipeline = null;
+		
+		try {
+			for (int i = 2; i < args.length; i++) {
+				switch (args[i]) {
+				case "--threads":
+					threads = Integer.parseInt(args[++i]);
+					break;
+				case "--engine":
+					engine = Engine.valueOf(args[++i].toUpperCase());
+					break;
+				case "--cache":
+					cache = new SolutionCache(Integer.parseInt(args[++i]));
+					break;
+				case "--grade":
+					grade = true;
+					break;
+				case "--techniques":
+					pipeline = parsePipeline(args[++i]);
+					break;
+				default:
+					throw new IllegalArgumentException(args[i]);
+				}
+			}
+			
+			// Grading needs the trace recorded by the logical solver
+			if (engine == null) {
+				engine = grade ? Engine.SEARCH : Engine.DLX;
+			} else if (grade && engine != Engine.LOGIC && engine != Engine.SEARCH) {
+				throw new IllegalArgumentException("--grade");
+			}
+			
+			if (grade && cache != null) {
+				throw new IllegalArgumentException("--grade");
+			}
+			
+			// Only the logical solver has techniques to choose from, and
+			// grades depend on the fixed order of every technique
+			if (pipeline != null && (grade || engine != Engine.LOGIC && engine != Engine.SEARCH)) {
+				throw new IllegalArgumentException("--techniques");
+			}
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		
+		// Let the statistics be watched over JMX while a long batch runs
+		try {
+			SolverStats.register();
+			
+			if (cache != null) {
+				cache.register();
+			}
+		} catch (JMException e) {
+			System.err.println("Statistics are not available over JMX: " + e);
+		}
+		
+		try {
+			final BatchSolver solver =
+				new BatchSolver(new File(args[0]), new File(args[1]), threads, engine);
+			
+			solver.setCache(cache);
+			solver.setGrader(grade ? new DifficultyGrader() : null);
+			solver.setPipeline(pipeline);
+			System.out.println(solver.run());
+			
+			if (cache != null) {
+				System.out.println(cache);
+			}
+			
+			if (pipeline != null && pipeline.isAdaptive()) {
+				System.out.println("Techniques: " + pipeline);
+			}
+		} catch (IOException | InterruptedException | ExecutionException e) {
+			System.err.println(e);
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Reads the name of a pipeline of logical techniques from the command
+	 * line.
+	 * @param name singles, basic, all or adaptive, where adaptive starts with
+	 *             every technique and reorders them as the batch runs
+	 * @return the pipeline
+	 * @throws IllegalArgumentException if the name isn't one of those
+	 */
+	private static TechniquePipeline parsePipeline(String name) {
+		switch (name) {
+		case "singles":
+			return TechniquePipeline.SINGLES;
+		case "basic":
+			return TechniquePipeline.BASIC;
+		case "all":
+			return TechniquePipeline.ALL;
+		case "adaptive":
+			final List<TechniqueStage> stages = TechniquePipeline.ALL.getStages();
+			
+			return TechniquePipeline.adaptive(stages.toArray(new TechniqueStage[stages.size()]));
+		default:
+			throw new IllegalArgumentException(name);
+		}
+	}
+	
+	/**
+	 * Solves every puzzle in the input file and writes the solutions to the
+	 * output file in the same order. Only a few chunks of puzzles are held in
+	 * memory at a time, so the files can be of any size.
+	 * @return a summary of the batch
+	 * @throws IllegalStateException if the puzzles are to be graded, but the
+	 *                               engine isn't the {@link Solver} or there
+	 *                               is a cache
+	 * @throws IOException if a file can't be read or written
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 *                              for the workers
+	 * @throws ExecutionException if a worker fails
+	 */
+	public BatchSummary run()
+	throws IOException, InterruptedException, ExecutionException {
+		if (grader != null && (engine != Engine.LOGIC && engine != Engine.SEARCH || cache != null)) {
+			throw new IllegalStateException(
+				"Puzzles can only be graded by the Solver without a cache");
+		}
+		
+		final BatchSummary summary = new BatchSummary();
+		final ExecutorService workers = Executors.newFixedThreadPool(threads);
+		final ArrayDeque<Future<Job>> pending = new ArrayDeque<Future<Job>>();
+		final long start = System.nanoTime();
+		
+		try (MappedPuzzleFile file = new MappedPuzzleFile(input);
+				OutputStream writer = new BufferedOutputStream(new FileOutputStream(output))) {
+			final int maxPending = threads * CHUNKS_PER_THREAD;
+			final Iterator<MappedPuzzleFile.Chunk> chunks = file.split(
+				(int) Math.max(maxPending, file.getSize() / CHUNK_SIZE)).iterator();
+			long linesBefore = 0;
+			
+			while (chunks.hasNext() || !pending.isEmpty()) {
+				// Keep the workers busy without letting too many chunks wait
+				while (chunks.hasNext() && pending.size() < maxPending) {
+					pending.add(workers.submit(new Job(chunks.next())));
+				}
+				
+				final Job job = pending.remove().get();
+				
+				write(job, linesBefore, writer, summary);
+				linesBefore += job.chunk.getLinesRead();
+			}
+		} finally {
+			workers.shutdownNow();
+		}
+		
+		summary.setElapsed(System.nanoTime() - start);
+		
+		return summary;
+	}
+	
+	/**
+	 * Writes the solutions of a chunk to the output file and reports the
+	 * lines that weren't valid puzzles.
+	 * @param job the solved chunk
+	 * @param linesBefore the number of lines in the file before the chunk
+	 * @param writer the output file
+	 * @param summary the summary to add the chunk's results to
+	 * @throws IOException if the file can't be written
+	 */
+	private void write(Job job, long linesBefore, OutputStream writer, BatchSummary summary)
+	throws IOException {
+		for (InvalidSudFileException e : job.malformed) {
+			System.err.println("Skipped line " + (linesBefore + e.getLineNumber())
+				+ ": " + e.getReason());
+			summary.addMalformed();
+		}
+		
+		writer.write(job.output, 0, job.size * 82);
+		
+		for (int i = 0; i < job.size; i++) {
+			if (job.timed) {
+				summary.add(job.latencies[i], job.solved[i]);
+			} else {
+				summary.add(job.solved[i]);
+			}
+			
+			if (job.grades != null) {
+				summary.addGrade(job.grades[i], job.ratings[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Solves a puzzle with the current thread's solver.
+	 * @param cells the puzzle, where 0 is an empty cell, which is replaced by
+	 *              as much of the solution as was found
+	 * @return true if the puzzle was solved; otherwise false
+	 */
+	private boolean solve(byte[] cells) {
+		final PuzzleSolver solver = solvers.get();
+		final PackedGrid solution = solver.solve(PackedGrid.of(cells));
+		
+		solution.copyTo(cells);
+		
+		if (solver instanceof Solver) {
+			return ((Solver) solver).isSolved();
+		}
+		
+		// The other solvers give back a puzzle they can't solve as it was, so
+		// a puzzle read with every cell filled in isn't solved if cells clash
+		return solution.isComplete() && !hasClash(cells);
+	}
+	
+	/**
+	 * Checks whether any two cells in the same row, column or box of a
+	 * puzzle have the same value.
+	 * @param cells the puzzle, where 0 is an empty cell
+	 * @return true if two cells clash; otherwise false
+	 */
+	private static boolean hasClash(byte[] cells) {
+		final int[] units = new int[27];
+		
+		for (int cell = 0; cell < 81; cell++) {
+			if (cells[cell] == 0) {
+				continue;
+			}
+			
+			final int bit = 1 << cells[cell];
+			final int x = cell % 9;
+			final int y = cell / 9;
+			final int box = 18 + y / 3 * 3 + x / 3;
+			
+			if (((units[y] | units[9 + x] | units[box]) & bit) != 0) {
+				return true;
+			}
+			
+			units[y] |= bit;
+			units[9 + x] |= bit;
+			units[box] |= bit;
+		}
+		
+		return false;
+	}
+	
+	// ////////////// //
+	// Inner classes. //
+	// ////////////// //
+	/**
+	 * Parses and solves the puzzles in a chunk of the input file on one worker
+	 * thread, storing the solutions as lines of the output file.
+	 */
+	private class Job
+	implements Callable<Job> {
+		/** The chunk of the input file */
+		final MappedPuzzleFile.Chunk chunk;
+		
+		/** The lines of the output file, each 82 bytes long */
+		byte[] output;
+		
+		/** The time taken to solve each puzzle, in nanoseconds */
+		long[] latencies = new long[1024];
+		
+		/** Whether each puzzle was solved */
+		boolean[] solved = new boolean[1024];
+		
+		/**
+		 * Whether each puzzle was timed on its own, rather than solved
+		 * together with the others so that none has a latency of its own
+		 */
+		boolean timed = true;
+		
+		/** The grade of each puzzle, or null if they aren't graded */
+		Difficulty[] grades;
+		
+		/** The rating of each puzzle, or null if they aren't graded */
+		int[] ratings;
+		
+		/** The number of puzzles in the chunk */
+		int size;
+		
+		/** The lines of the chunk that weren't valid puzzles */
+		final List<InvalidSudFileException> malformed = new ArrayList<InvalidSudFileException>();
+		
+		/**
+		 * Creates a job for a chunk of the input file.
+		 * @param chunk the chunk
+		 */
+		Job(MappedPuzzleFile.Chunk chunk) {
+			this.chunk = chunk;
+			
+			if (grader != null) {
+				grades = new Difficulty[latencies.length];
+				ratings = new int[latencies.length];
+			}
+		}
+		
+		@Override
+		public Job call() throws IOException {
+			final byte[] cells = new byte[81];
+			byte[] puzzles = new byte[latencies.length * 81];
+			
+			// The chunk is only mapped while its puzzles are being read
+			try {
+				while (chunk.hasNext()) {
+					try {
+						chunk.next(cells);
+					} catch (InvalidSudFileException e) {
+						malformed.add(e);
+						continue;
+					}
+					
+					if (size == latencies.length) {
+						latencies = Arrays.copyOf(latencies, size * 2);
+						solved = Arrays.copyOf(solved, size * 2);
+						puzzles = Arrays.copyOf(puzzles, size * 2 * 81);
+						
+						if (grades != null) {
+							grades = Arrays.copyOf(grades, size * 2);
+							ratings = Arrays.copyOf(ratings, size * 2);
+						}
+					}
+					
+					System.arraycopy(cells, 0, puzzles, size * 81, 81);
+					size++;
+				}
+			} finally {
+				chunk.close();
+			}
+			
+			final PuzzleSolver solver = solvers.get();
+			final byte[] clues = Arrays.copyOf(puzzles, size * 81);
+			
+			if (solver instanceof LockstepSolver) {
+				// The puzzles are solved together, so none of them has a
+				// latency of its own and they only count towards the throughput
+				((LockstepSolver) solver).solve(puzzles, 0, size, solved);
+				timed = false;
+			} else {
+				for (int i = 0; i < size; i++) {
+					System.arraycopy(puzzles, i * 81, cells, 0, 81);
+					
+					final long start = System.nanoTime();
+					
+					solved[i] = solve(cells);
+					latencies[i] = System.nanoTime() - start;
+					System.arraycopy(cells, 0, puzzles, i * 81, 81);
+					
+					if (grades != null) {
+						final SolveTrace trace = ((Solver) solver).getTrace();
+						
+						grades[i] = grader.grade(trace);
+						ratings[i] = grader.rate(trace);
+					}
+				}
+			}
+			
+			// Store the solutions as lines of the output file, or the puzzles
+			// as they were read if they weren't solved
+			output = new byte[size * 82];
+			
+			for (int i = 0; i < size; i++) {
+				final byte[] line = solved[i] ? puzzles : clues;
+				
+				for (int cell = 0; cell < 81; cell++) {
+					final byte value = line[i * 81 + cell];
+					
+					output[i * 82 + cell] = (byte) (value == 0 ? '.' : '0' + value);
+				}
+				
+				output[i * 82 + 81] = '\n';
+			}
+			
+			return this;
+		}
+	}
+}
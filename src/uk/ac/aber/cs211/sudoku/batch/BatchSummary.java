@@ -0,0 +1,230 @@
+package uk.ac.aber.cs211.sudoku.batch;
+
+import java.util.Arrays;
+
+import uk.ac.aber.cs211.sudoku.generator.Difficulty;
+
+/**
+ * Collects the results of a batch of puzzles being solved and reports the
+ * throughput and latency, and how many puzzles there were of each difficulty
+ * if they were graded. Only puzzles that were timed on their own count
+ * towards the latency, so puzzles solved together in lockstep only count
+ * towards the throughput.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class BatchSummary {
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The time taken to solve each timed puzzle, in nanoseconds */
+	private long[] latencies = new long[1024];
+	
+	/** The number of puzzles read in */
+	private int puzzles;
+	
+	/** The number of puzzles that were timed on their own */
+	private int timed;
+	
+	/** The number of puzzles that couldn't be solved */
+	private int unsolved;
+	
+	/** The number of lines that weren't valid puzzles */
+	private int malformed;
+	
+	/** The time taken by the whole batch, in nanoseconds */
+	private long elapsed;
+	
+	/** The number of puzzles of each difficulty */
+	private final int[] grades = new int[Difficulty.values().length];
+	
+	/** The total rating of the graded puzzles */
+	private long totalRating;
+	
+	/** The number of puzzles that have been graded */
+	private int graded;
+	
+	/** Whether the latencies have been sorted since the last was added */
+	private boolean sorted;
+	
+	// ////////////////////// //
+	// Read/Write properties. //
+	// ////////////////////// //
+	/**
+	 * Sets the time taken by the whole batch.
+	 * @param elapsed the time taken, in nanoseconds
+	 */
+	public void setElapsed(long elapsed) {
+		this.elapsed = elapsed;
+	}
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Gets the number of puzzles read in.
+	 * @return the number of puzzles
+	 */
+	public int getPuzzles() {
+		return puzzles;
+	}
+	
+	/**
+	 * Gets the number of puzzles that couldn't be solved.
+	 * @return the number of unsolved puzzles
+	 */
+	public int getUnsolved() {
+		return unsolved;
+	}
+	
+	/**
+	 * Gets the number of puzzles that were timed on their own, which the
+	 * latency percentiles are taken from.
+	 * @return the number of timed puzzles
+	 */
+	public int getTimedPuzzles() {
+		return timed;
+	}
+	
+	/**
+	 * Gets the number of lines that weren't valid puzzles.
+	 * @return the number of malformed lines
+	 */
+	public int getMalformed() {
+		return malformed;
+	}
+	
+	/**
+	 * Gets the number of graded puzzles of a difficulty.
+	 * @param difficulty the difficulty
+	 * @return the number of puzzles
+	 */
+	public int getGradeCount(Difficulty difficulty) {
+		return grades[difficulty.ordinal()];
+	}
+	
+	/**
+	 * Gets the mean rating of the graded puzzles.
+	 * @return the mean rating, or 0 if no puzzles were graded
+	 */
+	public double getMeanRating() {
+		return graded == 0 ? 0 : (double) totalRating / graded;
+	}
+	
+	/**
+	 * Gets the number of puzzles solved per second over the whole batch.
+	 * @return the throughput of the batch
+	 */
+	public double getPuzzlesPerSecond() {
+		return elapsed == 0 ? 0 : puzzles * 1e9 / elapsed;
+	}
+	
+	/**
+	 * Gets a percentile of the time taken to solve a timed puzzle.
+	 * @param percentile the percentile, from 0 to 100
+	 * @return the latency at that percentile, in nanoseconds, or 0 if no
+	 *         puzzles were timed
+	 */
+	public long getLatencyPercentile(double percentile) {
+		if (timed == 0) {
+			return 0;
+		}
+		
+		if (!sorted) {
+			Arrays.sort(latencies, 0, timed);
+			sorted = true;
+		}
+		
+		int index = (int) Math.ceil(percentile / 100 * timed) - 1;
+		
+		return latencies[Math.max(0, Math.min(timed - 1, index))];
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Records the result of a puzzle that was timed on its own.
+	 * @param latency the time taken to solve the puzzle, in nanoseconds
+	 * @param solved whether the puzzle was solved
+	 */
+	public void add(long latency, boolean solved) {
+		if (timed == latencies.length) {
+			latencies = Arrays.copyOf(latencies, timed * 2);
+		}
+		
+		latencies[timed++] = latency;
+		sorted = false;
+		add(solved);
+	}
+	
+	/**
+	 * Records the result of a puzzle that wasn't timed on its own, so only
+	 * counts towards the throughput.
+	 * @param solved whether the puzzle was solved
+	 */
+	public void add(boolean solved) {
+		puzzles++;
+		
+		if (!solved) {
+			unsolved++;
+		}
+	}
+	
+	/**
+	 * Records the grade of a puzzle.
+	 * @param difficulty the difficulty of the puzzle
+	 * @param rating the rating of the puzzle
+	 */
+	public void addGrade(Difficulty difficulty, int rating) {
+		grades[difficulty.ordinal()]++;
+		totalRating += rating;
+		graded++;
+	}
+	
+	/**
+	 * Records a line that wasn't a valid puzzle.
+	 */
+	public void addMalformed() {
+		malformed++;
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder(String.format(
+			"Puzzles:     %d%n" +
+			"Unsolved:    %d%n" +
+			"Malformed:   %d%n" +
+			"Time:        %.3f s%n" +
+			"Puzzles/sec: %.1f",
+			puzzles,
+			unsolved,
+			malformed,
+			elapsed / 1e9,
+			getPuzzlesPerSecond()));
+		
+		if (timed > 0) {
+			builder.append(String.format("%nLatency p50: %.1f us%nLatency p99: %.1f us",
+				getLatencyPercentile(50) / 1e3,
+				getLatencyPercentile(99) / 1e3));
+		}
+		
+		if (timed < puzzles) {
+			builder.append(String.format(
+				"%nNot timed:   %d (solved together, so only in the throughput)",
+				puzzles - timed));
+		}
+		
+		if (graded > 0) {
+			for (Difficulty difficulty : Difficulty.values()) {
+				builder.append(String.format("%n%-13s%d",
+					difficulty.name().charAt(0) + difficulty.name().substring(1).toLowerCase() + ":",
+					grades[difficulty.ordinal()]));
+			}
+			
+			builder.append(String.format("%nMean rating: %.1f", getMeanRating()));
+		}
+		
+		return builder.toString();
+	}
+}
@@ -0,0 +1,28 @@
+package uk.ac.aber.cs211.sudoku.generator;
+
+/**
+ * How hard a puzzle is, judged by the techniques the {@link
+ * uk.ac.aber.cs211.sudoku.solver.Solver} needs to solve it. See {@link
+ * DifficultyGrader} for how a puzzle is graded.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public enum Difficulty {
+	/** Can be solved with naked singles alone. */
+	EASY,
+	
+	/** Needs hidden singles as well as naked singles. */
+	MEDIUM,
+	
+	/** Needs naked pairs as well as singles. */
+	HARD,
+	
+	/**
+	 * Needs locked candidates, hidden pairs, larger subsets, X-wings or
+	 * swordfish as well.
+	 */
+	FIENDISH,
+	
+	/** Can't be solved without guessing. */
+	EXPERT;
+}
@@ -0,0 +1,100 @@
+package uk.ac.aber.cs211.sudoku.generator;
+
+import uk.ac.aber.cs211.sudoku.solver.SolveTrace;
+import uk.ac.aber.cs211.sudoku.solver.Technique;
+
+/**
+ * Grades puzzles from the {@link SolveTrace} of the solver's attempt to solve
+ * them. The trace is recorded in the same pass as the solve, so grading costs
+ * almost nothing on top of solving, and unlike timing the solver it gives the
+ * same answer however busy the machine is.
+ * 
+ * <p>The rating is a weighted count of the techniques used, plus a little for
+ * each round of deductions, so that a puzzle where each cell depends on the
+ * last rates higher than one where most cells can be filled in straight away.
+ * Cells the solver couldn't fill in by logic are weighted as if they had been
+ * guessed.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class DifficultyGrader {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** The weight of each cell filled in by a naked single. */
+	private static final int NAKED_SINGLE_WEIGHT = 1;
+	
+	/** The weight of each cell filled in by a hidden single. */
+	private static final int HIDDEN_SINGLE_WEIGHT = 3;
+	
+	/** The weight of each candidate removed by a naked pair. */
+	private static final int NAKED_PAIR_WEIGHT = 5;
+	
+	/**
+	 * The weight of each candidate removed by locked candidates. Each of the
+	 * harder techniques after it weighs one more than the last.
+	 */
+	private static final int LOCKED_CANDIDATES_WEIGHT = 6;
+	
+	/** The weight of each cell filled in by the search, or not at all. */
+	private static final int SEARCH_WEIGHT = 20;
+	
+	/** The weight of each round of the logical techniques. */
+	private static final int ROUND_WEIGHT = 2;
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Rates how hard a puzzle was to solve. Higher ratings are harder; a
+	 * puzzle with no empty cells rates 0.
+	 * @param trace the trace of the attempt to solve the puzzle
+	 * @return the rating
+	 */
+	public int rate(SolveTrace trace) {
+		int rating = trace.getCount(Technique.NAKED_SINGLE) * NAKED_SINGLE_WEIGHT
+			+ trace.getCount(Technique.HIDDEN_SINGLE) * HIDDEN_SINGLE_WEIGHT
+			+ trace.getCount(Technique.NAKED_PAIR) * NAKED_PAIR_WEIGHT
+			+ (trace.getCount(Technique.SEARCH) + trace.getUnsolvedCount()) * SEARCH_WEIGHT
+			+ trace.getRoundCount() * ROUND_WEIGHT;
+		
+		for (Technique technique : Technique.values()) {
+			if (technique.compareTo(Technique.LOCKED_CANDIDATES) >= 0
+					&& technique != Technique.SEARCH) {
+				rating += trace.getCount(technique) * (LOCKED_CANDIDATES_WEIGHT
+					+ technique.ordinal() - Technique.LOCKED_CANDIDATES.ordinal());
+			}
+		}
+		
+		return rating;
+	}
+	
+	/**
+	 * Grades a puzzle by the hardest technique needed to solve it.
+	 * 
+	 * <p>With a fixed pipeline, the solver only moves on to a harder technique
+	 * once the cheaper ones have stalled, so every technique in the trace was
+	 * needed. An adaptive pipeline may reorder its stages, so its traces
+	 * shouldn't be graded. The grades are meant for sorting puzzles into rough
+	 * bands; use {@link #rate(SolveTrace)} to compare puzzles within a band.
+	 * @param trace the trace of the attempt to solve the puzzle
+	 * @return the difficulty of the puzzle
+	 */
+	public Difficulty grade(SolveTrace trace) {
+		if (trace.isSearchUsed() || trace.getUnsolvedCount() > 0) {
+			return Difficulty.EXPERT;
+		}
+		
+		final Technique hardest = trace.getHardestTechnique();
+		
+		if (hardest != null && hardest.compareTo(Technique.NAKED_PAIR) > 0) {
+			return Difficulty.FIENDISH;
+		} else if (hardest == Technique.NAKED_PAIR) {
+			return Difficulty.HARD;
+		} else if (hardest == Technique.HIDDEN_SINGLE) {
+			return Difficulty.MEDIUM;
+		} else {
+			return Difficulty.EASY;
+		}
+	}
+}
@@ -0,0 +1,298 @@
+package uk.ac.aber.cs211.sudoku.generator;
+
+import java.util.Random;
+
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+import uk.ac.aber.cs211.sudoku.solver.SolveMode;
+import uk.ac.aber.cs211.sudoku.solver.Solver;
+import uk.ac.aber.cs211.sudoku.solver.Technique;
+import uk.ac.aber.cs211.sudoku.solver.TechniquePipeline;
+
+/**
+ * Generates puzzles with exactly one solution. A random solved grid is made
+ * first, then clues are taken away in a random order, keeping each removal
+ * only if the puzzle still has one solution and is no harder than the
+ * difficulty asked for. Every clue is tried once, which leaves a puzzle
+ * where no more clues can be taken away (or no more pairs of clues, if the
+ * clues have to be symmetric).
+ * 
+ * <p>Each removal is checked by solving with only the techniques the
+ * difficulty allows, so a removal that goes too far is turned down as soon
+ * as those techniques stall, and the puzzle is only graded with every
+ * technique once all of the clues have been tried. A removal that leaves
+ * the taken cells as naked singles is kept without solving at all, as the
+ * puzzle is then no harder than before. The same solvers and arrays are used
+ * for every attempt, and a puzzle only becomes a {@link PackedGrid} when it is
+ * checked, so a generator can make a great many puzzles quickly. A generator
+ * should only be used by one thread at a time.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class PuzzleGenerator {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	private static final String USAGE =
+		"Usage: --generate <count> [--difficulty easy|medium|hard|fiendish|expert] " +
+		"[--symmetry none|rotational|mirror] [--seed <n>]";
+	
+	/** The index of the top left cell of each sub-grid on the diagonal. */
+	private static final int[] DIAGONAL_SUB_GRIDS = {0, 30, 60};
+	
+	/**
+	 * The techniques that solve the puzzles of each difficulty but expert, by
+	 * the difficulty's ordinal. Naked singles are always used.
+	 */
+	private static final TechniquePipeline[] PIPELINES = {
+		TechniquePipeline.of(new Technique[0]), TechniquePipeline.SINGLES,
+		TechniquePipeline.BASIC, TechniquePipeline.ALL};
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** Chooses the solved grid and the order the clues are removed in */
+	private final Random random;
+	
+	/** Fills in the random solved grid and checks for one solution */
+	private final Solver searchSolver = new Solver(SolveMode.LOGIC_AND_SEARCH);
+	
+	/** Grades the puzzles */
+	private final Solver logicSolver = new Solver(SolveMode.LOGIC_ONLY);
+	
+	/** Checks removals with only the techniques the difficulty allows */
+	private final Solver checkSolver = new Solver(SolveMode.LOGIC_ONLY);
+	
+	/** Grades puzzles from the logic solver's trace */
+	private final DifficultyGrader grader = new DifficultyGrader();
+	
+	/** The puzzle being generated */
+	private final byte[] cells = new byte[81];
+	
+	/** The order the cells are tried in */
+	private final int[] order = new int[81];
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a generator with a random seed.
+	 */
+	public PuzzleGenerator() {
+		this(new Random());
+	}
+	
+	/**
+	 * Creates a generator.
+	 * @param random the source of randomness, which can be seeded to make the
+	 *               same puzzles again
+	 */
+	public PuzzleGenerator(Random random) {
+		this.random = random;
+		
+		for (int i = 0; i < 81; i++) {
+			order[i] = i;
+		}
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Reads the command line arguments and prints the generated puzzles, one
+	 * per line.
+	 * @param args the command line arguments
+	 */
+	public static void main(String[] args) {
+		int count = 0;
+		Difficulty difficulty = Difficulty.MEDIUM;
+		Symmetry symmetry = Symmetry.NONE;
+		Random random = new Random();
+		
+		try {
+			count = Integer.parseInt(args[0]);
+			
+			for (int i = 1; i < args.length; i++) {
+				switch (args[i]) {
+				case "--difficulty":
+					difficulty = Difficulty.valueOf(args[++i].toUpperCase());
+					break;
+				case "--symmetry":
+					symmetry = Symmetry.valueOf(args[++i].toUpperCase());
+					break;
+				case "--seed":
+					random = new Random(Long.parseLong(args[++i]));
+					break;
+				default:
+					throw new IllegalArgumentException(args[i]);
+				}
+			}
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		
+		final PuzzleGenerator generator = new PuzzleGenerator(random);
+		final StringBuilder out = new StringBuilder();
+		
+		for (int i = 0; i < count; i++) {
+			out.append(generator.generate(difficulty, symmetry)).append('\n');
+			
+			if (out.length() > 8192) {
+				System.out.print(out);
+				out.setLength(0);
+			}
+		}
+		
+		System.out.print(out);
+	}
+	
+	/**
+	 * Generates a puzzle with one solution. Puzzles are made until one of the
+	 * right difficulty comes up; most attempts succeed, but expert puzzles
+	 * with symmetric clues can take several.
+	 * @param difficulty the difficulty of the puzzle
+	 * @param symmetry the pattern the clues are arranged in
+	 * @return the puzzle
+	 */
+	public PackedGrid generate(Difficulty difficulty, Symmetry symmetry) {
+		if (difficulty != Difficulty.EXPERT) {
+			checkSolver.setPipeline(PIPELINES[difficulty.ordinal()]);
+		}
+		
+		while (true) {
+			fillSolvedGrid();
+			removeClues(difficulty, symmetry);
+			
+			final PackedGrid puzzle = PackedGrid.of(cells);
+			
+			if (grade(puzzle) == difficulty) {
+				return puzzle;
+			}
+		}
+	}
+	
+	/**
+	 * Grades a puzzle by the techniques needed to solve it.
+	 * @param puzzle a puzzle with one solution
+	 * @return the difficulty of the puzzle
+	 */
+	public Difficulty grade(PackedGrid puzzle) {
+		logicSolver.solve(puzzle);
+		
+		return grader.grade(logicSolver.getTrace());
+	}
+	
+	/**
+	 * Fills the puzzle with a random solved grid. The three sub-grids on the
+	 * diagonal don't share any rows or columns, so they can be filled in
+	 * with any order of the numbers, and the rest of the grid can always be
+	 * solved from them.
+	 */
+	private void fillSolvedGrid() {
+		for (int i = 0; i < 81; i++) {
+			cells[i] = 0;
+		}
+		
+		for (int start : DIAGONAL_SUB_GRIDS) {
+			for (int k = 0; k < 9; k++) {
+				cells[start + k / 3 * 9 + k % 3] = (byte) (k + 1);
+			}
+			
+			// Shuffle the numbers within the sub-grid
+			for (int k = 8; k > 0; k--) {
+				final int a = start + k / 3 * 9 + k % 3;
+				final int j = random.nextInt(k + 1);
+				final int b = start + j / 3 * 9 + j % 3;
+				final byte value = cells[a];
+				
+				cells[a] = cells[b];
+				cells[b] = value;
+			}
+		}
+		
+		searchSolver.solve(PackedGrid.of(cells)).copyTo(cells);
+	}
+	
+	/**
+	 * Takes clues away from the puzzle in a random order, keeping each removal
+	 * only if the puzzle still has one solution and is no harder than a
+	 * difficulty.
+	 * @param difficulty the hardest the puzzle can become
+	 * @param symmetry the pattern the clues must keep
+	 */
+	private void removeClues(Difficulty difficulty, Symmetry symmetry) {
+		for (int i = 80; i > 0; i--) {
+			final int j = random.nextInt(i + 1);
+			final int cell = order[i];
+			
+			order[i] = order[j];
+			order[j] = cell;
+		}
+		
+		for (int cell : order) {
+			final int mirror = symmetry.mirror(cell);
+			final byte value = cells[cell];
+			final byte mirrorValue = cells[mirror];
+			
+			// The pair may already have been tried from the mirror cell
+			if (value == 0) {
+				continue;
+			}
+			
+			cells[cell] = 0;
+			cells[mirror] = 0;
+			
+			if (isNakedSingle(cell, value) && isNakedSingle(mirror, mirrorValue)) {
+				continue;
+			}
+			
+			if (!isAcceptable(PackedGrid.of(cells), difficulty)) {
+				cells[cell] = value;
+				cells[mirror] = mirrorValue;
+			}
+		}
+	}
+	
+	/**
+	 * Checks whether an empty cell of the puzzle can only be one number, as
+	 * every other number is in its row, column or sub-grid.
+	 * @param cell the index of the cell
+	 * @param value the number the cell held
+	 * @return true if the cell can only be that number; otherwise false
+	 */
+	private boolean isNakedSingle(int cell, byte value) {
+		final int x = cell % 9;
+		final int y = cell / 9;
+		final int box = y / 3 * 27 + x / 3 * 3;
+		int seen = 0;
+		
+		for (int k = 0; k < 9; k++) {
+			seen |= 1 << cells[y * 9 + k];
+			seen |= 1 << cells[k * 9 + x];
+			seen |= 1 << cells[box + k / 3 * 9 + k % 3];
+		}
+		
+		// Bit 0 is set by the empty cells
+		return (seen | 1 | 1 << value) == 0x3ff && (seen & 1 << value) == 0;
+	}
+	
+	/**
+	 * Checks whether a puzzle has one solution and is no harder than a
+	 * difficulty.
+	 * @param puzzle the puzzle
+	 * @param difficulty the hardest the puzzle can be
+	 * @return true if the puzzle can be used; otherwise false
+	 */
+	private boolean isAcceptable(PackedGrid puzzle, Difficulty difficulty) {
+		if (difficulty == Difficulty.EXPERT) {
+			return searchSolver.hasUniqueSolution(puzzle);
+		}
+		
+		// A puzzle solved by logic alone can only have one solution, and one
+		// solved with only the techniques the difficulty allows is no harder
+		// than it
+		checkSolver.solve(puzzle);
+		
+		return checkSolver.isSolved();
+	}
+}
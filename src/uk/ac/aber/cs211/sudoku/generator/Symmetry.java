@@ -0,0 +1,41 @@
+package uk.ac.aber.cs211.sudoku.generator;
+
+/**
+ * The patterns that the clues of a generated puzzle can be arranged in.
+ * Clues are removed from a cell and its mirror image together, so the
+ * pattern is kept.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public enum Symmetry {
+	/** The clues can be anywhere. */
+	NONE {
+		@Override
+		public int mirror(int cell) {
+			return cell;
+		}
+	},
+	
+	/** The clues look the same when the grid is turned upside down. */
+	ROTATIONAL {
+		@Override
+		public int mirror(int cell) {
+			return 80 - cell;
+		}
+	},
+	
+	/** The clues look the same when the grid is reflected left to right. */
+	MIRROR {
+		@Override
+		public int mirror(int cell) {
+			return cell / 9 * 9 + 8 - cell % 9;
+		}
+	};
+	
+	/**
+	 * Gets the cell that a cell is paired with by this symmetry.
+	 * @param cell the index of the cell
+	 * @return the index of the paired cell, which may be the same cell
+	 */
+	public abstract int mirror(int cell);
+}
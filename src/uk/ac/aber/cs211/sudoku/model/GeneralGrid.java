@@ -0,0 +1,281 @@
+package uk.ac.aber.cs211.sudoku.model;
+
+import java.util.Arrays;
+
+/**
+ * An immutable sudoku grid of any size, made of n x n sub-grids so that the
+ * whole grid is n<sup>2</sup> x n<sup>2</sup> cells and uses the numbers 1 to
+ * n<sup>2</sup>. The box size n can be from 2 (a 4 x 4 grid) to 8 (a 64 x 64
+ * grid). Cells are indexed by {@code y * size + x}.
+ * 
+ * <p>The rest of the model only deals with 9 x 9 grids; use {@link
+ * #toPackedGrid()} and {@link #of(PackedGrid)} to convert between them.
+ * 
+ * <p>As text, a grid is a line of size<sup>2</sup> characters, read left to
+ * right and top to bottom, where '.' or '0' is an empty cell. The numbers 1 to
+ * 9 are written as digits, 10 to 35 as the letters 'A' to 'Z', 36 to 61 as
+ * 'a' to 'z', and 62 to 64 as '+', '-' and '*'.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public final class GeneralGrid {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** The smallest box size. */
+	public static final int MIN_BOX_SIZE = 2;
+	
+	/** The largest box size, so that the candidates fit in a {@code long}. */
+	public static final int MAX_BOX_SIZE = 8;
+	
+	/** The characters for the numbers 1 to 64. */
+	private static final String DIGITS =
+		"123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz+-*";
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The width and height of each sub-grid */
+	private final int boxSize;
+	
+	/** The width and height of the grid */
+	private final int size;
+	
+	/** The number in each cell, or 0 if it is empty */
+	private final byte[] cells;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a grid from an array of cells.
+	 * @param boxSize the width and height of each sub-grid
+	 * @param cells the cells, which must already be checked and not be
+	 *              changed afterwards
+	 */
+	private GeneralGrid(int boxSize, byte[] cells) {
+		this.boxSize = boxSize;
+		this.size = boxSize * boxSize;
+		this.cells = cells;
+	}
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Gets the width and height of each sub-grid.
+	 * @return the box size
+	 */
+	public int getBoxSize() {
+		return boxSize;
+	}
+	
+	/**
+	 * Gets the width and height of the grid, which is also the largest number
+	 * that can be put in a cell.
+	 * @return the size of the grid
+	 */
+	public int getSize() {
+		return size;
+	}
+	
+	/**
+	 * Gets the number of cells in the grid.
+	 * @return the number of cells
+	 */
+	public int getCellCount() {
+		return cells.length;
+	}
+	
+	/**
+	 * Gets the number in a cell.
+	 * @param cell the index of the cell
+	 * @return the number in the cell, or 0 if the cell is empty
+	 */
+	public int get(int cell) {
+		return cells[cell];
+	}
+	
+	/**
+	 * Gets the number in a cell.
+	 * @param x the x coordinate of the cell
+	 * @param y the y coordinate of the cell
+	 * @return the number in the cell, or 0 if the cell is empty
+	 */
+	public int get(int x, int y) {
+		return cells[y * size + x];
+	}
+	
+	/**
+	 * Gets the number of cells that are not empty.
+	 * @return the number of clues in the grid
+	 */
+	public int getClueCount() {
+		int count = 0;
+		
+		for (byte value : cells) {
+			if (value != 0) {
+				count++;
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Checks whether every cell has a number in it.
+	 * @return true if no cell is empty; otherwise false
+	 */
+	public boolean isComplete() {
+		return getClueCount() == cells.length;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Creates a grid from an array of numbers.
+	 * @param boxSize the width and height of each sub-grid
+	 * @param cells the cells, indexed by {@code y * size + x}, where each is a
+	 *              number from 1 to the size of the grid or 0 if it is empty
+	 * @return the grid
+	 * @throws IllegalArgumentException if the box size isn't supported, there
+	 *                                  are the wrong number of cells or a cell
+	 *                                  is out of range
+	 */
+	public static GeneralGrid of(int boxSize, byte[] cells) {
+		checkBoxSize(boxSize);
+		
+		final int size = boxSize * boxSize;
+		
+		if (cells.length != size * size) {
+			throw new IllegalArgumentException(
+				"Expected " + size * size + " cells but found " + cells.length);
+		}
+		
+		for (int i = 0; i < cells.length; i++) {
+			if (cells[i] < 0 || cells[i] > size) {
+				throw new IllegalArgumentException("Cell " + i + " is " + cells[i]);
+			}
+		}
+		
+		return new GeneralGrid(boxSize, cells.clone());
+	}
+	
+	/**
+	 * Creates a grid with the same values as a 9 x 9 packed grid.
+	 * @param grid the packed grid
+	 * @return the grid, with a box size of 3
+	 */
+	public static GeneralGrid of(PackedGrid grid) {
+		final byte[] cells = new byte[81];
+		
+		grid.copyTo(cells);
+		
+		return new GeneralGrid(3, cells);
+	}
+	
+	/**
+	 * Creates a grid from a line of characters, read left to right and top to
+	 * bottom. The box size is worked out from the length of the line.
+	 * @param line the grid as a line of text
+	 * @return the grid
+	 * @throws IllegalArgumentException if the line isn't a valid grid
+	 */
+	public static GeneralGrid parse(CharSequence line) {
+		final int boxSize = (int) Math.round(Math.sqrt(Math.sqrt(line.length())));
+		final int size = boxSize * boxSize;
+		
+		if (size * size != line.length()) {
+			throw new IllegalArgumentException(
+				"A grid can't have " + line.length() + " cells");
+		}
+		
+		checkBoxSize(boxSize);
+		
+		final byte[] cells = new byte[line.length()];
+		
+		for (int i = 0; i < cells.length; i++) {
+			final char c = line.charAt(i);
+			
+			if (c != '.' && c != '0') {
+				final int value = DIGITS.indexOf(c) + 1;
+				
+				if (value == 0 || value > size) {
+					throw new IllegalArgumentException(
+						"Unexpected character '" + c + "' in cell " + (i + 1));
+				}
+				
+				cells[i] = (byte) value;
+			}
+		}
+		
+		return new GeneralGrid(boxSize, cells);
+	}
+	
+	/**
+	 * Creates a 9 x 9 packed grid with the same values as this grid.
+	 * @return the packed grid
+	 * @throws IllegalStateException if the box size isn't 3
+	 */
+	public PackedGrid toPackedGrid() {
+		if (boxSize != 3) {
+			throw new IllegalStateException("Only 9 x 9 grids can be packed");
+		}
+		
+		return PackedGrid.of(cells);
+	}
+	
+	/**
+	 * Copies the cells into an array.
+	 * @param cells an array of at least {@link #getCellCount()} numbers,
+	 *              indexed by {@code y * size + x}, where 0 is an empty cell
+	 */
+	public void copyTo(byte[] cells) {
+		System.arraycopy(this.cells, 0, cells, 0, this.cells.length);
+	}
+	
+	/**
+	 * Checks that a box size is supported.
+	 * @param boxSize the width and height of each sub-grid
+	 * @throws IllegalArgumentException if the box size isn't supported
+	 */
+	private static void checkBoxSize(int boxSize) {
+		if (boxSize < MIN_BOX_SIZE || boxSize > MAX_BOX_SIZE) {
+			throw new IllegalArgumentException("Unsupported box size " + boxSize);
+		}
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		} else if (!(obj instanceof GeneralGrid)) {
+			return false;
+		}
+		
+		final GeneralGrid other = (GeneralGrid) obj;
+		
+		return boxSize == other.boxSize && Arrays.equals(cells, other.cells);
+	}
+	
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(cells);
+	}
+	
+	/**
+	 * Gets the grid as a line of characters, read left to right and top to
+	 * bottom, where '.' is an empty cell.
+	 */
+	@Override
+	public String toString() {
+		final char[] line = new char[cells.length];
+		
+		for (int i = 0; i < cells.length; i++) {
+			line[i] = cells[i] == 0 ? '.' : DIGITS.charAt(cells[i] - 1);
+		}
+		
+		return new String(line);
+	}
+}
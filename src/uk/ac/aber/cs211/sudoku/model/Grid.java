@@ -1,6 +1,7 @@
 package uk.ac.aber.cs211.sudoku.model;
 
 import java.util.Observable;
+import java.util.Observer;
 
 /**
  * A model storing the entire grid of a sudoku board. The board's cells are
@@ -11,15 +12,37 @@ import java.util.Observable;
  * of storing the candidates (possible values) of the cells in the grid must be
  * implemented externally.
  * 
+ * <p>Observers are told about each cell as it is set. Wrap a run of changes
+ * in {@link #beginChanges()} and {@link #commitChanges()} to send them as one
+ * {@link GridChange} instead. A grid with no observers doesn't notify at all.
+ * 
  * @author Josh Tumath (jmt14@aber.ac.uk)
  */
 public class Grid extends Observable {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** All the cell values, indexed by their number. */
+	private static final CellValue[] VALUES = CellValue.values();
+	
 	// /////////////////// //
 	// Instance variables. //
 	// /////////////////// //
 	/** An array of all the cells in the sudoku grid */
 	private Cell[][] cells = new Cell[9][9];
 	
+	/** The number of batches of changes that haven't been committed */
+	private int batchDepth;
+	
+	/** A bit for each of cells 0 to 63 changed in the current batch */
+	private long changedLow;
+	
+	/** A bit for each of cells 64 to 80 changed in the current batch */
+	private long changedHigh;
+	
+	/** Whether any observers have been added, so that changes are sent */
+	private volatile boolean observed;
+	
 	// ///////////// //
 	// Constructors. //
 	// ///////////// //
@@ -63,9 +86,46 @@ public class Grid extends Observable {
 	public void setCell(int x, int y, CellValue value) {
 		cells[x][y].setValue(value);
 		
-		// Tell the observer (i.e. the GridCanvas) that a cell has changed
-		setChanged();
-		notifyObservers(cells[x][y]);
+		if (!observed) {
+			return;
+		}
+		
+		if (batchDepth > 0) {
+			// Remember the cell until the batch is committed
+			final int cell = y * 9 + x;
+			
+			if (cell < 64) {
+				changedLow |= 1L << cell;
+			} else {
+				changedHigh |= 1L << (cell - 64);
+			}
+		} else {
+			// Tell the observer (i.e. the GridCanvas) that a cell has changed
+			setChanged();
+			notifyObservers(cells[x][y]);
+		}
+	}
+	
+	/**
+	 * Sets every cell to the number in the same cell of a packed grid, as one
+	 * batch of changes. Cells that already have the right number aren't set.
+	 * @param values the new values of the cells
+	 */
+	public void setCells(PackedGrid values) {
+		beginChanges();
+		
+		try {
+			for (int cell = 0; cell < 81; cell++) {
+				final Cell current = cells[cell % 9][cell / 9];
+				final int value = values.get(cell);
+				
+				if (current.getValue().ordinal() != value) {
+					setCell(cell % 9, cell / 9, VALUES[value]);
+				}
+			}
+		} finally {
+			commitChanges();
+		}
 	}
 	
 	// ///////////////////// //
@@ -80,4 +140,55 @@ public class Grid extends Observable {
 	public Cell getCell(int x, int y) {
 		return cells[x][y];
 	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Starts a batch of changes. Until the batch is committed, observers
+	 * aren't told about cells being set. Batches can be nested, in which case
+	 * the changes are sent when the outermost batch is committed.
+	 */
+	public void beginChanges() {
+		batchDepth++;
+	}
+	
+	/**
+	 * Commits a batch of changes started by {@link #beginChanges()}, telling
+	 * the observers about every cell set during the batch with one {@link
+	 * GridChange}.
+	 * @throws IllegalStateException if no batch has been started
+	 */
+	public void commitChanges() {
+		if (batchDepth == 0) {
+			throw new IllegalStateException("No batch of changes has been started");
+		}
+		
+		if (--batchDepth == 0 && (changedLow | changedHigh) != 0) {
+			final GridChange change = new GridChange(changedLow, changedHigh);
+			
+			changedLow = 0;
+			changedHigh = 0;
+			setChanged();
+			notifyObservers(change);
+		}
+	}
+	
+	@Override
+	public synchronized void addObserver(Observer o) {
+		super.addObserver(o);
+		observed = true;
+	}
+	
+	@Override
+	public synchronized void deleteObserver(Observer o) {
+		super.deleteObserver(o);
+		observed = countObservers() > 0;
+	}
+	
+	@Override
+	public synchronized void deleteObservers() {
+		super.deleteObservers();
+		observed = false;
+	}
 }
\ No newline at end of file
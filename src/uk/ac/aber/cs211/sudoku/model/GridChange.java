@@ -0,0 +1,54 @@
+package uk.ac.aber.cs211.sudoku.model;
+
+/**
+ * The cells of a {@link Grid} that changed during a batch of changes, sent to
+ * the grid's observers as one event when the batch is committed.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public final class GridChange {
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** A bit for each of cells 0 to 63 that changed */
+	private final long low;
+	
+	/** A bit for each of cells 64 to 80 that changed */
+	private final long high;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a change event.
+	 * @param low a bit for each of cells 0 to 63 that changed
+	 * @param high a bit for each of cells 64 to 80 that changed
+	 */
+	GridChange(long low, long high) {
+		this.low = low;
+		this.high = high;
+	}
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Checks whether a cell changed.
+	 * @param x the x coordinate of the cell
+	 * @param y the y coordinate of the cell
+	 * @return true if the cell changed; otherwise false
+	 */
+	public boolean isChanged(int x, int y) {
+		final int cell = y * 9 + x;
+		
+		return ((cell < 64 ? low >>> cell : high >>> (cell - 64)) & 1) != 0;
+	}
+	
+	/**
+	 * Gets the number of cells that changed.
+	 * @return the number of cells
+	 */
+	public int size() {
+		return Long.bitCount(low) + Long.bitCount(high);
+	}
+}
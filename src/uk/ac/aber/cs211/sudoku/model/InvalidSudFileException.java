@@ -8,4 +8,45 @@ package uk.ac.aber.cs211.sudoku.model;
  */
 public class InvalidSudFileException extends Exception {
 	private static final long serialVersionUID = -6826772565244825331L;
+	
+	/** The line of the file that couldn't be read, or 0 if it isn't known */
+	private final long lineNumber;
+	
+	/** A description of the problem, or null if it isn't known */
+	private final String reason;
+	
+	/**
+	 * Creates an exception without any details of the problem.
+	 */
+	public InvalidSudFileException() {
+		this.lineNumber = 0;
+		this.reason = null;
+	}
+	
+	/**
+	 * Creates an exception for a line of a file that couldn't be read.
+	 * @param reason a description of the problem
+	 * @param lineNumber the line of the file, starting from 1
+	 */
+	public InvalidSudFileException(String reason, long lineNumber) {
+		super("Line " + lineNumber + ": " + reason);
+		this.lineNumber = lineNumber;
+		this.reason = reason;
+	}
+	
+	/**
+	 * Gets the line of the file that couldn't be read.
+	 * @return the line number, starting from 1, or 0 if it isn't known
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+	
+	/**
+	 * Gets a description of the problem, without the line number.
+	 * @return the description, or null if it isn't known
+	 */
+	public String getReason() {
+		return reason;
+	}
 }
@@ -0,0 +1,216 @@
+package uk.ac.aber.cs211.sudoku.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a large file of puzzles, where each line is a puzzle of 81 characters
+ * (see {@link PuzzleLineParser} for the format), by mapping it into memory.
+ * 
+ * <p>The file can be split into chunks that start and end on line boundaries.
+ * Each chunk parses its puzzles straight from the mapped memory, without
+ * copying them through a reader, so separate threads can each parse and solve
+ * their own chunks at the same time. A chunk is only mapped when it is first
+ * read, and lets go of its mapping when it is closed, so a file split into
+ * thousands of chunks only has the ones being read mapped at once.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class MappedPuzzleFile
+implements Closeable {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/**
+	 * The largest size of a chunk. A single mapping can't be larger than 2GB,
+	 * and chunks grow slightly when they are aligned to the end of a line.
+	 */
+	private static final long MAX_CHUNK_SIZE = 1L << 30;
+	
+	/** The number of bytes read at a time when looking for the end of a line */
+	private static final int SCAN_SIZE = 256;
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The channel used to map the file. */
+	private final FileChannel channel;
+	
+	/** The size of the file in bytes. */
+	private final long size;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Opens a file of puzzles.
+	 * @param file the file containing the puzzles
+	 * @throws IOException if the file can't be opened
+	 */
+	public MappedPuzzleFile(File file) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		size = channel.size();
+	}
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Gets the size of the file.
+	 * @return the size of the file in bytes
+	 */
+	public long getSize() {
+		return size;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Splits the file into chunks of roughly equal size that start and end on
+	 * line boundaries. The file may be split into more chunks than asked for
+	 * if it is too large to map in that many, or fewer if it has too few
+	 * lines.
+	 * @param count the number of chunks to split the file into
+	 * @return the chunks, in the order they appear in the file
+	 * @throws IOException if the file can't be read
+	 */
+	public List<Chunk> split(int count) throws IOException {
+		count = (int) Math.max(Math.max(count, 1), (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+		
+		final List<Chunk> chunks = new ArrayList<Chunk>(count);
+		long start = 0;
+		
+		for (int i = 1; i <= count && start < size; i++) {
+			final long end = i == count ? size : findLineEnd(Math.max(start, size / count * i));
+			
+			chunks.add(new Chunk(channel, start, end));
+			start = end;
+		}
+		
+		return chunks;
+	}
+	
+	/**
+	 * Finds the start of the first line after a position in the file.
+	 * @param position the position to start looking from
+	 * @return the position just after the next line break, or the end of the
+	 *         file if there isn't one
+	 * @throws IOException if the file can't be read
+	 */
+	private long findLineEnd(long position) throws IOException {
+		final ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+		
+		while (position < size) {
+			scan.clear();
+			
+			final int read = channel.read(scan, position);
+			
+			for (int i = 0; i < read; i++) {
+				if (scan.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			
+			position += Math.max(read, 0);
+			
+			if (read <= 0) {
+				break;
+			}
+		}
+		
+		return size;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+	
+	// ////////////// //
+	// Inner classes. //
+	// ////////////// //
+	/**
+	 * A part of the file, starting and ending on line boundaries, that is
+	 * parsed straight from mapped memory. The part is mapped when it is first
+	 * read, and the mapping is let go when the chunk is closed. A chunk should
+	 * only be read by one thread at a time.
+	 * 
+	 * <p>Line numbers are counted from the start of the chunk. The number of
+	 * lines in the chunks before it can be added to them, using
+	 * {@link #getLinesRead()} once those chunks have been read.
+	 */
+	public static class Chunk extends PuzzleLineParser
+	implements Closeable {
+		/** The channel used to map the file */
+		private final FileChannel channel;
+		
+		/** The position in the file of the start of the chunk */
+		private final long start;
+		
+		/** The number of bytes in the chunk */
+		private final int limit;
+		
+		/** The mapped part of the file, or null if it isn't mapped */
+		private MappedByteBuffer buffer;
+		
+		/** The position of the next byte to be read */
+		private int position;
+		
+		/**
+		 * Creates a chunk for a part of the file, without mapping it yet.
+		 * @param channel the channel used to map the file
+		 * @param start the position in the file of the start of the chunk
+		 * @param end the position in the file just after the end of the chunk
+		 */
+		private Chunk(FileChannel channel, long start, long end) {
+			this.channel = channel;
+			this.start = start;
+			this.limit = (int) (end - start);
+		}
+		
+		/**
+		 * Gets the size of the chunk.
+		 * @return the size of the chunk in bytes
+		 */
+		public int getSize() {
+			return limit;
+		}
+		
+		@Override
+		protected int peek() throws IOException {
+			if (position >= limit) {
+				return -1;
+			}
+			
+			if (buffer == null) {
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, limit);
+			}
+			
+			return buffer.get(position) & 0xFF;
+		}
+		
+		@Override
+		protected void advance() {
+			position++;
+		}
+		
+		/**
+		 * Lets go of the mapping, which is unmapped once it has been garbage
+		 * collected. Nothing more can be read from the chunk afterwards, but
+		 * {@link #getLinesRead()} still works.
+		 */
+		@Override
+		public void close() {
+			buffer = null;
+			position = limit;
+		}
+	}
+}
@@ -0,0 +1,321 @@
+package uk.ac.aber.cs211.sudoku.model;
+
+/**
+ * A compact, immutable representation of a sudoku grid, for when many grids
+ * need to be held in memory or used as keys in a map.
+ * 
+ * <p>Each of the 81 cells is stored as a 4-bit number from 0 (empty) to 9,
+ * packed sixteen to a {@code long}, which makes comparing and hashing grids
+ * cheap. Cells are indexed by {@code y * 9 + x}.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public final class PackedGrid {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** A grid where every cell is empty. */
+	public static final PackedGrid EMPTY = new PackedGrid(new byte[81]);
+	
+	/** All the cell values, indexed by their number. */
+	private static final CellValue[] VALUES = CellValue.values();
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** Cells 0 to 15 */
+	private final long cells0;
+	
+	/** Cells 16 to 31 */
+	private final long cells1;
+	
+	/** Cells 32 to 47 */
+	private final long cells2;
+	
+	/** Cells 48 to 63 */
+	private final long cells3;
+	
+	/** Cells 64 to 79 */
+	private final long cells4;
+	
+	/** Cell 80 */
+	private final byte cell80;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Packs an array of cells.
+	 * @param cells the 81 cells, which must already be checked
+	 */
+	private PackedGrid(byte[] cells) {
+		cells0 = pack(cells, 0);
+		cells1 = pack(cells, 16);
+		cells2 = pack(cells, 32);
+		cells3 = pack(cells, 48);
+		cells4 = pack(cells, 64);
+		cell80 = cells[80];
+	}
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Gets the number in a cell.
+	 * @param cell the index of the cell, from 0 to 80
+	 * @return the number in the cell, or 0 if the cell is empty
+	 */
+	public int get(int cell) {
+		final long word;
+		
+		switch (cell >>> 4) {
+		case 0:
+			word = cells0;
+			break;
+		case 1:
+			word = cells1;
+			break;
+		case 2:
+			word = cells2;
+			break;
+		case 3:
+			word = cells3;
+			break;
+		case 4:
+			word = cells4;
+			break;
+		default:
+			if (cell != 80) {
+				throw new IndexOutOfBoundsException("Cell " + cell);
+			}
+			
+			return cell80;
+		}
+		
+		return (int) (word >>> ((cell & 15) << 2)) & 0xF;
+	}
+	
+	/**
+	 * Gets the number in a cell.
+	 * @param x the x coordinate of the cell
+	 * @param y the y coordinate of the cell
+	 * @return the number in the cell, or 0 if the cell is empty
+	 */
+	public int get(int x, int y) {
+		return get(y * 9 + x);
+	}
+	
+	/**
+	 * Gets the number of cells that are not empty.
+	 * @return the number of clues in the grid
+	 */
+	public int getClueCount() {
+		return countNonEmpty(cells0) + countNonEmpty(cells1) + countNonEmpty(cells2)
+			+ countNonEmpty(cells3) + countNonEmpty(cells4) + (cell80 != 0 ? 1 : 0);
+	}
+	
+	/**
+	 * Checks whether every cell has a number in it.
+	 * @return true if no cell is empty; otherwise false
+	 */
+	public boolean isComplete() {
+		return getClueCount() == 81;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Creates a packed grid from an array of numbers.
+	 * @param cells the 81 cells, indexed by {@code y * 9 + x}, where each is a
+	 *              number from 1 to 9 or 0 if it is empty
+	 * @return the packed grid
+	 * @throws IllegalArgumentException if there aren't 81 cells or a cell is
+	 *                                  not between 0 and 9
+	 */
+	public static PackedGrid of(byte[] cells) {
+		if (cells.length != 81) {
+			throw new IllegalArgumentException("Expected 81 cells but found " + cells.length);
+		}
+		
+		for (int i = 0; i < 81; i++) {
+			if (cells[i] < 0 || cells[i] > 9) {
+				throw new IllegalArgumentException("Cell " + i + " is " + cells[i]);
+			}
+		}
+		
+		return new PackedGrid(cells);
+	}
+	
+	/**
+	 * Creates a packed grid from a line of 81 characters, read left to right
+	 * and top to bottom, where '.' or '0' is an empty cell.
+	 * @param line the grid as a line of text
+	 * @return the packed grid
+	 * @throws IllegalArgumentException if the line isn't a valid grid
+	 */
+	public static PackedGrid parse(CharSequence line) {
+		if (line.length() != 81) {
+			throw new IllegalArgumentException("Expected 81 cells but found " + line.length());
+		}
+		
+		final byte[] cells = new byte[81];
+		
+		for (int i = 0; i < 81; i++) {
+			final int value = PuzzleLineParser.parseCell(line.charAt(i));
+			
+			if (value < 0) {
+				throw new IllegalArgumentException(
+					"Unexpected character '" + line.charAt(i) + "' in cell " + (i + 1));
+			}
+			
+			cells[i] = (byte) value;
+		}
+		
+		return new PackedGrid(cells);
+	}
+	
+	/**
+	 * Creates a packed grid with the same values as a grid.
+	 * @param grid the grid
+	 * @return the packed grid
+	 */
+	public static PackedGrid fromGrid(Grid grid) {
+		final byte[] cells = new byte[81];
+		
+		for (int i = 0; i < 81; i++) {
+			cells[i] = (byte) grid.getCell(i % 9, i / 9).getValue().ordinal();
+		}
+		
+		return new PackedGrid(cells);
+	}
+	
+	/**
+	 * Creates a new grid with the same values as this packed grid.
+	 * @return the new grid
+	 */
+	public Grid toGrid() {
+		final CellValue[][] values = new CellValue[9][9];
+		
+		for (int i = 0; i < 81; i++) {
+			values[i % 9][i / 9] = VALUES[get(i)];
+		}
+		
+		return new Grid(values);
+	}
+	
+	/**
+	 * Copies the cells into an array.
+	 * @param cells an array of at least 81 numbers, indexed by
+	 *              {@code y * 9 + x}, where 0 is an empty cell
+	 */
+	public void copyTo(byte[] cells) {
+		unpack(cells0, cells, 0);
+		unpack(cells1, cells, 16);
+		unpack(cells2, cells, 32);
+		unpack(cells3, cells, 48);
+		unpack(cells4, cells, 64);
+		cells[80] = cell80;
+	}
+	
+	/**
+	 * Creates a copy of this grid with a different number in one cell.
+	 * @param cell the index of the cell, from 0 to 80
+	 * @param value the new number in the cell, or 0 to empty it
+	 * @return the new grid
+	 */
+	public PackedGrid with(int cell, int value) {
+		final byte[] cells = new byte[81];
+		
+		copyTo(cells);
+		cells[cell] = (byte) value;
+		
+		return of(cells);
+	}
+	
+	/**
+	 * Packs sixteen cells (or fewer, at the end of the array) into a long.
+	 * @param cells the cells
+	 * @param start the index of the first cell to pack
+	 * @return the packed cells
+	 */
+	private static long pack(byte[] cells, int start) {
+		long word = 0;
+		
+		for (int i = Math.min(start + 15, 80); i >= start; i--) {
+			word = word << 4 | cells[i];
+		}
+		
+		return word;
+	}
+	
+	/**
+	 * Unpacks sixteen cells from a long.
+	 * @param word the packed cells
+	 * @param cells the array to unpack the cells into
+	 * @param start the index of the first cell to unpack
+	 */
+	private static void unpack(long word, byte[] cells, int start) {
+		for (int i = start; i < start + 16; i++) {
+			cells[i] = (byte) (word & 0xF);
+			word >>>= 4;
+		}
+	}
+	
+	/**
+	 * Counts the cells packed into a long that are not empty.
+	 * @param word the packed cells
+	 * @return the number of cells that are not empty
+	 */
+	private static int countNonEmpty(long word) {
+		// Combine the four bits of each cell into its lowest bit
+		word |= word >>> 2;
+		word |= word >>> 1;
+		
+		return Long.bitCount(word & 0x1111111111111111L);
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		} else if (!(obj instanceof PackedGrid)) {
+			return false;
+		}
+		
+		final PackedGrid other = (PackedGrid) obj;
+		
+		return cells0 == other.cells0 && cells1 == other.cells1 && cells2 == other.cells2
+			&& cells3 == other.cells3 && cells4 == other.cells4 && cell80 == other.cell80;
+	}
+	
+	@Override
+	public int hashCode() {
+		long hash = cells0;
+		
+		hash = hash * 0x9E3779B97F4A7C15L + cells1;
+		hash = hash * 0x9E3779B97F4A7C15L + cells2;
+		hash = hash * 0x9E3779B97F4A7C15L + cells3;
+		hash = hash * 0x9E3779B97F4A7C15L + cells4;
+		hash = hash * 0x9E3779B97F4A7C15L + cell80;
+		
+		return (int) (hash ^ hash >>> 32);
+	}
+	
+	/**
+	 * Gets the grid as a line of 81 characters, read left to right and top to
+	 * bottom, where '.' is an empty cell.
+	 */
+	@Override
+	public String toString() {
+		final char[] line = new char[81];
+		
+		for (int i = 0; i < 81; i++) {
+			final int value = get(i);
+			
+			line[i] = value == 0 ? '.' : (char) ('0' + value);
+		}
+		
+		return new String(line);
+	}
+}
@@ -0,0 +1,200 @@
+package uk.ac.aber.cs211.sudoku.model;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+/**
+ * Parses puzzles from a source of bytes where each line is a puzzle of 81
+ * characters, read left to right and top to bottom. The digits 1 to 9 are
+ * clues, and '.' or '0' is an empty cell. Anything after the 81 cells that is
+ * separated from them by whitespace or a comma (such as a rating) is ignored,
+ * as are blank lines and lines starting with '#'.
+ * 
+ * <p>Puzzles are parsed straight from the bytes into arrays of 81 numbers
+ * supplied by the caller. A malformed line only causes that line to be
+ * rejected; the next puzzle can still be read afterwards.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+abstract class PuzzleLineParser {
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The line number of the puzzle last read. */
+	private long lineNumber;
+	
+	/** The line number of the line starting at the current position. */
+	private long nextLineNumber = 1;
+	
+	/** Stores the cells of a puzzle while it is being packed. */
+	private final byte[] packBuffer = new byte[81];
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Gets the line number of the puzzle last read, or of the line that was
+	 * rejected if reading it failed.
+	 * @return the line number, starting from 1
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+	
+	/**
+	 * Gets the number of lines that have been read or skipped so far.
+	 * @return the number of lines
+	 */
+	public long getLinesRead() {
+		return nextLineNumber - 1;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Checks if there is another puzzle to read, skipping any blank lines and
+	 * comments.
+	 * @return true if there is another line to read; otherwise false
+	 * @throws IOException if the source can't be read
+	 */
+	public boolean hasNext() throws IOException {
+		while (true) {
+			final int b = peek();
+			
+			if (b < 0) {
+				return false;
+			} else if (b == '#') {
+				skipLine();
+			} else if (b == '\n') {
+				advance();
+				nextLineNumber++;
+			} else if (b == ' ' || b == '\t' || b == '\r') {
+				advance();
+			} else {
+				return true;
+			}
+		}
+	}
+	
+	/**
+	 * Reads the next puzzle into an array.
+	 * @param cells an array of at least 81 numbers that the puzzle is stored
+	 *              in, where 0 is an empty cell
+	 * @throws InvalidSudFileException if the line is not a valid puzzle. The
+	 *                                 line is skipped, so the next puzzle can
+	 *                                 still be read.
+	 * @throws IOException if the source can't be read
+	 * @throws NoSuchElementException if there are no more puzzles
+	 */
+	public void next(byte[] cells) throws InvalidSudFileException, IOException {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		
+		lineNumber = nextLineNumber++;
+		
+		String error = null;
+		boolean ignoreRest = false;
+		int count = 0;
+		int b;
+		
+		while ((b = read()) >= 0 && b != '\n') {
+			if (error != null || ignoreRest) {
+				continue;
+			}
+			
+			final int value = parseCell(b);
+			
+			if (count < 81 && value >= 0) {
+				cells[count++] = (byte) value;
+			} else if (b == ' ' || b == '\t' || b == '\r' || b == ',') {
+				ignoreRest = true;
+			} else if (count < 81) {
+				error = "unexpected character '" + (char) b + "' in cell " + (count + 1);
+			} else {
+				error = "more than 81 cells";
+			}
+		}
+		
+		if (error == null && count < 81) {
+			error = "expected 81 cells but found " + count;
+		}
+		
+		if (error != null) {
+			throw new InvalidSudFileException(error, lineNumber);
+		}
+	}
+	
+	/**
+	 * Reads the next puzzle as a packed grid.
+	 * @return the puzzle
+	 * @throws InvalidSudFileException if the line is not a valid puzzle. The
+	 *                                 line is skipped, so the next puzzle can
+	 *                                 still be read.
+	 * @throws IOException if the source can't be read
+	 * @throws NoSuchElementException if there are no more puzzles
+	 */
+	public PackedGrid next() throws InvalidSudFileException, IOException {
+		next(packBuffer);
+		
+		return PackedGrid.of(packBuffer);
+	}
+	
+	/**
+	 * Converts a character in a puzzle file into the number it represents.
+	 * @param b the character
+	 * @return the number from 1 to 9, 0 for an empty cell or -1 if the
+	 *         character doesn't represent a cell
+	 */
+	static int parseCell(int b) {
+		if (b >= '1' && b <= '9') {
+			return b - '0';
+		} else if (b == '.' || b == '0') {
+			return 0;
+		} else {
+			return -1;
+		}
+	}
+	
+	/**
+	 * Skips to the start of the next line.
+	 * @throws IOException if the source can't be read
+	 */
+	private void skipLine() throws IOException {
+		int b;
+		
+		while ((b = read()) >= 0 && b != '\n') {
+			// Skip this character
+		}
+		
+		nextLineNumber++;
+	}
+	
+	/**
+	 * Reads the next byte from the source.
+	 * @return the next byte, or -1 at the end of the source
+	 * @throws IOException if the source can't be read
+	 */
+	private int read() throws IOException {
+		final int b = peek();
+		
+		if (b >= 0) {
+			advance();
+		}
+		
+		return b;
+	}
+	
+	/**
+	 * Gets the next byte from the source without moving past it.
+	 * @return the next byte, or -1 at the end of the source
+	 * @throws IOException if the source can't be read
+	 */
+	protected abstract int peek() throws IOException;
+	
+	/**
+	 * Moves past the byte returned by {@link #peek()}.
+	 */
+	protected abstract void advance();
+}
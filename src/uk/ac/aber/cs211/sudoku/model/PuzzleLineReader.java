@@ -0,0 +1,89 @@
+package uk.ac.aber.cs211.sudoku.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads puzzles one at a time from a stream where each line is a puzzle of 81
+ * characters (see {@link PuzzleLineParser} for the format).
+ * 
+ * <p>The stream is read through a byte buffer, so any number of puzzles can be
+ * read in constant memory.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class PuzzleLineReader extends PuzzleLineParser
+implements Closeable {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** The size of the buffer used to read the file. */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The stream the puzzles are read from. */
+	private final InputStream in;
+	
+	/** Stores the part of the stream currently being read. */
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	
+	/** The position of the next byte to be read in the buffer. */
+	private int position;
+	
+	/** The number of bytes in the buffer. */
+	private int limit;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a reader for a file of puzzles.
+	 * @param file the file containing the puzzles
+	 * @throws FileNotFoundException if the file cannot be found in the file
+	 *                               system.
+	 */
+	public PuzzleLineReader(File file) throws FileNotFoundException {
+		this(new FileInputStream(file));
+	}
+	
+	/**
+	 * Creates a reader for a stream of puzzles.
+	 * @param in the stream containing the puzzles
+	 */
+	public PuzzleLineReader(InputStream in) {
+		this.in = in;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	@Override
+	protected int peek() throws IOException {
+		if (position == limit) {
+			position = 0;
+			limit = Math.max(0, in.read(buffer));
+			
+			if (limit == 0) {
+				return -1;
+			}
+		}
+		
+		return buffer[position] & 0xFF;
+	}
+	
+	@Override
+	protected void advance() {
+		position++;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -48,7 +48,18 @@ implements Closeable {
 	 *                                 invalid format.
 	 */
 	public Grid importGrid() throws InvalidSudFileException {
-		Grid grid = new Grid();
+		return importPackedGrid().toGrid();
+	}
+	
+	/**
+	 * Imports the grid data from a SUD file as a packed grid. The location of
+	 * the SUD file is passed in via the constructor.
+	 * @return a packed grid representing the data in the SUD file
+	 * @throws InvalidSudFileException if the SUD file stores the data in an
+	 *                                 invalid format.
+	 */
+	public PackedGrid importPackedGrid() throws InvalidSudFileException {
+		byte[] cells = new byte[81];
 		String row;
 		
 		// Loop through each line in the file
@@ -66,13 +77,13 @@ implements Closeable {
 				throw new InvalidSudFileException();
 			}
 			
-			// Go through each character in the row and store as an enum
+			// Go through each character in the row and store as a number
 			for (int x = 0; x < 9; x++) {
-				grid.setCell(x, y, charToCell(row.charAt(x)));
+				cells[y * 9 + x] = (byte) charToCell(row.charAt(x)).ordinal();
 			}
 		}
 		
-		return grid;
+		return PackedGrid.of(cells);
 	}
 	
 	/**
@@ -109,7 +120,7 @@ implements Closeable {
 			throw new InvalidSudFileException();
 		}
 	}
-
+	
 	@Override
 	public void close() throws IOException {
 		sudFile.close();
@@ -0,0 +1,350 @@
+package uk.ac.aber.cs211.sudoku.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the {@link SolveServer}: a parser that turns a
+ * document into maps, lists, strings, numbers, booleans and nulls, and a way
+ * of quoting strings for writing responses by hand.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+final class Json {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/**
+	 * The deepest that objects and arrays can be nested, so that a document
+	 * can't make the parser run out of stack.
+	 */
+	private static final int MAX_DEPTH = 64;
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The document being parsed */
+	private final String text;
+	
+	/** The position of the next character to be read */
+	private int position;
+	
+	/** The number of objects and arrays the parser is inside */
+	private int depth;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a parser for a document.
+	 * @param text the document
+	 */
+	private Json(String text) {
+		this.text = text;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Parses a JSON document.
+	 * @param text the document
+	 * @return a {@link Map} for an object, a {@link List} for an array, a
+	 *         {@link String}, a {@link Double}, a {@link Boolean} or null
+	 * @throws IllegalArgumentException if the document isn't valid JSON
+	 */
+	static Object parse(String text) {
+		final Json parser = new Json(text);
+		final Object value = parser.readValue();
+		
+		parser.skipWhitespace();
+		
+		if (parser.position != text.length()) {
+			throw parser.error("Unexpected text after the value");
+		}
+		
+		return value;
+	}
+	
+	/**
+	 * Writes a string as a JSON string literal.
+	 * @param s the string
+	 * @param out the builder to write to
+	 */
+	static void quote(String s, StringBuilder out) {
+		out.append('"');
+		
+		for (int i = 0; i < s.length(); i++) {
+			final char c = s.charAt(i);
+			
+			if (c == '"' || c == '\\') {
+				out.append('\\').append(c);
+			} else if (c < 0x20) {
+				out.append(String.format("\\u%04x", (int) c));
+			} else {
+				out.append(c);
+			}
+		}
+		
+		out.append('"');
+	}
+	
+	/**
+	 * Reads any value.
+	 * @return the value
+	 */
+	private Object readValue() {
+		skipWhitespace();
+		
+		if (position == text.length()) {
+			throw error("Expected a value");
+		}
+		
+		final char c = text.charAt(position);
+		
+		if ((c == '{' || c == '[') && depth == MAX_DEPTH) {
+			throw error("Too deeply nested");
+		}
+		
+		switch (c) {
+		case '{':
+			depth++;
+			
+			final Map<String, Object> object = readObject();
+			
+			depth--;
+			return object;
+		case '[':
+			depth++;
+			
+			final List<Object> array = readArray();
+			
+			depth--;
+			return array;
+		case '"':
+			return readString();
+		case 't':
+			return readLiteral("true", Boolean.TRUE);
+		case 'f':
+			return readLiteral("false", Boolean.FALSE);
+		case 'n':
+			return readLiteral("null", null);
+		default:
+			if (c == '-' || (c >= '0' && c <= '9')) {
+				return readNumber();
+			}
+			
+			throw error("Unexpected character '" + c + "'");
+		}
+	}
+	
+	/**
+	 * Reads an object, keeping its members in order.
+	 * @return the members of the object
+	 */
+	private Map<String, Object> readObject() {
+		final Map<String, Object> object = new LinkedHashMap<String, Object>();
+		
+		position++;
+		skipWhitespace();
+		
+		if (peek() == '}') {
+			position++;
+			
+			return object;
+		}
+		
+		while (true) {
+			skipWhitespace();
+			
+			if (peek() != '"') {
+				throw error("Expected a member name");
+			}
+			
+			final String name = readString();
+			
+			skipWhitespace();
+			expect(':');
+			object.put(name, readValue());
+			skipWhitespace();
+			
+			if (peek() == '}') {
+				position++;
+				
+				return object;
+			}
+			
+			expect(',');
+		}
+	}
+	
+	/**
+	 * Reads an array.
+	 * @return the elements of the array
+	 */
+	private List<Object> readArray() {
+		final List<Object> array = new ArrayList<Object>();
+		
+		position++;
+		skipWhitespace();
+		
+		if (peek() == ']') {
+			position++;
+			
+			return array;
+		}
+		
+		while (true) {
+			array.add(readValue());
+			skipWhitespace();
+			
+			if (peek() == ']') {
+				position++;
+				
+				return array;
+			}
+			
+			expect(',');
+		}
+	}
+	
+	/**
+	 * Reads a string literal.
+	 * @return the string
+	 */
+	private String readString() {
+		final StringBuilder s = new StringBuilder();
+		
+		position++;
+		
+		while (true) {
+			if (position == text.length()) {
+				throw error("Unterminated string");
+			}
+			
+			final char c = text.charAt(position++);
+			
+			if (c == '"') {
+				return s.toString();
+			} else if (c != '\\') {
+				s.append(c);
+			} else if (position == text.length()) {
+				throw error("Unterminated string");
+			} else {
+				final char escape = text.charAt(position++);
+				
+				switch (escape) {
+				case '"':
+				case '\\':
+				case '/':
+					s.append(escape);
+					break;
+				case 'b':
+					s.append('\b');
+					break;
+				case 'f':
+					s.append('\f');
+					break;
+				case 'n':
+					s.append('\n');
+					break;
+				case 'r':
+					s.append('\r');
+					break;
+				case 't':
+					s.append('\t');
+					break;
+				case 'u':
+					if (position + 4 > text.length()) {
+						throw error("Invalid escape");
+					}
+					
+					try {
+						s.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+					} catch (NumberFormatException e) {
+						throw error("Invalid escape");
+					}
+					
+					position += 4;
+					break;
+				default:
+					throw error("Invalid escape '\\" + escape + "'");
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Reads a number.
+	 * @return the number
+	 */
+	private Double readNumber() {
+		final int start = position;
+		
+		while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+			position++;
+		}
+		
+		try {
+			return Double.valueOf(text.substring(start, position));
+		} catch (NumberFormatException e) {
+			throw error("Invalid number");
+		}
+	}
+	
+	/**
+	 * Reads one of the literals true, false or null.
+	 * @param literal the text of the literal
+	 * @param value the value of the literal
+	 * @return the value
+	 */
+	private Object readLiteral(String literal, Object value) {
+		if (!text.startsWith(literal, position)) {
+			throw error("Unexpected text");
+		}
+		
+		position += literal.length();
+		
+		return value;
+	}
+	
+	/**
+	 * Reads a character that must come next.
+	 * @param c the character
+	 */
+	private void expect(char c) {
+		if (peek() != c) {
+			throw error("Expected '" + c + "'");
+		}
+		
+		position++;
+	}
+	
+	/**
+	 * Gets the next character without reading it.
+	 * @return the character, or -1 at the end of the document
+	 */
+	private int peek() {
+		return position < text.length() ? text.charAt(position) : -1;
+	}
+	
+	/**
+	 * Skips any whitespace.
+	 */
+	private void skipWhitespace() {
+		while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+			position++;
+		}
+	}
+	
+	/**
+	 * Creates an exception for a syntax error at the current position.
+	 * @param message what is wrong
+	 * @return the exception
+	 */
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at position " + position);
+	}
+}
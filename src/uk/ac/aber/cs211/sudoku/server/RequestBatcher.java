@@ -0,0 +1,261 @@
+package uk.ac.aber.cs211.sudoku.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+import uk.ac.aber.cs211.sudoku.solver.SolveMode;
+import uk.ac.aber.cs211.sudoku.solver.SolveResult;
+import uk.ac.aber.cs211.sudoku.solver.Solver;
+
+
+/**
+ * Gathers the puzzles sent to the {@link SolveServer} into batches for a pool
+ * of worker threads. Once a puzzle arrives, the batcher waits a short window
+ * for others to join it, so that a burst of small requests is handed to the
+ * workers as a few large batches rather than one task per puzzle. Each worker
+ * solves its batch with its own {@link Solver}.
+ * 
+ * <p>Only a fixed number of puzzles can wait for a batch. Once the workers
+ * fall behind and the queue fills up, further puzzles are rejected. The
+ * puzzles of one request are queued all together or not at all, so a request
+ * is never left with only some of its puzzles being solved.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+class RequestBatcher {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** The largest number of puzzles in a batch. */
+	private static final int MAX_BATCH = 64;
+	
+	/** The number of batches that can be waiting per worker thread. */
+	private static final int BATCHES_PER_THREAD = 2;
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The puzzles waiting to be batched */
+	private final BlockingQueue<Request> queue;
+	
+	/** The number of puzzles that can wait to be batched */
+	private final int queueSize;
+	
+	/** A permit for each puzzle that can be added to the queue */
+	private final Semaphore space;
+	
+	/** The time to wait for a batch to fill, in nanoseconds */
+	private final long window;
+	
+	/** Solves the batches */
+	private final ExecutorService workers;
+	
+	/** A permit for each batch that can be waiting for or using a worker */
+	private final Semaphore batches;
+	
+	/** Creates a solver for each worker thread */
+	private final ThreadLocal<Solver> solvers = new ThreadLocal<Solver>() {
+		@Override
+		protected Solver initialValue() {
+			return new Solver(SolveMode.LOGIC_AND_SEARCH);
+		}
+	};
+	
+	/** Gathers the puzzles into batches */
+	private final Thread dispatcher;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a batcher and starts its dispatcher thread.
+	 * @param threads the number of worker threads
+	 * @param queueSize the number of puzzles that can wait to be batched
+	 * @param window the time to wait for a batch to fill
+	 * @param unit the unit of the window
+	 */
+	RequestBatcher(int threads, int queueSize, long window, TimeUnit unit) {
+		this.queue = new ArrayBlockingQueue<Request>(queueSize);
+		this.queueSize = queueSize;
+		this.space = new Semaphore(queueSize);
+		this.window = unit.toNanos(window);
+		this.workers = Executors.newFixedThreadPool(threads);
+		this.batches = new Semaphore(threads * BATCHES_PER_THREAD);
+		this.dispatcher = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				dispatch();
+			}
+		}, "request-batcher");
+		
+		dispatcher.setDaemon(true);
+		dispatcher.start();
+	}
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Gets the number of puzzles that can wait to be batched, which is the
+	 * most that can be submitted at once.
+	 * @return the size of the queue
+	 */
+	int getQueueSize() {
+		return queueSize;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Queues the puzzles of a request to be solved. Either every puzzle is
+	 * queued, or none of them are.
+	 * @param puzzles the puzzles
+	 * @return a future for each puzzle, in the same order, that completes with
+	 *         the report on the puzzle. A future that is cancelled before its
+	 *         puzzle is solved isn't solved at all.
+	 * @throws RejectedExecutionException if there isn't room in the queue for
+	 *                                    all of the puzzles
+	 */
+	List<CompletableFuture<SolveReport>> submit(List<PackedGrid> puzzles) {
+		if (!space.tryAcquire(puzzles.size())) {
+			throw new RejectedExecutionException("Too many puzzles are waiting");
+		}
+		
+		final List<CompletableFuture<SolveReport>> requests =
+			new ArrayList<CompletableFuture<SolveReport>>(puzzles.size());
+		
+		// The permits leave room in the queue for every puzzle
+		for (PackedGrid puzzle : puzzles) {
+			final Request request = new Request(puzzle);
+			
+			queue.add(request);
+			requests.add(request);
+		}
+		
+		return requests;
+	}
+	
+	/**
+	 * Stops the dispatcher and the workers. Puzzles that are still waiting to
+	 * be batched fail with a {@link RejectedExecutionException}.
+	 */
+	void close() {
+		dispatcher.interrupt();
+		workers.shutdownNow();
+		
+		for (Request request = take(queue.poll()); request != null; request = take(queue.poll())) {
+			request.completeExceptionally(new RejectedExecutionException("Closed"));
+		}
+	}
+	
+	/**
+	 * Repeatedly waits for a puzzle, gathers the puzzles that arrive within
+	 * the window after it, and hands them to a worker as one batch.
+	 */
+	private void dispatch() {
+		try {
+			while (true) {
+				final List<Request> batch = new ArrayList<Request>();
+				
+				batch.add(take(queue.take()));
+				
+				final long end = System.nanoTime() + window;
+				
+				while (batch.size() < MAX_BATCH) {
+					final Request request =
+						take(queue.poll(end - System.nanoTime(), TimeUnit.NANOSECONDS));
+					
+					if (request == null) {
+						break;
+					}
+					
+					batch.add(request);
+				}
+				
+				// Wait for a worker to catch up, so that the queue fills up
+				// and puzzles are rejected rather than piling up here
+				batches.acquire();
+				workers.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							solve(batch);
+						} finally {
+							batches.release();
+						}
+					}
+				});
+			}
+		} catch (InterruptedException | RejectedExecutionException e) {
+			// The batcher has been closed
+		}
+	}
+	
+	/**
+	 * Gives back the space in the queue of a puzzle that has been taken off
+	 * it.
+	 * @param request the puzzle taken off the queue, or null if there wasn't
+	 *                one
+	 * @return the puzzle
+	 */
+	private Request take(Request request) {
+		if (request != null) {
+			space.release();
+		}
+		
+		return request;
+	}
+	
+	/**
+	 * Solves a batch of puzzles with the current thread's solver.
+	 * @param batch the puzzles
+	 */
+	private void solve(List<Request> batch) {
+		final Solver solver = solvers.get();
+		
+		for (Request request : batch) {
+			// The rest of the request may have failed
+			if (request.isDone()) {
+				continue;
+			}
+			
+			try {
+				final SolveResult result = solver.solveWithMetrics(request.puzzle);
+				final boolean unique = result.isSolved() && solver.hasUniqueSolution(request.puzzle);
+				
+				request.complete(new SolveReport(request.puzzle, result, unique));
+			} catch (RuntimeException e) {
+				request.completeExceptionally(e);
+			}
+		}
+	}
+	
+	// ////////////// //
+	// Inner classes. //
+	// ////////////// //
+	/**
+	 * A puzzle waiting to be solved, which is also the future of its report.
+	 */
+	private static class Request extends CompletableFuture<SolveReport> {
+		/** The puzzle */
+		final PackedGrid puzzle;
+		
+		/**
+		 * Creates a request.
+		 * @param puzzle the puzzle
+		 */
+		Request(PackedGrid puzzle) {
+			this.puzzle = puzzle;
+		}
+	}
+}
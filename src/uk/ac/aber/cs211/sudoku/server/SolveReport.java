@@ -0,0 +1,67 @@
+package uk.ac.aber.cs211.sudoku.server;
+
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+import uk.ac.aber.cs211.sudoku.solver.SolveResult;
+import uk.ac.aber.cs211.sudoku.solver.SolverMetrics;
+
+/**
+ * What the {@link SolveServer} reports about a puzzle: its solution, the
+ * metrics of solving it and whether the solution is unique.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+class SolveReport {
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The puzzle */
+	final PackedGrid puzzle;
+	
+	/** The solution and metrics */
+	final SolveResult result;
+	
+	/** Whether the puzzle has exactly one solution */
+	final boolean unique;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a report.
+	 * @param puzzle the puzzle
+	 * @param result the solution and metrics
+	 * @param unique whether the puzzle has exactly one solution
+	 */
+	SolveReport(PackedGrid puzzle, SolveResult result, boolean unique) {
+		this.puzzle = puzzle;
+		this.result = result;
+		this.unique = unique;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Writes the report as a JSON object.
+	 * @param out the builder to write to
+	 */
+	void writeJson(StringBuilder out) {
+		final SolverMetrics metrics = result.getMetrics();
+		
+		out.append("{\"puzzle\":");
+		Json.quote(puzzle.toString(), out);
+		out.append(",\"solution\":");
+		Json.quote(result.getGrid().toString(), out);
+		out.append(",\"solved\":").append(result.isSolved())
+			.append(",\"unique\":").append(unique)
+			.append(",\"metrics\":{\"iterations\":").append(metrics.getIterations())
+			.append(",\"nakedSingles\":").append(metrics.getNakedSingles())
+			.append(",\"hiddenSingles\":").append(metrics.getHiddenSingles())
+			.append(",\"pairEliminations\":").append(metrics.getPairEliminations())
+			.append(",\"advancedEliminations\":").append(metrics.getAdvancedEliminations())
+			.append(",\"searchNodes\":").append(metrics.getSearchNodes())
+			.append(",\"backtracks\":").append(metrics.getBacktracks())
+			.append(",\"timeNanos\":").append(metrics.getTotalTime())
+			.append("}}");
+	}
+}
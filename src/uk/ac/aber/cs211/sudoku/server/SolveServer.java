@@ -0,0 +1,467 @@
+package uk.ac.aber.cs211.sudoku.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+
+
+/**
+ * Solves puzzles sent over HTTP, so that other processes can use the solver
+ * without starting a JVM for each puzzle. The server uses the JDK's built-in
+ * HTTP server, so it needs no other libraries.
+ * 
+ * <p>Puzzles are sent to {@code POST /solve} as JSON, either one at a time as
+ * {@code {"puzzle": "..."}} or many at once as {@code {"puzzles": [...]}} or
+ * a bare array. Each puzzle is a line of 81 characters as read by {@link
+ * PackedGrid#parse(CharSequence)}. The response has the solution, whether it
+ * is unique and the solver's metrics for each puzzle; a batch is returned as
+ * {@code {"results": [...]}} in the order the puzzles were sent.
+ * 
+ * <p>Puzzles from every request are gathered into batches by a {@link
+ * RequestBatcher}. A request is accepted only if there is room for all of its
+ * puzzles in the queue. If too many puzzles are already waiting, the request
+ * fails with status 503 and can be retried later. A request with more puzzles
+ * than the queue can hold fails with status 413, and should be split up.
+ * Handler threads don't wait for the puzzles to be solved, so every request
+ * that has been read is either in the queue or has been turned away.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class SolveServer {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	private static final String USAGE =
+		"Usage: --server [--port <n>] [--threads <n>] [--window <ms>] [--queue <size>]";
+	
+	/** The port the server listens on by default. */
+	private static final int DEFAULT_PORT = 8080;
+	
+	/** The time to wait for a batch to fill by default, in milliseconds. */
+	private static final long DEFAULT_WINDOW = 2;
+	
+	/** The number of puzzles that can wait to be batched by default. */
+	private static final int DEFAULT_QUEUE_SIZE = 4096;
+	
+	/** The number of threads handling requests. */
+	private static final int HANDLER_THREADS = 16;
+	
+	/** The largest request body accepted, in bytes. */
+	private static final int MAX_BODY = 16 << 20;
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** Accepts the HTTP requests */
+	private final HttpServer server;
+	
+	/** Reads the requests and sends the replies once their puzzles are solved */
+	private final ExecutorService handlers;
+	
+	/** Solves the puzzles in batches */
+	private final RequestBatcher batcher;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a server, which doesn't accept requests until it is started.
+	 * @param address the address to listen on, where port 0 chooses any free
+	 *                port
+	 * @param threads the number of threads solving puzzles
+	 * @param window the time to wait for a batch of puzzles to fill
+	 * @param unit the unit of the window
+	 * @param queueSize the number of puzzles that can wait to be batched
+	 * @throws IOException if the server can't listen on the address
+	 */
+	public SolveServer(InetSocketAddress address, int threads, long window, TimeUnit unit,
+			int queueSize) throws IOException {
+		this.server = HttpServer.create(address, 0);
+		this.handlers = Executors.newFixedThreadPool(HANDLER_THREADS);
+		this.batcher = new RequestBatcher(threads, queueSize, window, unit);
+		
+		server.createContext("/solve", new SolveHandler());
+		server.setExecutor(handlers);
+	}
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Gets the port the server is listening on.
+	 * @return the port
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Reads the command line arguments and starts a server, which runs until
+	 * the process is stopped.
+	 * @param args the command line arguments
+	 */
+	public static void main(String[] args) {
+		int port = DEFAULT_PORT;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long window = DEFAULT_WINDOW;
+		int queueSize = DEFAULT_QUEUE_SIZE;
+		
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "--port":
+					port = Integer.parseInt(args[++i]);
+					break;
+				case "--threads":
+					threads = Integer.parseInt(args[++i]);
+					break;
+				case "--window":
+					window = Long.parseLong(args[++i]);
+					break;
+				case "--queue":
+					queueSize = Integer.parseInt(args[++i]);
+					break;
+				default:
+					throw new IllegalArgumentException(args[i]);
+				}
+			}
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		
+		try {
+			final SolveServer server = new SolveServer(new InetSocketAddress(port), threads,
+				window, TimeUnit.MILLISECONDS, queueSize);
+			
+			server.start();
+			System.out.println("Listening on port " + server.getPort());
+		} catch (IOException e) {
+			System.err.println(e);
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Starts accepting requests.
+	 */
+	public void start() {
+		server.start();
+	}
+	
+	/**
+	 * Stops accepting requests and stops solving puzzles.
+	 */
+	public void stop() {
+		server.stop(0);
+		batcher.close();
+		handlers.shutdownNow();
+	}
+	
+	/**
+	 * Gets the puzzle or array of puzzles from the body of a request.
+	 * @param json the body of the request
+	 * @return the puzzle, or a list of puzzles
+	 * @throws IllegalArgumentException if the body has no puzzles
+	 */
+	private static Object unwrap(Object json) {
+		if (!(json instanceof Map)) {
+			return json;
+		}
+		
+		final Map<?, ?> object = (Map<?, ?>) json;
+		
+		if (object.containsKey("puzzle")) {
+			return object.get("puzzle");
+		} else if (object.containsKey("puzzles")) {
+			return object.get("puzzles");
+		} else {
+			throw new IllegalArgumentException("Expected \"puzzle\" or \"puzzles\"");
+		}
+	}
+	
+	/**
+	 * Parses the puzzles from a request.
+	 * @param puzzles the puzzle, or a list of puzzles
+	 * @return the puzzles
+	 * @throws IllegalArgumentException if a puzzle isn't valid
+	 */
+	private static List<PackedGrid> readPuzzles(Object puzzles) {
+		final List<PackedGrid> grids = new ArrayList<PackedGrid>();
+		
+		if (puzzles instanceof List) {
+			final List<?> items = (List<?>) puzzles;
+			
+			for (int i = 0; i < items.size(); i++) {
+				grids.add(readPuzzle(items.get(i), i));
+			}
+		} else {
+			grids.add(readPuzzle(puzzles, 0));
+		}
+		
+		return grids;
+	}
+	
+	/**
+	 * Gets a puzzle from a value in a request.
+	 * @param value the value
+	 * @param index the index of the puzzle in the request
+	 * @return the puzzle
+	 * @throws IllegalArgumentException if the value isn't a valid puzzle
+	 */
+	private static PackedGrid readPuzzle(Object value, int index) {
+		if (!(value instanceof String)) {
+			throw new IllegalArgumentException("Puzzle " + index + " is not a string");
+		}
+		
+		try {
+			return PackedGrid.parse((String) value);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Puzzle " + index + ": " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Reads the body of a request.
+	 * @param in the body
+	 * @return the body as text, or null if it is too large
+	 * @throws IOException if the body can't be read
+	 */
+	private static String readBody(InputStream in) throws IOException {
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[8192];
+		int read;
+		
+		while ((read = in.read(buffer)) > 0) {
+			if (body.size() + read > MAX_BODY) {
+				return null;
+			}
+			
+			body.write(buffer, 0, read);
+		}
+		
+		return new String(body.toByteArray(), StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Sends a JSON response.
+	 * @param exchange the request
+	 * @param status the HTTP status code
+	 * @param json the body of the response
+	 * @throws IOException if the response can't be sent
+	 */
+	private static void send(HttpExchange exchange, int status, CharSequence json)
+	throws IOException {
+		final byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+		
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, body.length);
+		
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+	
+	/**
+	 * Sends an error response.
+	 * @param exchange the request
+	 * @param status the HTTP status code
+	 * @param message what went wrong
+	 * @throws IOException if the response can't be sent
+	 */
+	private static void sendError(HttpExchange exchange, int status, String message)
+	throws IOException {
+		final StringBuilder json = new StringBuilder("{\"error\":");
+		
+		Json.quote(message, json);
+		send(exchange, status, json.append('}'));
+	}
+	
+	// ////////////// //
+	// Inner classes. //
+	// ////////////// //
+	/**
+	 * Handles requests to solve puzzles.
+	 */
+	private class SolveHandler
+	implements HttpHandler {
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			boolean replyLater = false;
+			
+			try {
+				if (!exchange.getRequestMethod().equals("POST")) {
+					exchange.getResponseHeaders().set("Allow", "POST");
+					sendError(exchange, 405, "Puzzles must be sent with POST");
+					return;
+				}
+				
+				final String body = readBody(exchange.getRequestBody());
+				
+				if (body == null) {
+					sendError(exchange, 413, "The request is too large");
+					return;
+				}
+				
+				final Object request;
+				final List<PackedGrid> puzzles;
+				
+				try {
+					request = unwrap(Json.parse(body));
+					puzzles = readPuzzles(request);
+				} catch (IllegalArgumentException e) {
+					sendError(exchange, 400, e.getMessage());
+					return;
+				}
+				
+				if (puzzles.size() > batcher.getQueueSize()) {
+					sendError(exchange, 413, "A request can have at most "
+						+ batcher.getQueueSize() + " puzzles");
+					return;
+				}
+				
+				final List<CompletableFuture<SolveReport>> reports;
+				
+				try {
+					reports = batcher.submit(puzzles);
+				} catch (RejectedExecutionException e) {
+					sendError(exchange, 503, "The server is busy");
+					return;
+				}
+				
+				// A single puzzle is answered with its report, and anything else
+				// with a list of reports
+				replyWhenSolved(exchange, !(request instanceof List), reports);
+				replyLater = true;
+			} finally {
+				if (!replyLater) {
+					exchange.close();
+				}
+			}
+		}
+		
+		/**
+		 * Replies to a request once all of its puzzles have been solved,
+		 * without holding up a handler thread while they are. If any of the
+		 * puzzles fails, the rest are cancelled and the request fails.
+		 * @param exchange the request
+		 * @param single whether the request was for a single puzzle
+		 * @param reports the futures of the reports on the puzzles
+		 */
+		private void replyWhenSolved(final HttpExchange exchange, final boolean single,
+				final List<CompletableFuture<SolveReport>> reports) {
+			final BiConsumer<SolveReport, Throwable> cancelRest =
+				new BiConsumer<SolveReport, Throwable>() {
+					@Override
+					public void accept(SolveReport report, Throwable failure) {
+						if (failure != null && !(failure instanceof CancellationException)) {
+							for (CompletableFuture<SolveReport> other : reports) {
+								other.cancel(false);
+							}
+						}
+					}
+				};
+			
+			for (CompletableFuture<SolveReport> report : reports) {
+				report.whenComplete(cancelRest);
+			}
+			
+			// The reply is sent by a handler thread rather than by the worker
+			// that solved the last puzzle
+			CompletableFuture.allOf(reports.toArray(new CompletableFuture<?>[reports.size()]))
+				.whenCompleteAsync(new BiConsumer<Void, Throwable>() {
+					@Override
+					public void accept(Void solved, Throwable failure) {
+						try {
+							reply(exchange, single, reports);
+						} catch (IOException e) {
+							// The client has gone away
+						} finally {
+							exchange.close();
+						}
+					}
+				}, handlers);
+		}
+		
+		/**
+		 * Sends the reports on a request's puzzles, which have all been
+		 * solved, or the reason the request failed.
+		 * @param exchange the request
+		 * @param single whether the request was for a single puzzle
+		 * @param reports the futures of the reports on the puzzles
+		 * @throws IOException if the response can't be sent
+		 */
+		private void reply(HttpExchange exchange, boolean single,
+				List<CompletableFuture<SolveReport>> reports) throws IOException {
+			final Throwable failure = getFailure(reports);
+			
+			if (failure instanceof RejectedExecutionException) {
+				sendError(exchange, 503, "The server is busy");
+				return;
+			} else if (failure != null) {
+				sendError(exchange, 500, String.valueOf(failure));
+				return;
+			}
+			
+			final StringBuilder out = new StringBuilder(single ? "" : "{\"results\":[");
+			
+			for (int i = 0; i < reports.size(); i++) {
+				if (i > 0) {
+					out.append(',');
+				}
+				
+				reports.get(i).join().writeJson(out);
+			}
+			
+			send(exchange, 200, single ? out : out.append("]}"));
+		}
+		
+		/**
+		 * Finds out why a request failed, from the futures of its reports,
+		 * which have all completed.
+		 * @param reports the futures of the reports on the puzzles
+		 * @return the failure of a puzzle, preferring one that wasn't just
+		 *         cancelled, or null if every puzzle was solved
+		 */
+		private Throwable getFailure(List<CompletableFuture<SolveReport>> reports) {
+			Throwable failure = null;
+			
+			for (CompletableFuture<SolveReport> report : reports) {
+				try {
+					report.join();
+				} catch (CompletionException e) {
+					return e.getCause();
+				} catch (CancellationException e) {
+					if (failure == null) {
+						failure = e;
+					}
+				}
+			}
+			
+			return failure;
+		}
+	}
+}
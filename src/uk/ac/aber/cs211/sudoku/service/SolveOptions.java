@@ -0,0 +1,114 @@
+package uk.ac.aber.cs211.sudoku.service;
+
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.aber.cs211.sudoku.solver.SolveMode;
+import uk.ac.aber.cs211.sudoku.solver.TechniquePipeline;
+
+/**
+ * The options for a puzzle solved by the {@link SolveService}: which
+ * techniques the solver may use, and how long the caller is willing to wait.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class SolveOptions {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** Uses logical techniques followed by a search, with no deadline. */
+	public static final SolveOptions DEFAULT =
+		new SolveOptions(SolveMode.LOGIC_AND_SEARCH, 0, TimeUnit.MILLISECONDS);
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** Which techniques the solver may use */
+	private final SolveMode mode;
+	
+	/** The time allowed from submitting the puzzle, in nanoseconds, or 0 */
+	private final long timeout;
+	
+	/** The logical techniques to use, or null for the solver's default */
+	private final TechniquePipeline pipeline;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a set of options.
+	 * @param mode which techniques the solver may use
+	 * @param timeout the time allowed from submitting the puzzle to it being
+	 *                solved, or 0 for no deadline
+	 * @param unit the unit of the timeout
+	 */
+	public SolveOptions(SolveMode mode, long timeout, TimeUnit unit) {
+		if (timeout < 0) {
+			throw new IllegalArgumentException("Negative timeout " + timeout);
+		}
+		
+		this.mode = mode;
+		this.timeout = unit.toNanos(timeout);
+		this.pipeline = null;
+	}
+	
+	/**
+	 * Creates a copy of a set of options with a different pipeline.
+	 * @param options the options to copy
+	 * @param pipeline the logical techniques to use, or null for the
+	 *                 solver's default
+	 */
+	private SolveOptions(SolveOptions options, TechniquePipeline pipeline) {
+		this.mode = options.mode;
+		this.timeout = options.timeout;
+		this.pipeline = pipeline;
+	}
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Gets which techniques the solver may use.
+	 * @return the solve mode
+	 */
+	public SolveMode getMode() {
+		return mode;
+	}
+	
+	/**
+	 * Gets the time allowed from submitting the puzzle to it being solved.
+	 * @return the timeout in nanoseconds, or 0 if there is no deadline
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+	
+	/**
+	 * Gets the pipeline of logical techniques the solver uses.
+	 * @return the pipeline, or null if the solver's default is used
+	 */
+	public TechniquePipeline getPipeline() {
+		return pipeline;
+	}
+	
+	/**
+	 * Creates options like these but with a different deadline.
+	 * @param timeout the time allowed, or 0 for no deadline
+	 * @param unit the unit of the timeout
+	 * @return the new options
+	 */
+	public SolveOptions withTimeout(long timeout, TimeUnit unit) {
+		return new SolveOptions(new SolveOptions(mode, timeout, unit), pipeline);
+	}
+	
+	/**
+	 * Creates options like these but with a different pipeline of logical
+	 * techniques, for example {@link TechniquePipeline#SINGLES} to quickly
+	 * screen puzzles. A pipeline can be shared by many puzzles, which lets an
+	 * adaptive pipeline learn which of its stages pay off.
+	 * @param pipeline the pipeline, or null for the solver's default
+	 * @return the new options
+	 */
+	public SolveOptions withPipeline(TechniquePipeline pipeline) {
+		return new SolveOptions(this, pipeline);
+	}
+}
@@ -0,0 +1,241 @@
+package uk.ac.aber.cs211.sudoku.service;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+import uk.ac.aber.cs211.sudoku.solver.SolveResult;
+import uk.ac.aber.cs211.sudoku.solver.Solver;
+
+
+/**
+ * Solves puzzles in the background for callers in the same process, returning
+ * a {@link CompletableFuture} for each rather than blocking.
+ * 
+ * <p>Only a fixed number of puzzles can be waiting or being solved at once.
+ * Once that many have been accepted, further puzzles are rejected straight
+ * away with a {@link RejectedExecutionException}, so a burst of hard puzzles
+ * can't tie up the whole process; callers can retry later.
+ * 
+ * <p>Each puzzle gets its own {@link Solver}. Cancelling the future, or the
+ * deadline in the puzzle's {@link SolveOptions} passing, cancels the solver,
+ * which checks for it inside its loops and stops soon after. A future that
+ * misses its deadline fails with a {@link TimeoutException}.
+ * 
+ * <p>The puzzles are solved on virtual threads when the JVM supports them,
+ * and otherwise on a fixed pool of platform threads.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class SolveService
+implements AutoCloseable {
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** Runs the solvers */
+	private final ExecutorService executor;
+	
+	/** Cancels the solvers that miss their deadlines */
+	private final ScheduledThreadPoolExecutor timer;
+	
+	/** A permit for each puzzle that can be accepted */
+	private final Semaphore capacity;
+	
+	/** The puzzles that have been accepted but not finished */
+	private final Set<Task> tasks =
+		Collections.newSetFromMap(new ConcurrentHashMap<Task, Boolean>());
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a service.
+	 * @param threads the number of puzzles solved at once, when virtual
+	 *                threads aren't available
+	 * @param queueSize the number of puzzles that can wait for a thread,
+	 *                  on top of those being solved
+	 */
+	public SolveService(int threads, int queueSize) {
+		if (threads < 1 || queueSize < 0) {
+			throw new IllegalArgumentException(
+				"Invalid size " + threads + " threads, " + queueSize + " queued");
+		}
+		
+		this.executor = createExecutor(threads);
+		this.capacity = new Semaphore(threads + queueSize);
+		this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				final Thread thread = new Thread(r, "solve-service-timer");
+				
+				thread.setDaemon(true);
+				
+				return thread;
+			}
+		});
+		
+		timer.setRemoveOnCancelPolicy(true);
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Submits a puzzle to be solved.
+	 * @param puzzle the puzzle
+	 * @param options which techniques to use and how long to wait
+	 * @return a future that completes with the result once the puzzle has
+	 *         been solved, or as far as it could be. It fails with a {@link
+	 *         TimeoutException} if the deadline passes, or with a {@link
+	 *         RejectedExecutionException} if the service is full or closed.
+	 */
+	public CompletableFuture<SolveResult> solve(PackedGrid puzzle, SolveOptions options) {
+		final Task task = new Task(puzzle, options);
+		
+		if (!capacity.tryAcquire()) {
+			task.completeExceptionally(
+				new RejectedExecutionException("Too many puzzles are waiting"));
+			
+			return task;
+		}
+		
+		try {
+			if (options.getTimeout() > 0) {
+				task.deadline = timer.schedule(new Runnable() {
+					@Override
+					public void run() {
+						task.expire();
+					}
+				}, options.getTimeout(), TimeUnit.NANOSECONDS);
+			}
+			
+			tasks.add(task);
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			task.finish();
+			task.completeExceptionally(e);
+		}
+		
+		return task;
+	}
+	
+	/**
+	 * Stops accepting puzzles and cancels the ones that are being solved or
+	 * waiting.
+	 */
+	@Override
+	public void close() {
+		executor.shutdownNow();
+		timer.shutdownNow();
+		
+		for (Task task : tasks) {
+			task.cancel(false);
+		}
+	}
+	
+	/**
+	 * Creates an executor that starts a virtual thread for each task if the
+	 * JVM supports them, and otherwise a fixed pool of threads. Virtual
+	 * threads are found by reflection so that this still runs on older JVMs.
+	 * @param threads the number of threads in the fixed pool
+	 * @return the executor
+	 */
+	private static ExecutorService createExecutor(int threads) {
+		try {
+			return (ExecutorService) Executors.class
+				.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | UnsupportedOperationException e) {
+			return Executors.newFixedThreadPool(threads);
+		}
+	}
+	
+	// ////////////// //
+	// Inner classes. //
+	// ////////////// //
+	/**
+	 * A puzzle waiting to be solved, which is also the future of its result.
+	 */
+	private class Task extends CompletableFuture<SolveResult>
+	implements Runnable {
+		/** The puzzle */
+		final PackedGrid puzzle;
+		
+		/** Solves the puzzle, and is cancelled if the future is */
+		final Solver solver;
+		
+		/** Expires the task at its deadline, or null if it has none */
+		ScheduledFuture<?> deadline;
+		
+		/**
+		 * Creates a task.
+		 * @param puzzle the puzzle
+		 * @param options which techniques to use
+		 */
+		Task(PackedGrid puzzle, SolveOptions options) {
+			this.puzzle = puzzle;
+			this.solver = new Solver(options.getMode());
+			
+			if (options.getPipeline() != null) {
+				solver.setPipeline(options.getPipeline());
+			}
+		}
+		
+		@Override
+		public void run() {
+			try {
+				// Don't start a puzzle that has already been cancelled
+				if (!isDone()) {
+					final SolveResult result = solver.solveWithMetrics(puzzle);
+					
+					if (!solver.isCancelled()) {
+						complete(result);
+					}
+				}
+			} catch (RuntimeException e) {
+				completeExceptionally(e);
+			} finally {
+				finish();
+			}
+		}
+		
+		/**
+		 * Gives back the task's place in the service and stops waiting for
+		 * its deadline.
+		 */
+		void finish() {
+			tasks.remove(this);
+			capacity.release();
+			
+			if (deadline != null) {
+				deadline.cancel(false);
+			}
+		}
+		
+		/**
+		 * Cancels the solver and fails the future because the deadline has
+		 * passed.
+		 */
+		void expire() {
+			solver.cancel();
+			completeExceptionally(new TimeoutException("The puzzle wasn't solved in time"));
+		}
+		
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			solver.cancel();
+			
+			return super.cancel(mayInterruptIfRunning);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+import uk.ac.aber.cs211.sudoku.model.Grid;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+
+/**
+ * Wraps another solver with a {@link SolutionCache}, so that a puzzle that
+ * has been seen before, even with its rows, columns or numbers rearranged, is
+ * answered from the cache instead of being solved again.
+ * 
+ * <p>Each puzzle is turned into its {@link CanonicalForm}. The form is solved
+ * by the wrapped solver if its solution isn't cached, and the solution is
+ * mapped back to the puzzle's own arrangement. Like the solver it wraps, a
+ * caching solver should only be used by one thread at a time, but its cache
+ * can be shared.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class CachingSolver
+implements PuzzleSolver {
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** Solves the puzzles that aren't in the cache */
+	private final PuzzleSolver solver;
+	
+	/** The solutions of the puzzles solved so far */
+	private final SolutionCache cache;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a caching solver.
+	 * @param solver the solver used for puzzles that aren't in the cache
+	 * @param cache the cache, which may be shared with other caching solvers
+	 *              that wrap the same kind of solver
+	 */
+	public CachingSolver(PuzzleSolver solver, SolutionCache cache) {
+		this.solver = solver;
+		this.cache = cache;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	@Override
+	public boolean solve(Grid grid) {
+		final PackedGrid solution = solve(PackedGrid.fromGrid(grid));
+		
+		grid.setCells(solution);
+		
+		return solution.isComplete();
+	}
+	
+	@Override
+	public PackedGrid solve(PackedGrid puzzle) {
+		final CanonicalForm form = CanonicalForm.of(puzzle);
+		PackedGrid solution = cache.get(form.getGrid());
+		
+		if (solution == null) {
+			solution = solver.solve(form.getGrid());
+			cache.put(form.getGrid(), solution);
+		}
+		
+		return form.toOriginal(solution);
+	}
+}
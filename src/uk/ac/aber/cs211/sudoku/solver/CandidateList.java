@@ -1,7 +1,5 @@
 package uk.ac.aber.cs211.sudoku.solver;
 
-import java.util.LinkedList;
-
 import uk.ac.aber.cs211.sudoku.model.CellValue;
 
 
@@ -9,14 +7,47 @@ import uk.ac.aber.cs211.sudoku.model.CellValue;
  * A list suitable for storing candidates (possible values) that could go in a
  * cell in a sudoku board.
  * 
+ * <p>The candidates are stored as a 9-bit mask, where bit 0 represents the
+ * number one and bit 8 represents the number nine. The static methods in this
+ * class can be used to work with raw masks directly, which is how the
+ * {@link Solver} stores the candidates of every cell without allocating any
+ * objects.
+ * 
  * @author Josh Tumath (jmt14@aber.ac.uk)
  */
 public class CandidateList {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** A mask containing every number from one to nine. */
+	public static final int ALL = 0x1FF;
+	
+	/** All the cell values, indexed by their number. */
+	private static final CellValue[] VALUES = CellValue.values();
+	
 	// /////////////////// //
 	// Instance variables. //
 	// /////////////////// //
-	/** Stores a list of candidates (possible values) for the cell. */
-	private LinkedList<CellValue> candidates = new LinkedList<CellValue>();
+	/** Stores a mask of candidates (possible values) for the cell. */
+	private int mask;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates an empty candidate list.
+	 */
+	public CandidateList() {
+		this(0);
+	}
+	
+	/**
+	 * Creates a candidate list containing the numbers in a mask.
+	 * @param mask a mask of candidates
+	 */
+	public CandidateList(int mask) {
+		this.mask = mask & ALL;
+	}
 	
 	// //////// //
 	// Methods. //
@@ -26,10 +57,12 @@ public class CandidateList {
 	 * @return an array of all the candidates in the list
 	 */
 	public CellValue[] getCandidates() {
-		CellValue[] cells = new CellValue[candidates.size()];
+		CellValue[] cells = new CellValue[size()];
+		int remaining = mask;
 		
 		for (int i = 0; i < cells.length; i++) {
-			cells[i] = candidates.get(i);
+			cells[i] = toCellValue(lowestValue(remaining));
+			remaining &= remaining - 1;
 		}
 		
 		return cells;
@@ -40,7 +73,7 @@ public class CandidateList {
 	 * @return the first candidate in the list
 	 */
 	public CellValue getFirstCandidate() {
-		return candidates.getFirst();
+		return toCellValue(lowestValue(mask));
 	}
 	
 	/**
@@ -48,7 +81,7 @@ public class CandidateList {
 	 * @param cell the number to be added to the list
 	 */
 	public void add(CellValue cell) {
-		candidates.add(cell);
+		mask |= bitFor(cell);
 	}
 	
 	/**
@@ -56,7 +89,7 @@ public class CandidateList {
 	 * @param cell the number to be removed from the list
 	 */
 	public void remove(CellValue cell) {
-		candidates.remove(cell);
+		mask &= ~bitFor(cell);
 	}
 	
 	/**
@@ -64,7 +97,7 @@ public class CandidateList {
 	 * @return the number of candidates in the list
 	 */
 	public int size() {
-		return candidates.size();
+		return Integer.bitCount(mask);
 	}
 	
 	/**
@@ -73,6 +106,53 @@ public class CandidateList {
 	 * @return true if the number is in the list; otherwise false
 	 */
 	public boolean isCandidateInList(CellValue cell) {
-		return candidates.contains(cell);
+		return (mask & bitFor(cell)) != 0;
+	}
+	
+	/**
+	 * Gets the candidates in the list as a mask.
+	 * @return a mask of the candidates in the list
+	 */
+	public int getMask() {
+		return mask;
+	}
+	
+	// /////////////// //
+	// Static methods. //
+	// /////////////// //
+	/**
+	 * Gets the bit representing a number in a candidate mask.
+	 * @param value a number from one to nine
+	 * @return the bit representing the number
+	 */
+	public static int bitFor(int value) {
+		return 1 << (value - 1);
+	}
+	
+	/**
+	 * Gets the bit representing a cell value in a candidate mask.
+	 * @param cell the cell value
+	 * @return the bit representing the cell value, or 0 if it is empty
+	 */
+	public static int bitFor(CellValue cell) {
+		return cell == CellValue.EMPTY ? 0 : bitFor(cell.ordinal());
+	}
+	
+	/**
+	 * Gets the smallest number in a candidate mask.
+	 * @param mask a non-empty candidate mask
+	 * @return a number from one to nine
+	 */
+	public static int lowestValue(int mask) {
+		return Integer.numberOfTrailingZeros(mask) + 1;
+	}
+	
+	/**
+	 * Converts a number into the cell value representing it.
+	 * @param value a number from zero (empty) to nine
+	 * @return the cell value
+	 */
+	public static CellValue toCellValue(int value) {
+		return VALUES[value];
 	}
 }
@@ -0,0 +1,357 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+
+/**
+ * A puzzle rearranged into a standard form, along with the rearrangement, so
+ * that puzzles which are the same apart from their layout or numbering share
+ * the same form and a solution to the form can be mapped back to each of
+ * them.
+ * 
+ * <p>The rearrangements used are the ones that keep a solved grid valid:
+ * transposing the grid, reordering the bands (rows of sub-grids) and stacks
+ * (columns of sub-grids), reordering the rows within a band and the columns
+ * within a stack, and relabelling the numbers.
+ * 
+ * <p>Finding the smallest form over every rearrangement is too slow to do for
+ * each puzzle, so the bands, stacks, rows and columns are first sorted by how
+ * many clues they have and how those clues are spread, which doesn't depend
+ * on the layout. Only the orders that tie are tried, and if there are too
+ * many of those, the first is used. Some rearrangements of a puzzle with a
+ * lot of ties may then have different forms, which makes a cache miss more
+ * likely but never gives a wrong solution, because each form keeps the exact
+ * rearrangement that produced it.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public final class CanonicalForm {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** Every order of three things. */
+	private static final int[][] PERMUTATIONS = {
+		{0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}
+	};
+	
+	/** The most orders that are tried for each orientation of the grid. */
+	private static final int MAX_ORDERS = 64;
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The rearranged puzzle */
+	private final PackedGrid grid;
+	
+	/** Whether the puzzle was transposed before its rows and columns were reordered */
+	private final boolean transposed;
+	
+	/** The row of the (possibly transposed) puzzle that each row of the form came from */
+	private final int[] rows;
+	
+	/** The column of the (possibly transposed) puzzle that each column of the form came from */
+	private final int[] columns;
+	
+	/** The number in the form that each number of the puzzle was relabelled to */
+	private final byte[] digits;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a canonical form from the best rearrangement found.
+	 * @param search the search that found the rearrangement
+	 */
+	private CanonicalForm(Search search) {
+		this.grid = PackedGrid.of(search.best);
+		this.transposed = search.bestTransposed;
+		this.rows = search.bestRows;
+		this.columns = search.bestColumns;
+		this.digits = search.bestDigits;
+		
+		// Numbers that aren't in the puzzle take the labels left over, so
+		// that a solution can be mapped back
+		final boolean[] used = new boolean[10];
+		
+		for (int value = 1; value <= 9; value++) {
+			used[digits[value]] = digits[value] != 0;
+		}
+		
+		int next = 1;
+		
+		for (int value = 1; value <= 9; value++) {
+			if (digits[value] == 0) {
+				while (used[next]) {
+					next++;
+				}
+				
+				digits[value] = (byte) next++;
+			}
+		}
+	}
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Gets the rearranged puzzle, which is the same for every rearrangement of
+	 * the puzzle unless it has too many ties to try them all.
+	 * @return the canonical grid
+	 */
+	public PackedGrid getGrid() {
+		return grid;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Finds the canonical form of a puzzle.
+	 * @param puzzle the puzzle
+	 * @return the canonical form and the rearrangement that produced it
+	 */
+	public static CanonicalForm of(PackedGrid puzzle) {
+		final byte[] cells = new byte[81];
+		final byte[] transposedCells = new byte[81];
+		final Search search = new Search();
+		
+		puzzle.copyTo(cells);
+		
+		for (int cell = 0; cell < 81; cell++) {
+			transposedCells[cell % 9 * 9 + cell / 9] = cells[cell];
+		}
+		
+		search.searchOrientation(cells, false);
+		search.searchOrientation(transposedCells, true);
+		
+		return new CanonicalForm(search);
+	}
+	
+	/**
+	 * Maps a grid in the same arrangement as the canonical form, such as its
+	 * solution, back to the arrangement of the original puzzle.
+	 * @param canonical a grid arranged like the canonical form
+	 * @return the grid arranged like the original puzzle
+	 */
+	public PackedGrid toOriginal(PackedGrid canonical) {
+		final byte[] labels = new byte[10];
+		final byte[] cells = new byte[81];
+		
+		for (int value = 1; value <= 9; value++) {
+			labels[digits[value]] = (byte) value;
+		}
+		
+		for (int r = 0; r < 9; r++) {
+			for (int c = 0; c < 9; c++) {
+				final int cell = transposed ? columns[c] * 9 + rows[r] : rows[r] * 9 + columns[c];
+				
+				cells[cell] = labels[canonical.get(r * 9 + c)];
+			}
+		}
+		
+		return PackedGrid.of(cells);
+	}
+	
+	/**
+	 * Gets a key for a row (or column) that doesn't change when the columns
+	 * (or rows) are reordered: the number of clues in it, followed by the
+	 * number of clues in each of its three parts from most to least.
+	 * @param cells the grid
+	 * @param row the row
+	 * @return the key, which is less than 2<sup>16</sup>
+	 */
+	private static long lineKey(byte[] cells, int row) {
+		final int[] parts = new int[3];
+		
+		for (int x = 0; x < 9; x++) {
+			if (cells[row * 9 + x] != 0) {
+				parts[x / 3]++;
+			}
+		}
+		
+		return sortedKey(parts[0], parts[1], parts[2], 4)
+			| (long) (parts[0] + parts[1] + parts[2]) << 12;
+	}
+	
+	/**
+	 * Combines three numbers into one key, from largest to smallest, so the
+	 * key doesn't depend on their order.
+	 * @param a the first number
+	 * @param b the second number
+	 * @param c the third number
+	 * @param bits the number of bits used by each number
+	 * @return the key
+	 */
+	private static long sortedKey(long a, long b, long c, int bits) {
+		final long high = Math.max(a, Math.max(b, c));
+		final long low = Math.min(a, Math.min(b, c));
+		
+		return high << (2 * bits) | (a + b + c - high - low) << bits | low;
+	}
+	
+	/**
+	 * Finds the orders of three things that sort their keys from largest to
+	 * smallest. There is more than one if some of the keys are equal.
+	 * @param a the key of the first thing
+	 * @param b the key of the second thing
+	 * @param c the key of the third thing
+	 * @return the orders that sort the keys
+	 */
+	private static int[][] sortingOrders(long a, long b, long c) {
+		final long[] keys = {a, b, c};
+		final int[][] orders = new int[6][];
+		int count = 0;
+		
+		for (int[] order : PERMUTATIONS) {
+			if (keys[order[0]] >= keys[order[1]] && keys[order[1]] >= keys[order[2]]) {
+				orders[count++] = order;
+			}
+		}
+		
+		final int[][] result = new int[count][];
+		
+		System.arraycopy(orders, 0, result, 0, count);
+		
+		return result;
+	}
+	
+	// ////////////// //
+	// Inner classes. //
+	// ////////////// //
+	/**
+	 * Tries the rearrangements of a puzzle and keeps the smallest.
+	 */
+	private static class Search {
+		/** The smallest rearrangement found so far */
+		byte[] best;
+		
+		/** Whether the smallest rearrangement was transposed */
+		boolean bestTransposed;
+		
+		/** The rows of the smallest rearrangement */
+		int[] bestRows;
+		
+		/** The columns of the smallest rearrangement */
+		int[] bestColumns;
+		
+		/** The relabelling of the smallest rearrangement */
+		byte[] bestDigits;
+		
+		/**
+		 * Tries the rearrangements of one orientation of the puzzle.
+		 * @param cells the puzzle, which may have been transposed
+		 * @param transposed whether the puzzle has been transposed
+		 */
+		void searchOrientation(byte[] cells, boolean transposed) {
+			final byte[] flipped = new byte[81];
+			final long[] rowKeys = new long[9];
+			final long[] columnKeys = new long[9];
+			
+			for (int cell = 0; cell < 81; cell++) {
+				flipped[cell % 9 * 9 + cell / 9] = cells[cell];
+			}
+			
+			for (int i = 0; i < 9; i++) {
+				rowKeys[i] = lineKey(cells, i);
+				columnKeys[i] = lineKey(flipped, i);
+			}
+			
+			// The orders to try for the bands, the rows in each band, the
+			// stacks and the columns in each stack
+			final int[][][] choices = new int[8][][];
+			int total = 1;
+			
+			choices[0] = sortingOrders(bandKey(rowKeys, 0), bandKey(rowKeys, 1), bandKey(rowKeys, 2));
+			choices[4] = sortingOrders(
+				bandKey(columnKeys, 0), bandKey(columnKeys, 1), bandKey(columnKeys, 2));
+			
+			for (int i = 0; i < 3; i++) {
+				choices[1 + i] = sortingOrders(rowKeys[i * 3], rowKeys[i * 3 + 1], rowKeys[i * 3 + 2]);
+				choices[5 + i] = sortingOrders(
+					columnKeys[i * 3], columnKeys[i * 3 + 1], columnKeys[i * 3 + 2]);
+			}
+			
+			for (int[][] choice : choices) {
+				total *= choice.length;
+			}
+			
+			// With too many ties, settle for the first order of each
+			final int[] picked = new int[8];
+			final int orders = total <= MAX_ORDERS ? total : 1;
+			
+			for (int n = 0; n < orders; n++) {
+				int remaining = n;
+				
+				for (int i = 0; i < 8; i++) {
+					picked[i] = remaining % choices[i].length;
+					remaining /= choices[i].length;
+				}
+				
+				final int[] rows = new int[9];
+				final int[] columns = new int[9];
+				
+				for (int i = 0; i < 9; i++) {
+					final int band = choices[0][picked[0]][i / 3];
+					final int stack = choices[4][picked[4]][i / 3];
+					
+					rows[i] = band * 3 + choices[1 + band][picked[1 + band]][i % 3];
+					columns[i] = stack * 3 + choices[5 + stack][picked[5 + stack]][i % 3];
+				}
+				
+				consider(cells, transposed, rows, columns);
+			}
+		}
+		
+		/**
+		 * Rearranges the puzzle, relabels its numbers in the order they first
+		 * appear and keeps the result if it is the smallest so far.
+		 * @param cells the puzzle, which may have been transposed
+		 * @param transposed whether the puzzle has been transposed
+		 * @param rows the row of the puzzle to put in each row
+		 * @param columns the column of the puzzle to put in each column
+		 */
+		private void consider(byte[] cells, boolean transposed, int[] rows, int[] columns) {
+			final byte[] form = new byte[81];
+			final byte[] digits = new byte[10];
+			byte next = 1;
+			int comparison = best == null ? -1 : 0;
+			
+			for (int i = 0; i < 81; i++) {
+				final int value = cells[rows[i / 9] * 9 + columns[i % 9]];
+				
+				if (value != 0 && digits[value] == 0) {
+					digits[value] = next++;
+				}
+				
+				form[i] = digits[value];
+				
+				if (comparison == 0) {
+					comparison = form[i] - best[i];
+					
+					// Give up as soon as this is larger than the best
+					if (comparison > 0) {
+						return;
+					}
+				}
+			}
+			
+			if (comparison < 0) {
+				best = form;
+				bestTransposed = transposed;
+				bestRows = rows;
+				bestColumns = columns;
+				bestDigits = digits;
+			}
+		}
+		
+		/**
+		 * Gets a key for a band (or stack) that doesn't change when its rows
+		 * (or columns), or the columns (or rows) of the grid, are reordered.
+		 * @param lineKeys the keys of the rows (or columns)
+		 * @param band the band
+		 * @return the key
+		 */
+		private static long bandKey(long[] lineKeys, int band) {
+			return sortedKey(lineKeys[band * 3], lineKeys[band * 3 + 1], lineKeys[band * 3 + 2], 16);
+		}
+	}
+}
@@ -0,0 +1,339 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+import uk.ac.aber.cs211.sudoku.model.Grid;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+
+
+/**
+ * Solves sudoku puzzles as an exact cover problem using Knuth's Algorithm X
+ * with "dancing links".
+ * 
+ * <p>Each of the 729 rows of the matrix represents placing a number in a cell,
+ * and each of the 324 columns represents a constraint that must be satisfied
+ * exactly once: every cell has a number, and every row, column and sub-grid
+ * has each number. Unlike the {@link Solver}, the time taken doesn't depend on
+ * which logical techniques a puzzle needs, so it copes well with puzzles that
+ * need a lot of guessing.
+ * 
+ * <p>The nodes of the matrix are stored in flat arrays rather than as objects.
+ * The matrix is built once and restored after every puzzle, so an instance
+ * can be reused to solve any number of puzzles, but not by more than one
+ * thread at a time.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class DancingLinksSolver
+implements PuzzleSolver {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** The number of constraints (columns) in the matrix. */
+	private static final int COLUMNS = 4 * 81;
+	
+	/** The number of possible placements (rows) in the matrix. */
+	private static final int ROWS = 9 * 81;
+	
+	/** The index of the root node, which links to the uncovered columns. */
+	private static final int ROOT = 0;
+	
+	/** The total number of nodes, including the root and column headers. */
+	private static final int NODES = 1 + COLUMNS + 4 * ROWS;
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The node to the left of each node */
+	private final int[] left = new int[NODES];
+	
+	/** The node to the right of each node */
+	private final int[] right = new int[NODES];
+	
+	/** The node above each node */
+	private final int[] up = new int[NODES];
+	
+	/** The node below each node */
+	private final int[] down = new int[NODES];
+	
+	/** The column header of each node */
+	private final int[] column = new int[NODES];
+	
+	/** The row of the matrix each node is in, as {@code cell * 9 + value - 1} */
+	private final int[] row = new int[NODES];
+	
+	/** The number of nodes left in each column */
+	private final int[] size = new int[1 + COLUMNS];
+	
+	/** The first node of each row of the matrix */
+	private final int[] rowStart = new int[ROWS];
+	
+	/** The node chosen at each depth of the search */
+	private final int[] chosen = new int[81];
+	
+	/** The first node of the row of each of the puzzle's clues */
+	private final int[] clues = new int[81];
+	
+	/** Whether each column has been covered by one of the puzzle's clues */
+	private final boolean[] covered = new boolean[1 + COLUMNS];
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Builds the exact cover matrix for a 9 x 9 sudoku grid.
+	 */
+	public DancingLinksSolver() {
+		// Link the root and the column headers into a circular list
+		for (int c = 0; c <= COLUMNS; c++) {
+			left[c] = c == 0 ? COLUMNS : c - 1;
+			right[c] = c == COLUMNS ? ROOT : c + 1;
+			up[c] = c;
+			down[c] = c;
+			column[c] = c;
+		}
+		
+		int node = COLUMNS + 1;
+		
+		for (int r = 0; r < ROWS; r++) {
+			final int cell = r / 9;
+			final int digit = r % 9;
+			final int x = cell % 9;
+			final int y = cell / 9;
+			final int subGrid = y / 3 * 3 + x / 3;
+			
+			rowStart[r] = node;
+			
+			// Columns 1 to 81 are cells, then 81 columns each for the
+			// numbers in rows, columns and sub-grids.
+			addNode(node, 1 + cell, r);
+			addNode(node + 1, 1 + 81 + y * 9 + digit, r);
+			addNode(node + 2, 1 + 162 + x * 9 + digit, r);
+			addNode(node + 3, 1 + 243 + subGrid * 9 + digit, r);
+			
+			// Link the four nodes of the row into a circular list
+			for (int i = 0; i < 4; i++) {
+				left[node + i] = node + (i + 3) % 4;
+				right[node + i] = node + (i + 1) % 4;
+			}
+			
+			node += 4;
+		}
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	@Override
+	public boolean solve(Grid grid) {
+		final byte[] cells = new byte[81];
+		
+		for (int cell = 0; cell < 81; cell++) {
+			cells[cell] = (byte) grid.getCell(cell % 9, cell / 9).getValue().ordinal();
+		}
+		
+		if (!solve(cells)) {
+			return false;
+		}
+		
+		grid.setCells(PackedGrid.of(cells));
+		
+		return true;
+	}
+	
+	@Override
+	public PackedGrid solve(PackedGrid puzzle) {
+		final byte[] cells = new byte[81];
+		
+		puzzle.copyTo(cells);
+		
+		return solve(cells) ? PackedGrid.of(cells) : puzzle;
+	}
+	
+	/**
+	 * Solves a puzzle stored as an array of numbers.
+	 * @param cells the 81 cells of the puzzle, where 0 is an empty cell. If
+	 *              the puzzle is solved, the empty cells are filled in.
+	 * @return true if the puzzle was solved; otherwise false
+	 */
+	private boolean solve(byte[] cells) {
+		int clueCount = 0;
+		boolean valid = true;
+		
+		// Remove the rows and columns satisfied by the puzzle's clues. If two
+		// clues satisfy the same constraint, the puzzle can't be solved.
+		for (int cell = 0; cell < 81 && valid; cell++) {
+			final int value = cells[cell];
+			
+			if (value != 0) {
+				final int start = rowStart[cell * 9 + value - 1];
+				
+				valid = selectClue(start);
+				
+				if (valid) {
+					clues[clueCount++] = start;
+				}
+			}
+		}
+		
+		final boolean solved = valid && search(0);
+		
+		if (solved) {
+			// The rows chosen by the search are the solution
+			for (int depth = 0; depth < 81 - clueCount; depth++) {
+				final int r = row[chosen[depth]];
+				
+				cells[r / 9] = (byte) (r % 9 + 1);
+			}
+		}
+		
+		// Put the matrix back the way it was for the next puzzle
+		while (clueCount > 0) {
+			deselectClue(clues[--clueCount]);
+		}
+		
+		return solved;
+	}
+	
+	/**
+	 * Adds a node to the bottom of a column.
+	 * @param node the node to add
+	 * @param c the column header
+	 * @param r the row of the matrix the node is in
+	 */
+	private void addNode(final int node, final int c, final int r) {
+		column[node] = c;
+		row[node] = r;
+		
+		up[node] = up[c];
+		down[node] = c;
+		down[up[c]] = node;
+		up[c] = node;
+		
+		size[c]++;
+	}
+	
+	/**
+	 * Searches for a set of rows that covers every remaining column exactly
+	 * once.
+	 * @param depth the number of rows chosen so far
+	 * @return true if a solution was found; otherwise false
+	 */
+	private boolean search(final int depth) {
+		if (right[ROOT] == ROOT) {
+			return true;
+		}
+		
+		// Choose the column with the fewest rows to keep the search small
+		int c = right[ROOT];
+		
+		for (int j = right[c]; j != ROOT; j = right[j]) {
+			if (size[j] < size[c]) {
+				c = j;
+			}
+		}
+		
+		if (size[c] == 0) {
+			return false;
+		}
+		
+		boolean found = false;
+		
+		cover(c);
+		
+		for (int r = down[c]; r != c && !found; r = down[r]) {
+			chosen[depth] = r;
+			
+			for (int j = right[r]; j != r; j = right[j]) {
+				cover(column[j]);
+			}
+			
+			found = search(depth + 1);
+			
+			// The matrix is always restored, even once a solution has been
+			// found, so that it can be used again.
+			for (int j = left[r]; j != r; j = left[j]) {
+				uncover(column[j]);
+			}
+		}
+		
+		uncover(c);
+		
+		return found;
+	}
+	
+	/**
+	 * Removes the columns satisfied by a clue from the matrix.
+	 * @param start the first node of the clue's row
+	 * @return false if one of the columns has already been removed by another
+	 *         clue; otherwise true
+	 */
+	private boolean selectClue(final int start) {
+		int node = start;
+		
+		do {
+			if (covered[column[node]]) {
+				// Undo the columns covered so far
+				for (int j = left[node]; j != left[start]; j = left[j]) {
+					covered[column[j]] = false;
+					uncover(column[j]);
+				}
+				
+				return false;
+			}
+			
+			covered[column[node]] = true;
+			cover(column[node]);
+			node = right[node];
+		} while (node != start);
+		
+		return true;
+	}
+	
+	/**
+	 * Puts back the columns removed by a clue.
+	 * @param start the first node of the clue's row
+	 */
+	private void deselectClue(final int start) {
+		int node = left[start];
+		
+		do {
+			covered[column[node]] = false;
+			uncover(column[node]);
+			node = left[node];
+		} while (node != left[start]);
+	}
+	
+	/**
+	 * Removes a column from the header list, along with every row that has a
+	 * node in it.
+	 * @param c the column header
+	 */
+	private void cover(final int c) {
+		right[left[c]] = right[c];
+		left[right[c]] = left[c];
+		
+		for (int i = down[c]; i != c; i = down[i]) {
+			for (int j = right[i]; j != i; j = right[j]) {
+				down[up[j]] = down[j];
+				up[down[j]] = up[j];
+				size[column[j]]--;
+			}
+		}
+	}
+	
+	/**
+	 * Puts back a column removed by {@link #cover(int)}.
+	 * @param c the column header
+	 */
+	private void uncover(final int c) {
+		for (int i = up[c]; i != c; i = up[i]) {
+			for (int j = left[i]; j != i; j = left[j]) {
+				size[column[j]]++;
+				down[up[j]] = j;
+				up[down[j]] = j;
+			}
+		}
+		
+		right[left[c]] = c;
+		left[right[c]] = c;
+	}
+}
@@ -0,0 +1,51 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+/**
+ * The engines that can be used to solve a puzzle. Each engine can create new
+ * {@link PuzzleSolver} instances, which can be reused for many puzzles but
+ * should only be used by one thread at a time.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public enum Engine {
+	/** The {@link Solver} using only logical techniques. */
+	LOGIC {
+		@Override
+		public PuzzleSolver createSolver() {
+			return new Solver(SolveMode.LOGIC_ONLY);
+		}
+	},
+	
+	/** The {@link Solver} using logical techniques followed by a search. */
+	SEARCH {
+		@Override
+		public PuzzleSolver createSolver() {
+			return new Solver(SolveMode.LOGIC_AND_SEARCH);
+		}
+	},
+	
+	/** The {@link DancingLinksSolver}. */
+	DLX {
+		@Override
+		public PuzzleSolver createSolver() {
+			return new DancingLinksSolver();
+		}
+	},
+	
+	/**
+	 * The {@link LockstepSolver}, which is only faster than the others when
+	 * it is given many puzzles at once.
+	 */
+	LOCKSTEP {
+		@Override
+		public PuzzleSolver createSolver() {
+			return new LockstepSolver();
+		}
+	};
+	
+	/**
+	 * Creates a new solver for this engine.
+	 * @return a new solver
+	 */
+	public abstract PuzzleSolver createSolver();
+}
@@ -0,0 +1,391 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+import uk.ac.aber.cs211.sudoku.model.GeneralGrid;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+
+
+/**
+ * Solves sudoku puzzles of any size supported by {@link GeneralGrid}, such as
+ * 4 x 4, 16 x 16 and 25 x 25 grids.
+ * 
+ * <p>The candidates of each cell are stored as a {@code long} mask, where bit
+ * {@code value - 1} is set if the number {@code value} can go in the cell, so
+ * grids of up to 64 numbers need no more than one word per cell. The solver
+ * fills in naked and hidden singles until it gets stuck and then searches,
+ * guessing the candidates of the cell with the fewest. Each guess works on a
+ * copy of the cells kept for its depth, so backing out of a guess is free.
+ * 
+ * <p>9 x 9 puzzles are handed to a {@link Solver}, which is specialised for
+ * them. A solver is built for one box size and can be reused for any number
+ * of puzzles of that size, but not by more than one thread at a time.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class GeneralSolver {
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The width and height of each sub-grid */
+	private final int boxSize;
+	
+	/** The width and height of the grid */
+	private final int size;
+	
+	/** The number of cells in the grid */
+	private final int cellCount;
+	
+	/** The mask with a bit set for every number */
+	private final long all;
+	
+	/** The cells of each row, column and sub-grid, in that order */
+	private final int[][] units;
+	
+	/** The other cells sharing a unit with each cell */
+	private final int[][] peers;
+	
+	/** Solves 9 x 9 puzzles, or null for any other size */
+	private final Solver nineByNine;
+	
+	/** The number in each cell at each depth of the search */
+	private final byte[][] valueStack;
+	
+	/** The candidates of each cell at each depth of the search */
+	private final long[][] candidateStack;
+	
+	/** The numbers in the cells at the current depth, or 0 if empty */
+	private byte[] values;
+	
+	/**
+	 * The candidates of the cells at the current depth. A filled-in cell only
+	 * has the bit of its own number.
+	 */
+	private long[] candidates;
+	
+	/** The clues of the puzzle being solved */
+	private final byte[] clues;
+	
+	/** Empty cells that have been left with one candidate */
+	private final int[] singles;
+	
+	/** The number of cells in {@link #singles} */
+	private int singleCount;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a solver for puzzles of a box size, building the tables of units
+	 * and peers for that size.
+	 * @param boxSize the width and height of each sub-grid
+	 * @throws IllegalArgumentException if the box size isn't supported by
+	 *                                  {@link GeneralGrid}
+	 */
+	public GeneralSolver(int boxSize) {
+		if (boxSize < GeneralGrid.MIN_BOX_SIZE || boxSize > GeneralGrid.MAX_BOX_SIZE) {
+			throw new IllegalArgumentException("Unsupported box size " + boxSize);
+		}
+		
+		this.boxSize = boxSize;
+		this.size = boxSize * boxSize;
+		this.cellCount = size * size;
+		this.all = size == 64 ? -1L : (1L << size) - 1;
+		this.units = new int[3 * size][size];
+		this.peers = new int[cellCount][];
+		this.nineByNine = boxSize == 3 ? new Solver(SolveMode.LOGIC_AND_SEARCH) : null;
+		this.valueStack = new byte[cellCount + 1][];
+		this.candidateStack = new long[cellCount + 1][];
+		this.clues = new byte[cellCount];
+		this.singles = new int[cellCount];
+		
+		for (int i = 0; i < size; i++) {
+			for (int k = 0; k < size; k++) {
+				units[i][k] = i * size + k;
+				units[size + i][k] = k * size + i;
+				units[2 * size + i][k] = (i / boxSize * boxSize + k / boxSize) * size
+					+ i % boxSize * boxSize + k % boxSize;
+			}
+		}
+		
+		// Each cell's peers are the cells of its three units, without
+		// repeating the cells shared by its row or column and sub-grid
+		final boolean[] isPeer = new boolean[cellCount];
+		final int[] found = new int[3 * size];
+		
+		for (int cell = 0; cell < cellCount; cell++) {
+			final int x = cell % size;
+			final int y = cell / size;
+			final int[][] cellUnits = {
+				units[y], units[size + x], units[2 * size + y / boxSize * boxSize + x / boxSize]
+			};
+			int count = 0;
+			
+			for (int[] unit : cellUnits) {
+				for (int peer : unit) {
+					if (peer != cell && !isPeer[peer]) {
+						isPeer[peer] = true;
+						found[count++] = peer;
+					}
+				}
+			}
+			
+			peers[cell] = new int[count];
+			
+			for (int i = 0; i < count; i++) {
+				peers[cell][i] = found[i];
+				isPeer[found[i]] = false;
+			}
+		}
+	}
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Gets the box size of the puzzles this solver solves.
+	 * @return the width and height of each sub-grid
+	 */
+	public int getBoxSize() {
+		return boxSize;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Solves a puzzle.
+	 * @param puzzle the puzzle to be solved
+	 * @return the solved grid, or the puzzle itself if it has no solution
+	 * @throws IllegalArgumentException if the puzzle's box size isn't the
+	 *                                  solver's
+	 */
+	public GeneralGrid solve(GeneralGrid puzzle) {
+		if (puzzle.getBoxSize() != boxSize) {
+			throw new IllegalArgumentException("Expected a box size of " + boxSize
+				+ " but found " + puzzle.getBoxSize());
+		}
+		
+		if (nineByNine != null) {
+			final PackedGrid solution = nineByNine.solve(puzzle.toPackedGrid());
+			
+			// The solver gives back as much as it found of a puzzle it
+			// couldn't solve
+			return nineByNine.isSolved() ? GeneralGrid.of(solution) : puzzle;
+		}
+		
+		values = stackedValues(0);
+		candidates = stackedCandidates(0);
+		puzzle.copyTo(clues);
+		
+		if (load() && propagate() && search(0)) {
+			return GeneralGrid.of(boxSize, values);
+		}
+		
+		return puzzle;
+	}
+	
+	/**
+	 * Places the clues in an empty grid at the current depth, working out the
+	 * candidates of every cell.
+	 * @return false if a number appears twice in a unit; otherwise true
+	 */
+	private boolean load() {
+		singleCount = 0;
+		
+		for (int cell = 0; cell < cellCount; cell++) {
+			values[cell] = 0;
+			candidates[cell] = all;
+		}
+		
+		for (int cell = 0; cell < cellCount; cell++) {
+			final int value = clues[cell];
+			
+			if (value != 0) {
+				if (!place(cell, value)) {
+					return false;
+				}
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Repeatedly fills in naked and hidden singles until neither can find
+	 * anything more.
+	 * @return false if the grid turned out to have no solution; otherwise true
+	 */
+	private boolean propagate() {
+		boolean changed = true;
+		
+		while (changed) {
+			while (singleCount > 0) {
+				final int cell = singles[--singleCount];
+				
+				// The cell may have been filled in since it was queued
+				if (values[cell] == 0
+						&& !place(cell, Long.numberOfTrailingZeros(candidates[cell]) + 1)) {
+					return false;
+				}
+			}
+			
+			changed = false;
+			
+			for (int[] unit : units) {
+				// Find the numbers that can only go in one cell of the unit
+				long once = 0;
+				long twice = 0;
+				
+				for (int cell : unit) {
+					twice |= once & candidates[cell];
+					once |= candidates[cell];
+				}
+				
+				if (once != all) {
+					// A number can't go anywhere in the unit
+					return false;
+				}
+				
+				long hidden = once & ~twice;
+				
+				for (int k = 0; k < size && hidden != 0; k++) {
+					final int cell = unit[k];
+					
+					if (values[cell] == 0 && (candidates[cell] & hidden) != 0) {
+						final long bit = candidates[cell] & hidden;
+						
+						// Two hidden singles in the same cell can't both be
+						// placed
+						if (Long.bitCount(bit) > 1
+								|| !place(cell, Long.numberOfTrailingZeros(bit) + 1)) {
+							return false;
+						}
+						
+						hidden &= ~bit;
+						changed = true;
+					}
+				}
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Guesses each candidate of the empty cell with the fewest candidates in
+	 * turn on a copy of the cells, propagates the consequences and recurses.
+	 * @param depth the number of guesses made so far
+	 * @return true if a solution was found, which is left in {@link #values};
+	 *         otherwise false
+	 */
+	private boolean search(int depth) {
+		int cell = -1;
+		int fewest = Integer.MAX_VALUE;
+		
+		for (int i = 0; i < cellCount; i++) {
+			if (values[i] == 0) {
+				final int count = Long.bitCount(candidates[i]);
+				
+				if (count < fewest) {
+					cell = i;
+					fewest = count;
+				}
+			}
+		}
+		
+		// If there are no empty cells left, the grid has been solved
+		if (cell < 0) {
+			return true;
+		}
+		
+		final byte[] parentValues = values;
+		final long[] parentCandidates = candidates;
+		long remaining = candidates[cell];
+		
+		while (remaining != 0) {
+			final long bit = remaining & -remaining;
+			
+			remaining &= remaining - 1;
+			
+			values = stackedValues(depth + 1);
+			candidates = stackedCandidates(depth + 1);
+			System.arraycopy(parentValues, 0, values, 0, cellCount);
+			System.arraycopy(parentCandidates, 0, candidates, 0, cellCount);
+			singleCount = 0;
+			
+			if (place(cell, Long.numberOfTrailingZeros(bit) + 1) && propagate()
+					&& search(depth + 1)) {
+				return true;
+			}
+		}
+		
+		values = parentValues;
+		candidates = parentCandidates;
+		
+		return false;
+	}
+	
+	/**
+	 * Puts a number in an empty cell and removes it from the candidates of
+	 * the cell's peers, queueing any peer left with one candidate.
+	 * @param cell the index of the cell
+	 * @param value the number, which must be one of the cell's candidates
+	 * @return false if a peer already has the number or is left with no
+	 *         candidates; otherwise true
+	 */
+	private boolean place(int cell, int value) {
+		final long bit = 1L << (value - 1);
+		
+		if ((candidates[cell] & bit) == 0) {
+			return false;
+		}
+		
+		values[cell] = (byte) value;
+		candidates[cell] = bit;
+		
+		for (int peer : peers[cell]) {
+			final long remaining = candidates[peer];
+			
+			if ((remaining & bit) != 0) {
+				if (values[peer] != 0 || remaining == bit) {
+					return false;
+				}
+				
+				candidates[peer] = remaining & ~bit;
+				
+				if (Long.bitCount(remaining) == 2) {
+					singles[singleCount++] = peer;
+				}
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Gets the array of values for a depth of the search, creating it the
+	 * first time the depth is reached.
+	 * @param depth the depth
+	 * @return the values at that depth
+	 */
+	private byte[] stackedValues(int depth) {
+		if (valueStack[depth] == null) {
+			valueStack[depth] = new byte[cellCount];
+		}
+		
+		return valueStack[depth];
+	}
+	
+	/**
+	 * Gets the array of candidates for a depth of the search, creating it the
+	 * first time the depth is reached.
+	 * @param depth the depth
+	 * @return the candidates at that depth
+	 */
+	private long[] stackedCandidates(int depth) {
+		if (candidateStack[depth] == null) {
+			candidateStack[depth] = new long[cellCount];
+		}
+		
+		return candidateStack[depth];
+	}
+}
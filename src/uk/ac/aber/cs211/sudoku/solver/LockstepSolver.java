@@ -0,0 +1,358 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+import uk.ac.aber.cs211.sudoku.model.Grid;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+
+
+/**
+ * Solves many puzzles at once by propagating singles through a group of
+ * puzzles in lockstep, which suits large files of mostly easy puzzles.
+ * 
+ * <p>The candidates are stored as a structure of arrays: the masks of one
+ * cell in every puzzle of the group sit next to each other, indexed by
+ * {@code cell * lanes + lane}. Each step of the propagation is a loop over
+ * the lanes doing the same branch-free bit operations on each, which the JIT
+ * compiler can turn into SIMD instructions. A sweep removes the numbers
+ * placed in each unit from the cells' candidates and fills in the naked and
+ * hidden singles, and sweeps are repeated until none of the puzzles change.
+ * 
+ * <p>Puzzles that singles can't finish are handed to a {@link Solver} one at
+ * a time. Like the other solvers, an instance should only be used by one
+ * thread at a time.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class LockstepSolver
+implements PuzzleSolver {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** The number of puzzles solved together by default. */
+	public static final int DEFAULT_LANES = 64;
+	
+	/** The mask with a bit set for every number. */
+	private static final int ALL = 0x1FF;
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The number of puzzles solved together */
+	private final int lanes;
+	
+	/** The candidates of each cell of each puzzle, indexed by cell then lane */
+	private final int[] candidates;
+	
+	/** The numbers placed in each unit of each puzzle, indexed by unit then lane */
+	private final int[] placed;
+	
+	/** The numbers that can go in at least one cell of a unit, for each lane */
+	private final int[] once;
+	
+	/** The numbers that can go in at least two cells of a unit, for each lane */
+	private final int[] twice;
+	
+	/** Non-zero for each lane that has turned out to have no solution */
+	private final int[] invalid;
+	
+	/** Solves the puzzles that singles can't finish */
+	private final Solver fallback = new Solver(SolveMode.LOGIC_AND_SEARCH);
+	
+	/** Holds one puzzle for the fallback solver */
+	private final byte[] cells = new byte[81];
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a solver that solves {@link #DEFAULT_LANES} puzzles at a time.
+	 */
+	public LockstepSolver() {
+		this(DEFAULT_LANES);
+	}
+	
+	/**
+	 * Creates a solver.
+	 * @param lanes the number of puzzles solved together
+	 */
+	public LockstepSolver(int lanes) {
+		if (lanes < 1) {
+			throw new IllegalArgumentException("Invalid number of lanes " + lanes);
+		}
+		
+		this.lanes = lanes;
+		this.candidates = new int[81 * lanes];
+		this.placed = new int[27 * lanes];
+		this.once = new int[lanes];
+		this.twice = new int[lanes];
+		this.invalid = new int[lanes];
+	}
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Gets the number of puzzles solved together.
+	 * @return the number of lanes
+	 */
+	public int getLanes() {
+		return lanes;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	@Override
+	public boolean solve(Grid grid) {
+		final PackedGrid solution = solve(PackedGrid.fromGrid(grid));
+		
+		grid.setCells(solution);
+		
+		return solution.isComplete();
+	}
+	
+	@Override
+	public PackedGrid solve(PackedGrid puzzle) {
+		return solve(new PackedGrid[] { puzzle })[0];
+	}
+	
+	/**
+	 * Solves an array of puzzles.
+	 * @param puzzles the puzzles to be solved
+	 * @return each puzzle with as many cells filled in as could be solved, in
+	 *         the same order
+	 */
+	public PackedGrid[] solve(PackedGrid[] puzzles) {
+		final byte[] all = new byte[puzzles.length * 81];
+		final PackedGrid[] solutions = new PackedGrid[puzzles.length];
+		
+		for (int i = 0; i < puzzles.length; i++) {
+			puzzles[i].copyTo(cells);
+			System.arraycopy(cells, 0, all, i * 81, 81);
+		}
+		
+		solve(all, 0, puzzles.length);
+		
+		for (int i = 0; i < puzzles.length; i++) {
+			System.arraycopy(all, i * 81, cells, 0, 81);
+			solutions[i] = PackedGrid.of(cells);
+		}
+		
+		return solutions;
+	}
+	
+	/**
+	 * Solves puzzles stored one after another in an array of numbers.
+	 * @param puzzles the puzzles, each 81 cells where 0 is an empty cell. The
+	 *                empty cells of each puzzle that is solved are filled in.
+	 * @param offset the index of the first cell of the first puzzle
+	 * @param count the number of puzzles
+	 */
+	public void solve(byte[] puzzles, int offset, int count) {
+		solve(puzzles, offset, count, null);
+	}
+	
+	/**
+	 * Solves puzzles stored one after another in an array of numbers, and
+	 * records which of them were solved. A puzzle that is given with every
+	 * cell filled in but with two cells that clash isn't solved.
+	 * @param puzzles the puzzles, each 81 cells where 0 is an empty cell. The
+	 *                empty cells of each puzzle that is solved are filled in.
+	 * @param offset the index of the first cell of the first puzzle
+	 * @param count the number of puzzles
+	 * @param solved an array that is set to whether each puzzle was solved,
+	 *               from index 0, or null if it isn't needed
+	 */
+	public void solve(byte[] puzzles, int offset, int count, boolean[] solved) {
+		for (int start = 0; start < count; start += lanes) {
+			solveGroup(puzzles, offset + start * 81, Math.min(lanes, count - start),
+				solved, start);
+		}
+	}
+	
+	/**
+	 * Solves a group of no more than {@link #lanes} puzzles.
+	 * @param puzzles the puzzles, each 81 cells where 0 is an empty cell
+	 * @param offset the index of the first cell of the first puzzle
+	 * @param count the number of puzzles
+	 * @param results the array to record whether each puzzle was solved in,
+	 *                or null
+	 * @param index the index in the results of the first puzzle
+	 */
+	private void solveGroup(byte[] puzzles, int offset, int count, boolean[] results,
+			int index) {
+		load(puzzles, offset, count);
+		propagate();
+		
+		for (int lane = 0; lane < count; lane++) {
+			final int start = offset + lane * 81;
+			
+			if (invalid[lane] != 0) {
+				// The puzzle has no solution, so it is left as it was
+				if (results != null) {
+					results[index + lane] = false;
+				}
+				
+				continue;
+			}
+			
+			boolean solved = true;
+			
+			for (int cell = 0; cell < 81 && solved; cell++) {
+				solved = Integer.bitCount(candidates[cell * lanes + lane]) == 1;
+			}
+			
+			if (solved) {
+				for (int cell = 0; cell < 81; cell++) {
+					puzzles[start + cell] = (byte) CandidateList.lowestValue(
+						candidates[cell * lanes + lane]);
+				}
+			} else {
+				System.arraycopy(puzzles, start, cells, 0, 81);
+				fallback.solve(PackedGrid.of(cells)).copyTo(cells);
+				System.arraycopy(cells, 0, puzzles, start, 81);
+				solved = fallback.isSolved();
+			}
+			
+			if (results != null) {
+				results[index + lane] = solved;
+			}
+		}
+	}
+	
+	/**
+	 * Sets the candidates of each lane from its puzzle. Lanes without a
+	 * puzzle are given an empty grid, which never changes.
+	 * @param puzzles the puzzles, each 81 cells where 0 is an empty cell
+	 * @param offset the index of the first cell of the first puzzle
+	 * @param count the number of puzzles
+	 */
+	private void load(byte[] puzzles, int offset, int count) {
+		for (int lane = 0; lane < lanes; lane++) {
+			final int start = offset + lane * 81;
+			
+			invalid[lane] = 0;
+			
+			for (int cell = 0; cell < 81; cell++) {
+				final int value = lane < count ? puzzles[start + cell] : 0;
+				
+				candidates[cell * lanes + lane] = value == 0 ? ALL : CandidateList.bitFor(value);
+			}
+		}
+	}
+	
+	/**
+	 * Sweeps the whole group until no puzzle changes.
+	 */
+	private void propagate() {
+		while (sweep()) {
+			// Keep going until nothing changes
+		}
+	}
+	
+	/**
+	 * Removes the numbers placed in each unit from the candidates of the other
+	 * cells, then fills in the numbers that can only go in one cell of a unit.
+	 * A cell with one candidate left counts as placed, so naked singles are
+	 * filled in by the next sweep.
+	 * @return true if any puzzle changed; otherwise false
+	 */
+	private boolean sweep() {
+		final int[] candidates = this.candidates;
+		final int[] placed = this.placed;
+		final int[] invalid = this.invalid;
+		final int lanes = this.lanes;
+		int changed = 0;
+		
+		// Gather the numbers placed in each unit, noting any placed twice
+		for (int u = 0; u < 27; u++) {
+			final int base = u * lanes;
+			
+			for (int lane = 0; lane < lanes; lane++) {
+				placed[base + lane] = 0;
+			}
+			
+			for (int k = 0; k < 9; k++) {
+				final int cellBase = Units.UNITS[u * 9 + k] * lanes;
+				
+				for (int lane = 0; lane < lanes; lane++) {
+					final int c = candidates[cellBase + lane];
+					final int single = c & ~nonZero(c & (c - 1));
+					
+					invalid[lane] |= placed[base + lane] & single;
+					placed[base + lane] |= single;
+				}
+			}
+		}
+		
+		// Remove them from the cells that haven't been filled in
+		for (int cell = 0; cell < 81; cell++) {
+			final int cellBase = cell * lanes;
+			final int row = Units.CELL_UNITS[cell * 3] * lanes;
+			final int col = Units.CELL_UNITS[cell * 3 + 1] * lanes;
+			final int box = Units.CELL_UNITS[cell * 3 + 2] * lanes;
+			
+			for (int lane = 0; lane < lanes; lane++) {
+				final int c = candidates[cellBase + lane];
+				final int isSingle = ~nonZero(c & (c - 1));
+				final int next = c & (isSingle | ~(placed[row + lane] | placed[col + lane]
+					| placed[box + lane]));
+				
+				invalid[lane] |= ~nonZero(next);
+				changed |= next ^ c;
+				candidates[cellBase + lane] = next;
+			}
+		}
+		
+		// Fill in the hidden singles of each unit
+		for (int u = 0; u < 27; u++) {
+			final int unit = u * 9;
+			
+			for (int lane = 0; lane < lanes; lane++) {
+				once[lane] = 0;
+				twice[lane] = 0;
+			}
+			
+			for (int k = 0; k < 9; k++) {
+				final int cellBase = Units.UNITS[unit + k] * lanes;
+				
+				for (int lane = 0; lane < lanes; lane++) {
+					final int c = candidates[cellBase + lane];
+					
+					twice[lane] |= once[lane] & c;
+					once[lane] |= c;
+				}
+			}
+			
+			for (int lane = 0; lane < lanes; lane++) {
+				// A number that can't go anywhere in the unit means there's
+				// no solution
+				invalid[lane] |= once[lane] ^ ALL;
+				once[lane] &= ~twice[lane];
+			}
+			
+			for (int k = 0; k < 9; k++) {
+				final int cellBase = Units.UNITS[unit + k] * lanes;
+				
+				for (int lane = 0; lane < lanes; lane++) {
+					final int c = candidates[cellBase + lane];
+					final int hidden = c & once[lane];
+					final int next = hidden | c & ~nonZero(hidden);
+					
+					changed |= next ^ c;
+					candidates[cellBase + lane] = next;
+				}
+			}
+		}
+		
+		return changed != 0;
+	}
+	
+	/**
+	 * Turns a number into a mask without branching.
+	 * @param x the number
+	 * @return -1 (all bits set) if the number isn't zero; otherwise 0
+	 */
+	private static int nonZero(int x) {
+		return (x | -x) >> 31;
+	}
+}
@@ -0,0 +1,249 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import uk.ac.aber.cs211.sudoku.model.Grid;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+
+/**
+ * Solves a single puzzle on many cores by splitting the top of the
+ * {@link Solver}'s search into {@link ForkJoinPool} tasks. Each task
+ * propagates its part of the grid, then either forks a task for each
+ * candidate of the cell with the fewest candidates, or searches the rest of
+ * its branch on its own. Idle threads steal the tasks that haven't started.
+ * 
+ * <p>All the tasks share a flag that stops them once enough solutions have
+ * been found: one when solving, or two when checking that a puzzle has only
+ * one solution.
+ * 
+ * <p>Unlike the other solvers, a parallel solver can be used by many threads
+ * at once.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class ParallelSolver
+implements PuzzleSolver {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/**
+	 * The deepest level of the search that is split into tasks. Beyond this,
+	 * a branch is almost always quicker to search than to split.
+	 */
+	private static final int MAX_SPLIT_DEPTH = 8;
+	
+	/**
+	 * A branch is only split while the current thread has fewer than this
+	 * many tasks waiting to be stolen, so the number of tasks grows with the
+	 * number of idle threads rather than the size of the search.
+	 */
+	private static final int MAX_SURPLUS_TASKS = 3;
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The pool the tasks are run in */
+	private final ForkJoinPool pool;
+	
+	/** A solver for each thread of the pool, reused between tasks */
+	private final ThreadLocal<Solver> solvers = new ThreadLocal<Solver>() {
+		@Override
+		protected Solver initialValue() {
+			return new Solver(SolveMode.LOGIC_AND_SEARCH);
+		}
+	};
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a parallel solver that uses the common pool, which has a thread
+	 * for each core.
+	 */
+	public ParallelSolver() {
+		this(ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Creates a parallel solver.
+	 * @param pool the pool to run the tasks in
+	 */
+	public ParallelSolver(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	@Override
+	public boolean solve(Grid grid) {
+		final PackedGrid solution = solve(PackedGrid.fromGrid(grid));
+		
+		if (!solution.isComplete()) {
+			return false;
+		}
+		
+		grid.setCells(solution);
+		
+		return true;
+	}
+	
+	@Override
+	public PackedGrid solve(PackedGrid puzzle) {
+		final Search search = new Search(1);
+		
+		pool.invoke(new Branch(search, puzzle, 0));
+		
+		final PackedGrid solution = search.solution.get();
+		
+		return solution != null ? solution : puzzle;
+	}
+	
+	/**
+	 * Counts the solutions of a puzzle, stopping once a limit is reached.
+	 * @param puzzle the puzzle
+	 * @param limit the number of solutions to stop counting at
+	 * @return the number of solutions, which is at most the limit
+	 */
+	public int countSolutions(PackedGrid puzzle, int limit) {
+		final Search search = new Search(limit);
+		
+		pool.invoke(new Branch(search, puzzle, 0));
+		
+		return Math.min(search.found.get(), limit);
+	}
+	
+	/**
+	 * Checks whether a puzzle has exactly one solution, stopping as soon as a
+	 * second is found.
+	 * @param puzzle the puzzle
+	 * @return true if the puzzle has one solution; otherwise false
+	 */
+	public boolean hasUniqueSolution(PackedGrid puzzle) {
+		return countSolutions(puzzle, 2) == 1;
+	}
+	
+	// ////////////// //
+	// Inner classes. //
+	// ////////////// //
+	/**
+	 * The state shared by all the tasks searching one puzzle.
+	 */
+	private static class Search {
+		/** The number of solutions to stop at */
+		final int limit;
+		
+		/** The number of solutions found so far */
+		final AtomicInteger found = new AtomicInteger();
+		
+		/** The first solution found */
+		final AtomicReference<PackedGrid> solution = new AtomicReference<PackedGrid>();
+		
+		/** Set once enough solutions have been found, to stop every task */
+		final AtomicBoolean stop = new AtomicBoolean();
+		
+		/**
+		 * Creates the shared state of a search.
+		 * @param limit the number of solutions to stop at
+		 */
+		Search(int limit) {
+			this.limit = limit;
+		}
+		
+		/**
+		 * Records the solutions found by a task, and stops the other tasks if
+		 * there are now enough.
+		 * @param count the number of solutions the task found
+		 * @param cells the first solution the task found
+		 */
+		void addSolutions(int count, byte[] cells) {
+			if (count == 0) {
+				return;
+			}
+			
+			solution.compareAndSet(null, PackedGrid.of(cells));
+			
+			if (found.addAndGet(count) >= limit) {
+				stop.set(true);
+			}
+		}
+	}
+	
+	/**
+	 * A task that searches one branch of the search, starting from a grid
+	 * with some of the guesses already made.
+	 */
+	private class Branch extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		/** The state shared by every task of the search */
+		private final Search search;
+		
+		/** The grid at the start of the branch */
+		private final PackedGrid start;
+		
+		/** The number of guesses made to reach the branch */
+		private final int depth;
+		
+		/**
+		 * Creates a task for a branch of the search.
+		 * @param search the state shared by every task of the search
+		 * @param start the grid at the start of the branch
+		 * @param depth the number of guesses made to reach the branch
+		 */
+		Branch(Search search, PackedGrid start, int depth) {
+			this.search = search;
+			this.start = start;
+			this.depth = depth;
+		}
+		
+		@Override
+		protected void compute() {
+			if (search.stop.get()) {
+				return;
+			}
+			
+			final Solver solver = solvers.get();
+			
+			solver.setStop(search.stop);
+			solver.load(start);
+			
+			if (!solver.propagateLoaded()) {
+				return;
+			}
+			
+			final int cell = solver.findCellWithFewestCandidates();
+			
+			if (cell >= 0 && depth < MAX_SPLIT_DEPTH
+					&& getSurplusQueuedTaskCount() < MAX_SURPLUS_TASKS) {
+				// Split the branch into a task for each candidate of the cell.
+				// The solver is finished with before the tasks start, so they
+				// can reuse it if they run on this thread.
+				final PackedGrid propagated = solver.toPackedGrid();
+				final List<Branch> branches = new ArrayList<Branch>(9);
+				
+				for (int remaining = solver.getCandidates(cell); remaining != 0;
+						remaining &= remaining - 1) {
+					branches.add(new Branch(search,
+						propagated.with(cell, CandidateList.lowestValue(remaining & -remaining)),
+						depth + 1));
+				}
+				
+				invokeAll(branches);
+			} else {
+				final byte[] cells = new byte[81];
+				final int remaining = search.limit - search.found.get();
+				
+				if (remaining > 0) {
+					search.addSolutions(solver.countSolutions(remaining, cells), cells);
+				}
+			}
+		}
+	}
+}
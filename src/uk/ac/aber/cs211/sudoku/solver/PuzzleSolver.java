@@ -0,0 +1,29 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+import uk.ac.aber.cs211.sudoku.model.Grid;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+
+
+/**
+ * A common interface for the engines that can solve a sudoku puzzle, so that
+ * an engine can be picked for each puzzle.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public interface PuzzleSolver {
+	/**
+	 * Attempts to solve a puzzle, filling in the empty cells of the grid.
+	 * @param grid the grid to be solved
+	 * @return true if every cell in the grid was filled in; otherwise false
+	 */
+	boolean solve(Grid grid);
+	
+	/**
+	 * Attempts to solve a puzzle stored as a packed grid, without the cost of
+	 * creating a {@link Grid}.
+	 * @param puzzle the puzzle to be solved
+	 * @return the puzzle with as many cells filled in as could be solved,
+	 *         which is complete if the puzzle was solved
+	 */
+	PackedGrid solve(PackedGrid puzzle);
+}
@@ -0,0 +1,175 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+
+/**
+ * Holds the solutions of recently solved puzzles, keyed by their
+ * {@link CanonicalForm}, for a {@link CachingSolver}. When the cache is full,
+ * the solution that was used least recently is removed.
+ * 
+ * <p>A cache can be shared by the caching solvers of many threads. Lookups
+ * are synchronized, but only take as long as a hash map lookup.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class SolutionCache
+implements SolutionCacheMBean {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** The name the cache is registered under. */
+	public static final String OBJECT_NAME = "uk.ac.aber.cs211.sudoku:type=SolutionCache";
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The most solutions the cache can hold */
+	private final int capacity;
+	
+	/** The solutions, keyed by canonical puzzle, in order of last use */
+	private final Map<PackedGrid, PackedGrid> solutions;
+	
+	/** The number of puzzles whose solution was found */
+	private final LongAdder hits = new LongAdder();
+	
+	/** The number of puzzles whose solution wasn't found */
+	private final LongAdder misses = new LongAdder();
+	
+	/** The number of solutions removed to make room */
+	private final LongAdder evictions = new LongAdder();
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates an empty cache.
+	 * @param capacity the most solutions the cache can hold
+	 * @throws IllegalArgumentException if the capacity isn't positive
+	 */
+	public SolutionCache(final int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		
+		this.capacity = capacity;
+		this.solutions = new LinkedHashMap<PackedGrid, PackedGrid>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<PackedGrid, PackedGrid> eldest) {
+				if (size() > capacity) {
+					evictions.increment();
+					
+					return true;
+				}
+				
+				return false;
+			}
+		};
+	}
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	@Override
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	@Override
+	public int getSize() {
+		synchronized (solutions) {
+			return solutions.size();
+		}
+	}
+	
+	@Override
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	@Override
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	@Override
+	public long getEvictions() {
+		return evictions.sum();
+	}
+	
+	@Override
+	public double getHitRate() {
+		final long hitCount = hits.sum();
+		final long total = hitCount + misses.sum();
+		
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Looks up the solution of a puzzle and counts a hit or a miss.
+	 * @param canonical the canonical form of the puzzle
+	 * @return the solution of the canonical form, or null if it isn't cached
+	 */
+	public PackedGrid get(PackedGrid canonical) {
+		final PackedGrid solution;
+		
+		synchronized (solutions) {
+			solution = solutions.get(canonical);
+		}
+		
+		if (solution != null) {
+			hits.increment();
+		} else {
+			misses.increment();
+		}
+		
+		return solution;
+	}
+	
+	/**
+	 * Adds the solution of a puzzle, removing the least recently used solution
+	 * if the cache is full.
+	 * @param canonical the canonical form of the puzzle
+	 * @param solution the solution of the canonical form
+	 */
+	public void put(PackedGrid canonical, PackedGrid solution) {
+		synchronized (solutions) {
+			solutions.put(canonical, solution);
+		}
+	}
+	
+	@Override
+	public void clear() {
+		synchronized (solutions) {
+			solutions.clear();
+		}
+	}
+	
+	/**
+	 * Registers the cache with the platform MBean server under
+	 * {@link #OBJECT_NAME}, so its statistics can be watched.
+	 * @throws JMException if the cache can't be registered, for example
+	 *                     because another cache already has been
+	 */
+	public void register() throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("Cache:       %d hits, %d misses (%.1f%%), %d evictions",
+			getHits(), getMisses(), getHitRate() * 100, getEvictions());
+	}
+}
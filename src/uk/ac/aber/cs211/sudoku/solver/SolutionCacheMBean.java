@@ -0,0 +1,50 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+/**
+ * The management interface of a {@link SolutionCache}, which shows how well
+ * the cache is working through JMX.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public interface SolutionCacheMBean {
+	/**
+	 * Gets the most solutions the cache can hold.
+	 * @return the capacity of the cache
+	 */
+	int getCapacity();
+	
+	/**
+	 * Gets the number of solutions in the cache.
+	 * @return the size of the cache
+	 */
+	int getSize();
+	
+	/**
+	 * Gets the number of puzzles whose solution was found in the cache.
+	 * @return the number of hits
+	 */
+	long getHits();
+	
+	/**
+	 * Gets the number of puzzles whose solution wasn't in the cache.
+	 * @return the number of misses
+	 */
+	long getMisses();
+	
+	/**
+	 * Gets the number of solutions removed to make room for newer ones.
+	 * @return the number of evictions
+	 */
+	long getEvictions();
+	
+	/**
+	 * Gets the fraction of puzzles whose solution was found in the cache.
+	 * @return the hit rate, from 0 to 1
+	 */
+	double getHitRate();
+	
+	/**
+	 * Removes every solution from the cache. The statistics are kept.
+	 */
+	void clear();
+}
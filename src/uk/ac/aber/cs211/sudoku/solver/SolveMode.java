@@ -0,0 +1,21 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+/**
+ * The ways in which a {@link Solver} can attempt to solve a puzzle.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public enum SolveMode {
+	/**
+	 * Only use logical techniques. The solver stops when none of them can
+	 * place any more numbers, which may leave harder puzzles partly filled.
+	 */
+	LOGIC_ONLY,
+	
+	/**
+	 * Use logical techniques and, once they stall, guess the number in the
+	 * cell with the fewest candidates and backtrack if the guess turns out to
+	 * be wrong. Every valid puzzle will be solved.
+	 */
+	LOGIC_AND_SEARCH
+}
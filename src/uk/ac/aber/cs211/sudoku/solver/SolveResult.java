@@ -0,0 +1,75 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+
+/**
+ * The outcome of solving a puzzle: the grid as far as it was solved, and the
+ * metrics and trace showing how the solver got there.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class SolveResult {
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The puzzle with as many cells filled in as could be solved */
+	private final PackedGrid grid;
+	
+	/** The work done to solve the puzzle */
+	private final SolverMetrics metrics;
+	
+	/** How each cell was filled in */
+	private final SolveTrace trace;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates the result of solving a puzzle.
+	 * @param grid the puzzle with as many cells filled in as could be solved
+	 * @param metrics the work done to solve the puzzle, which must not be
+	 *                changed afterwards
+	 * @param trace how each cell was filled in, which must not be changed
+	 *              afterwards
+	 */
+	public SolveResult(PackedGrid grid, SolverMetrics metrics, SolveTrace trace) {
+		this.grid = grid;
+		this.metrics = metrics;
+		this.trace = trace;
+	}
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Gets the puzzle with as many cells filled in as could be solved.
+	 * @return the grid, which is complete if the puzzle was solved
+	 */
+	public PackedGrid getGrid() {
+		return grid;
+	}
+	
+	/**
+	 * Checks whether the puzzle was solved.
+	 * @return true if every cell was filled in; otherwise false
+	 */
+	public boolean isSolved() {
+		return grid.isComplete();
+	}
+	
+	/**
+	 * Gets the work done to solve the puzzle.
+	 * @return the metrics
+	 */
+	public SolverMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Gets the record of how each cell was filled in.
+	 * @return the trace
+	 */
+	public SolveTrace getTrace() {
+		return trace;
+	}
+}
@@ -0,0 +1,204 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+import java.util.Arrays;
+
+/**
+ * Records how a {@link Solver} filled in each cell of a puzzle: which
+ * {@link Technique} was used, in which round of the logical techniques, and
+ * whether the search was needed. The trace is recorded as the puzzle is
+ * solved, so it costs a couple of array writes per cell.
+ * 
+ * <p>A round is one pass of the logical techniques over the units that have
+ * changed. A cell placed in a later round depended on cells placed in the
+ * earlier ones, so the number of rounds shows how long the chain of
+ * deductions was.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class SolveTrace {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** Marks a cell that was filled in before the solver started. */
+	private static final byte CLUE = -1;
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/**
+	 * The technique that filled in each cell, as its ordinal plus one, or 0
+	 * if the cell hasn't been filled in
+	 */
+	private final byte[] techniques = new byte[81];
+	
+	/** The round each cell was filled in, or 0 for clues and searched cells */
+	private final byte[] rounds = new byte[81];
+	
+	/** The number of times each technique was used */
+	private final int[] counts = new int[Technique.VALUES.length];
+	
+	/** The last round in which a cell was filled in */
+	private int roundCount;
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Gets the technique that filled in a cell.
+	 * @param cell the index of the cell
+	 * @return the technique, or null if the cell was a clue or wasn't filled in
+	 */
+	public Technique getTechnique(int cell) {
+		final int code = techniques[cell];
+		
+		return code > 0 ? Technique.VALUES[code - 1] : null;
+	}
+	
+	/**
+	 * Checks whether a cell was one of the puzzle's clues.
+	 * @param cell the index of the cell
+	 * @return true if the cell was a clue; otherwise false
+	 */
+	public boolean isClue(int cell) {
+		return techniques[cell] == CLUE;
+	}
+	
+	/**
+	 * Gets the round of the logical techniques in which a cell was filled in.
+	 * @param cell the index of the cell
+	 * @return the round, counting from 1, or 0 if the cell was a clue, was
+	 *         filled in by the search or wasn't filled in
+	 */
+	public int getRound(int cell) {
+		return rounds[cell];
+	}
+	
+	/**
+	 * Gets the number of rounds of the logical techniques that filled in at
+	 * least one cell before any searching.
+	 * @return the number of rounds
+	 */
+	public int getRoundCount() {
+		return roundCount;
+	}
+	
+	/**
+	 * Gets the number of times a technique was used. For the techniques that
+	 * only remove candidates, from {@link Technique#NAKED_PAIR} onwards, this
+	 * is the number of candidates removed; for the singles and the search it
+	 * is the number of cells filled in.
+	 * @param technique the technique
+	 * @return the number of uses
+	 */
+	public int getCount(Technique technique) {
+		return counts[technique.ordinal()];
+	}
+	
+	/**
+	 * Checks whether the search had to be used to fill in any cells.
+	 * @return true if the search was needed; otherwise false
+	 */
+	public boolean isSearchUsed() {
+		return counts[Technique.SEARCH.ordinal()] > 0;
+	}
+	
+	/**
+	 * Gets the number of cells that weren't filled in, because the solver
+	 * only used logical techniques or the puzzle has no solution.
+	 * @return the number of empty cells
+	 */
+	public int getUnsolvedCount() {
+		int count = 0;
+		
+		for (int cell = 0; cell < 81; cell++) {
+			if (techniques[cell] == 0) {
+				count++;
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Gets the hardest technique that was used.
+	 * @return the technique, or null if no cells were filled in and no
+	 *         candidates removed
+	 */
+	public Technique getHardestTechnique() {
+		for (int i = counts.length - 1; i >= 0; i--) {
+			if (counts[i] > 0) {
+				return Technique.VALUES[i];
+			}
+		}
+		
+		return null;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Clears the trace for a new puzzle.
+	 * @param values the puzzle, where 0 is an empty cell
+	 */
+	void reset(byte[] values) {
+		for (int cell = 0; cell < 81; cell++) {
+			techniques[cell] = values[cell] != 0 ? CLUE : 0;
+		}
+		
+		Arrays.fill(rounds, (byte) 0);
+		Arrays.fill(counts, 0);
+		roundCount = 0;
+	}
+	
+	/**
+	 * Records a cell being filled in by a logical technique.
+	 * @param cell the index of the cell
+	 * @param technique the technique
+	 * @param round the round of the logical techniques
+	 */
+	void recordPlacement(int cell, Technique technique, int round) {
+		techniques[cell] = (byte) (technique.ordinal() + 1);
+		rounds[cell] = (byte) Math.min(round, Byte.MAX_VALUE);
+		counts[technique.ordinal()]++;
+		roundCount = Math.max(roundCount, round);
+	}
+	
+	/**
+	 * Records candidates being removed by a technique.
+	 * @param technique the technique
+	 * @param count the number of candidates removed
+	 */
+	void recordEliminations(Technique technique, int count) {
+		counts[technique.ordinal()] += count;
+	}
+	
+	/**
+	 * Records every cell that hasn't been filled in yet as filled in by the
+	 * search, once it has found a solution.
+	 */
+	void recordSearch() {
+		for (int cell = 0; cell < 81; cell++) {
+			if (techniques[cell] == 0) {
+				techniques[cell] = (byte) (Technique.SEARCH.ordinal() + 1);
+				counts[Technique.SEARCH.ordinal()]++;
+			}
+		}
+	}
+	
+	/**
+	 * Creates a copy of the trace, which won't change when the solver moves on
+	 * to another puzzle.
+	 * @return the copy
+	 */
+	public SolveTrace copy() {
+		final SolveTrace copy = new SolveTrace();
+		
+		System.arraycopy(techniques, 0, copy.techniques, 0, 81);
+		System.arraycopy(rounds, 0, copy.rounds, 0, 81);
+		System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+		copy.roundCount = roundCount;
+		
+		return copy;
+	}
+}
@@ -1,42 +1,373 @@
 package uk.ac.aber.cs211.sudoku.solver;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import uk.ac.aber.cs211.sudoku.model.CellValue;
 import uk.ac.aber.cs211.sudoku.model.Grid;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
 
 
 /**
- * Contains an algorithm that attempts to solve sudoku puzzles using the
- * techniques called "naked singles", "hidden singles" and "naked pairs".
+ * Contains an algorithm that attempts to solve sudoku puzzles using logical
+ * {@link Technique}s. Cells left with one candidate ("naked singles") are
+ * always filled in first; the other techniques are the stages of a
+ * {@link TechniquePipeline}, which are tried one at a time in order, going
+ * back to naked singles as soon as one of them removes a candidate. If the
+ * solver is in {@link SolveMode#LOGIC_AND_SEARCH} mode, a depth-first search
+ * takes over once every technique has stalled; only the cheap techniques are
+ * used between guesses.
+ * 
+ * <p>The solver keeps its own copy of the grid as flat arrays indexed by
+ * {@code y * 9 + x}. Candidates are stored as bit masks (see
+ * {@link CandidateList}), along with a mask of the numbers already used in
+ * every row, column and sub-grid, so the techniques only need bit operations
+ * and never allocate any objects.
+ * 
+ * <p>A {@link Grid} is only read once, when the puzzle is copied into the
+ * solver, and only written once, when the solver has finished and the cells
+ * it filled in are published in a single batch of changes. Only when a
+ * {@link StepListener} has been set is each number put in the grid as it is
+ * placed, so that the user interface can replay the solution step-by-step.
+ * 
+ * <p>Every change to the candidates is recorded on a trail, so the search can
+ * undo a wrong guess by rolling the trail back rather than copying the grid.
+ * 
+ * <p>The work done on each puzzle is counted in the solver's
+ * {@link SolverMetrics}, and added to the {@link SolverStats} if they have
+ * been registered.
  * 
  * @author Josh Tumath (jmt14@aber.ac.uk)
  */
 public class Solver
-implements Runnable {
+implements Runnable, PuzzleSolver {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** Marks an entry on the trail as a number being placed in a cell. */
+	private static final int PLACEMENT = 1 << 30;
+	
+	/**
+	 * The size of the trail. Every entry removes at least one candidate or
+	 * places one number, so a single path through the search can never have
+	 * more than 81 * 9 + 81 entries.
+	 */
+	private static final int TRAIL_SIZE = 1024;
+	
 	// /////////////////// //
 	// Instance variables. //
 	// /////////////////// //
+	/** The grid the solver solves when it is run */
 	private Grid grid;
 	
-	/** Stores a list of possible values that could go in each empty cell */
-	private CandidateList[][] candidateLists = new CandidateList[9][9];
+	/**
+	 * The grid the puzzle being solved was read from, which the solution is
+	 * published to, or null if the puzzle wasn't read from one
+	 */
+	private Grid target;
+	
+	/** Whether to search for a solution once the logical techniques stall */
+	private final SolveMode mode;
+	
+	/** The number in each cell of the grid, or 0 if the cell is empty */
+	private byte[] values = new byte[81];
+	
+	/** Stores a mask of possible values that could go in each empty cell */
+	private int[] candidates = new int[81];
+	
+	/**
+	 * Stores a mask of the numbers already used in each row, column and
+	 * sub-grid, numbered as in {@link Units}
+	 */
+	private int[] unitMasks = new int[Units.COUNT];
+	
+	/**
+	 * Records the changes made to the candidates and values so they can be
+	 * undone. Each entry is either {@code cell << 9 | oldCandidates} or
+	 * {@code PLACEMENT | cell}.
+	 */
+	private int[] trail = new int[TRAIL_SIZE];
+	
+	/** The number of entries on the trail */
+	private int trailSize;
+	
+	/**
+	 * The number of candidates removed so far, including those a cell loses
+	 * when it is filled in, which is what the stages are measured by
+	 */
+	private long candidatesRemoved;
+	
+	/** The number of cells that haven't been filled in */
+	private int emptyCells;
+	
+	/** Set to true when an empty cell is left without any candidates */
+	private boolean contradiction;
+	
+	/** Set to true while guesses are being made, so the grid isn't updated */
+	private boolean searching;
+	
+	/**
+	 * A mask of the units whose candidates have changed since the stages were
+	 * last run, which are added to {@link #stageUnits} when they next are
+	 */
+	private int dirtyUnits;
+	
+	/**
+	 * The empty cells that have been left with a single candidate since the
+	 * naked singles technique last ran. A cell's candidates only ever shrink
+	 * until a guess is undone, so each cell is added at most once.
+	 */
+	private int[] singles = new int[81];
 	
-	/** Shows whether it's worth re-checking the grid to solve more squares */
-	private boolean morePossibleSolutions;
+	/** The number of cells in {@link #singles} */
+	private int singleCount;
+	
+	/** Told about each number placed in the grid */
+	private StepListener stepListener = StepListener.NONE;
 	
 	/** Set to false when the thread is asked to be stopped */
 	private boolean keepGoing = true;
 	
+	/** Counts the work done on the current puzzle */
+	private final SolverMetrics metrics = new SolverMetrics();
+	
+	/** Records how each cell of the current puzzle was filled in */
+	private final SolveTrace trace = new SolveTrace();
+	
+	/** Set by another thread to stop the search, or null if it can't be */
+	private AtomicBoolean stop;
+	
+	/** Set by another thread to stop the solver for good */
+	private volatile boolean cancelled;
+	
+	/** The number of solutions found by {@link #countSolutions(int, byte[])} */
+	private int solutionsFound;
+	
+	/** The logical techniques used after naked singles */
+	private TechniquePipeline pipeline;
+	
+	/** Every stage of the pipeline, indexed by its position in the pipeline */
+	private TechniqueStage[] stages;
+	
+	/** The positions of the stages used on the current puzzle, in order */
+	private int[] order;
+	
+	/** Whether the stages are timed for an adaptive pipeline */
+	private boolean timing;
+	
+	/**
+	 * The units each stage hasn't looked at since they last changed, indexed
+	 * by position. A technique that found nothing in a unit won't find
+	 * anything there again until the unit changes.
+	 */
+	private int[] stageUnits = new int[0];
+	
+	/** The time spent in each stage since it was last recorded, in nanoseconds */
+	private long[] stageTime = new long[0];
+	
+	/** The candidates removed by each stage since they were last recorded */
+	private long[] stageRemoved = new long[0];
+	
+	/**
+	 * The candidates of the three cells where each row and column crosses
+	 * each sub-grid, in the order the cells appear in the row or column
+	 */
+	private final int[] crossings = new int[18 * 3];
+	
+	/**
+	 * The masks the subset and fish techniques look for combinations of: the
+	 * candidates of each cell of a unit, the cells of a unit each number can
+	 * go in, or the columns (or rows) of each row (or column) a number can go
+	 * in.
+	 */
+	private final int[] subsetMasks = new int[9];
+	
+	/** The indexes of the masks in {@link #subsetMasks} that could be in a set */
+	private final int[] subsetItems = new int[9];
+	
+	/** The number of indexes in {@link #subsetItems} */
+	private int subsetCount;
+	
+	/** The technique {@link #findSubsets()} is looking for */
+	private Technique subsetTechnique;
+	
+	/** The first index into {@link Units#UNITS} of the unit being looked at */
+	private int subsetBase;
+	
+	/**
+	 * The columns each number can go in in each row, then the rows it can go
+	 * in in each column, indexed by {@code number * 18 + line}
+	 */
+	private final int[] fishPositions = new int[9 * 18];
+	
+	/** The number a fish is being looked for, as a candidate bit */
+	private int fishBit;
+	
 	// ///////////// //
 	// Constructors. //
 	// ///////////// //
 	/**
-	 * Creates a new instance of the grid solving system.
+	 * Creates a new instance of the grid solving system that only uses logical
+	 * techniques.
 	 * @param grid the grid to be solved
 	 */
 	public Solver(Grid grid) {
+		this(grid, SolveMode.LOGIC_ONLY);
+	}
+	
+	/**
+	 * Creates a new instance of the grid solving system that can be given
+	 * grids to solve through {@link #solve(Grid)}.
+	 * @param mode whether to search for a solution once the logical
+	 *             techniques stall
+	 */
+	public Solver(SolveMode mode) {
+		this(null, mode);
+	}
+	
+	/**
+	 * Creates a new instance of the grid solving system.
+	 * @param grid the grid to be solved
+	 * @param mode whether to search for a solution once the logical
+	 *             techniques stall
+	 */
+	public Solver(Grid grid, SolveMode mode) {
 		this.grid = grid;
+		this.mode = mode;
+		this.pipeline = mode == SolveMode.LOGIC_ONLY ? TechniquePipeline.ALL : TechniquePipeline.BASIC;
+	}
+	
+	// ////////////////////// //
+	// Read/Write properties. //
+	// ////////////////////// //
+	/**
+	 * Sets a listener to be told about each number placed in the grid. The
+	 * listener can be used to animate or pace the solver, and each number is
+	 * put in the grid as soon as it is placed so that it can be shown. By
+	 * default, the solver runs as fast as it can and the grid is only updated
+	 * once it has finished.
+	 * @param stepListener the listener
+	 */
+	public void setStepListener(StepListener stepListener) {
+		this.stepListener = stepListener;
+	}
+	
+	/**
+	 * Gets the pipeline of logical techniques the solver uses after naked
+	 * singles. By default, a solver that only uses logic uses
+	 * {@link TechniquePipeline#ALL}. A solver that searches uses
+	 * {@link TechniquePipeline#BASIC}, as on most puzzles that need a search,
+	 * a few more guesses are cheaper than trying the harder techniques.
+	 * @return the pipeline
+	 */
+	public TechniquePipeline getPipeline() {
+		return pipeline;
+	}
+	
+	/**
+	 * Sets the pipeline of logical techniques the solver uses after naked
+	 * singles, from the next puzzle on. The same pipeline can be shared by
+	 * any number of solvers, which lets an adaptive pipeline learn from all
+	 * of their puzzles. While searching, only the stages that are
+	 * {@linkplain TechniqueStage#isUsedWhileSearching() used while searching}
+	 * are run between guesses.
+	 * @param pipeline the pipeline
+	 */
+	public void setPipeline(TechniquePipeline pipeline) {
+		if (pipeline == null) {
+			throw new IllegalArgumentException("pipeline can't be null");
+		}
+		
+		this.pipeline = pipeline;
+	}
+	
+	/**
+	 * Gets the logical techniques the solver uses, including naked singles
+	 * and {@link Technique#SEARCH}, which are always turned on.
+	 * @return the techniques
+	 * @see #getPipeline()
+	 */
+	public Set<Technique> getTechniques() {
+		final Set<Technique> set = pipeline.getTechniques();
+		
+		set.add(Technique.NAKED_SINGLE);
+		set.add(Technique.SEARCH);
+		
+		return set;
+	}
+	
+	/**
+	 * Sets the logical techniques the solver uses, which can be turned off to
+	 * make the solver faster on puzzles that don't need them. They are run as
+	 * a fixed pipeline, cheapest first. Naked singles are always used, as
+	 * they are how the solver fills in cells, and {@link Technique#SEARCH} is
+	 * left to the solver's {@link SolveMode}.
+	 * @param techniques the techniques to use
+	 * @see #setPipeline(TechniquePipeline)
+	 */
+	public void setTechniques(Set<Technique> techniques) {
+		final List<Technique> stages = new ArrayList<Technique>();
+		
+		for (Technique technique : Technique.VALUES) {
+			if (techniques.contains(technique) && technique != Technique.NAKED_SINGLE
+					&& technique != Technique.SEARCH) {
+				stages.add(technique);
+			}
+		}
+		
+		setPipeline(TechniquePipeline.of(stages.toArray(new Technique[stages.size()])));
+	}
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Checks whether every cell has been filled in since the solver was last
+	 * run.
+	 * @return true if the grid has been solved; otherwise false
+	 */
+	public boolean isSolved() {
+		if (contradiction) {
+			return false;
+		}
+		
+		for (int cell = 0; cell < 81; cell++) {
+			if (values[cell] == 0) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Checks whether the solver has been cancelled.
+	 * @return true if {@link #cancel()} has been called; otherwise false
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+	
+	/**
+	 * Gets the work done by the solver on the puzzle it last solved. The
+	 * metrics are reset at the start of each puzzle, so use
+	 * {@link SolverMetrics#copy()} to keep them.
+	 * @return the metrics of the last puzzle
+	 */
+	public SolverMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Gets the record of how each cell of the puzzle the solver last solved
+	 * was filled in. Like the metrics, the trace is reset at the start of each
+	 * puzzle, so use {@link SolveTrace#copy()} to keep it.
+	 * @return the trace of the last puzzle
+	 */
+	public SolveTrace getTrace() {
+		return trace;
 	}
 	
 	// //////// //
@@ -48,221 +379,730 @@ implements Runnable {
 	 */
 	@Override
 	public void run() {
-		do {
-			morePossibleSolutions = false;
+		final long start = System.nanoTime();
+		
+		metrics.reset();
+		loadGrid(grid);
+		target = grid;
+		metrics.loadTime = System.nanoTime() - start;
+		solveLoadedGrid();
+		
+		if (!isReplaying()) {
+			grid.setCells(PackedGrid.of(values));
+		}
+	}
+	
+	/**
+	 * Solves a grid with this solver, which can be reused for any number of
+	 * grids.
+	 */
+	@Override
+	public boolean solve(Grid grid) {
+		this.grid = grid;
+		
+		run();
+		
+		return isSolved();
+	}
+	
+	/**
+	 * Solves a packed grid with this solver, without using a {@link Grid}.
+	 * The step listener is still told about each number placed.
+	 */
+	@Override
+	public PackedGrid solve(PackedGrid puzzle) {
+		final long start = System.nanoTime();
+		
+		metrics.reset();
+		load(puzzle);
+		metrics.loadTime = System.nanoTime() - start;
+		solveLoadedGrid();
+		
+		return PackedGrid.of(values);
+	}
+	
+	/**
+	 * Solves a packed grid with this solver and returns the solution along
+	 * with the metrics of the work done to find it.
+	 * @param puzzle the puzzle to be solved
+	 * @return the result, holding the puzzle with as many cells filled in as
+	 *         could be solved and copies of the metrics and trace
+	 */
+	public SolveResult solveWithMetrics(PackedGrid puzzle) {
+		final PackedGrid solution = solve(puzzle);
+		
+		return new SolveResult(solution, metrics.copy(), trace.copy());
+	}
+	
+	/**
+	 * Counts the solutions of a puzzle, stopping once a limit is reached. The
+	 * puzzle is only read, and the step listener isn't told about anything.
+	 * Nothing is allocated, so a solver can be reused to check any number of
+	 * puzzles, such as while generating them.
+	 * @param puzzle the puzzle
+	 * @param limit the number of solutions to stop counting at, such as 2 to
+	 *              check that a puzzle has only one
+	 * @return the number of solutions, from 0 up to the limit
+	 * @throws IllegalArgumentException if the limit is less than 1
+	 */
+	public int countSolutions(PackedGrid puzzle, int limit) {
+		checkLimit(limit);
+		metrics.reset();
+		load(puzzle);
+		
+		return propagateLoaded() ? countSolutions(limit, null) : 0;
+	}
+	
+	/**
+	 * Counts the solutions of a puzzle, stopping once a limit is reached. The
+	 * grid is only read, so it is left as it was.
+	 * @param grid the puzzle
+	 * @param limit the number of solutions to stop counting at, such as 2 to
+	 *              check that a puzzle has only one
+	 * @return the number of solutions, from 0 up to the limit
+	 * @throws IllegalArgumentException if the limit is less than 1
+	 */
+	public int countSolutions(Grid grid, int limit) {
+		checkLimit(limit);
+		metrics.reset();
+		loadGrid(grid);
+		target = null;
+		
+		return propagateLoaded() ? countSolutions(limit, null) : 0;
+	}
+	
+	/**
+	 * Checks whether a puzzle has exactly one solution, stopping as soon as a
+	 * second is found.
+	 * @param puzzle the puzzle
+	 * @return true if the puzzle has one solution; otherwise false
+	 */
+	public boolean hasUniqueSolution(PackedGrid puzzle) {
+		return countSolutions(puzzle, 2) == 1;
+	}
+	
+	/**
+	 * Checks that a limit on the number of solutions to count is valid.
+	 * @param limit the limit
+	 * @throws IllegalArgumentException if the limit is less than 1
+	 */
+	private static void checkLimit(int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("Limit must be at least 1: " + limit);
+		}
+	}
+	
+	/**
+	 * Loads a packed grid into the solver without solving it. This is
+	 * package-private so that the stages of the solver can be benchmarked on
+	 * their own.
+	 * @param puzzle the grid to load
+	 */
+	void load(PackedGrid puzzle) {
+		puzzle.copyTo(values);
+		loadValues();
+		target = null;
+	}
+	
+	/**
+	 * Lists the candidates of the grid that has been loaded into the solver
+	 * and applies the logical techniques, without searching.
+	 * @return false if the grid turned out to have no solution; otherwise true
+	 */
+	boolean propagateLoaded() {
+		if (contradiction) {
+			return false;
+		}
+		
+		// Nothing is shown, as the grid loaded may be part of a search
+		searching = true;
+		listCandidates();
+		
+		final boolean consistent = propagate();
+		
+		searching = false;
+		
+		return consistent;
+	}
+	
+	/**
+	 * Asks the solver to stop from another thread. The solver checks between
+	 * each pass of the logical techniques and each guess of the search, so it
+	 * stops soon after, leaving the puzzle partly solved. A cancelled solver
+	 * stops straight away on any later puzzle, so it shouldn't be reused.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+	
+	/**
+	 * Sets a flag that another thread can set to stop the search early.
+	 * @param stop the flag, or null if the search can't be stopped
+	 */
+	void setStop(AtomicBoolean stop) {
+		this.stop = stop;
+	}
+	
+	/**
+	 * Gets the candidates of a cell of the grid loaded into the solver, for
+	 * use by a {@link TechniqueStage}.
+	 * @param cell the index of the cell, {@code y * 9 + x}
+	 * @return a mask of the cell's candidates (see {@link CandidateList}), or
+	 *         0 if it is filled in
+	 */
+	public int getCandidates(int cell) {
+		return candidates[cell];
+	}
+	
+	/**
+	 * Gets the grid loaded into the solver, as far as it has been solved.
+	 * @return the grid
+	 */
+	PackedGrid toPackedGrid() {
+		return PackedGrid.of(values);
+	}
+	
+	/**
+	 * Searches every branch from the grid loaded into the solver, which must
+	 * already have been propagated, and counts its solutions. The grid is left
+	 * as it was.
+	 * @param limit the number of solutions to stop searching at
+	 * @param solution an array to copy the first solution found into, or
+	 *                 null if it isn't needed
+	 * @return the number of solutions found, which is at most the limit
+	 */
+	int countSolutions(int limit, byte[] solution) {
+		solutionsFound = 0;
+		searching = true;
+		
+		countBranches(limit, solution);
+		
+		searching = false;
+		
+		return solutionsFound;
+	}
+	
+	/**
+	 * Finds the candidates of the grid that has been loaded into the solver
+	 * and solves as much of it as possible.
+	 */
+	private void solveLoadedGrid() {
+		if (!contradiction) {
+			long start = System.nanoTime();
 			
 			listCandidates();
 			
-			checkForNakedPairs();
+			// Only the puzzles solved here are measured, so they are the only
+			// ones that move an adaptive pipeline on to its next puzzle
+			order = pipeline.nextStages();
+			timing = pipeline.isAdaptive();
+			
+			long end = System.nanoTime();
+			
+			metrics.candidateTime = end - start;
+			start = end;
+			
+			final boolean consistent = propagate();
+			
+			end = System.nanoTime();
+			metrics.logicTime = end - start;
+			start = end;
+			
+			if (consistent && mode == SolveMode.LOGIC_AND_SEARCH && keepGoing) {
+				// The guesses are made away from the grid, so the user only
+				// sees the solution once it has been found.
+				searching = true;
+				
+				final boolean found = search();
+				
+				metrics.searchTime = System.nanoTime() - start;
+				
+				if (found) {
+					trace.recordSearch();
+					replaySolution();
+				}
+				
+				searching = false;
+			}
+		}
+		
+		SolverStats.record(metrics, isSolved());
+		
+		if (timing) {
+			timing = false;
+			pipeline.record(stageTime, stageRemoved);
+		}
+	}
+	
+	/**
+	 * Repeatedly applies the logical techniques until none of them can find
+	 * anything more. Naked singles are placed first, then the stages of the
+	 * pipeline are run in order until one of them makes progress, and the
+	 * next pass starts again from naked singles. Each stage only looks at the
+	 * units that have changed since it last ran, so the cost of a pass depends
+	 * on how much the grid changed rather than on the size of the grid.
+	 * @return false if the grid turned out to have no solution; otherwise true
+	 */
+	private boolean propagate() {
+		while (keepGoing && !contradiction && !isStopped()) {
+			metrics.iterations++;
+			
 			checkForNakedSingles();
-			checkForHiddenSingles();
-		} while (morePossibleSolutions && keepGoing);
+			
+			if (contradiction || !applyStage()) {
+				break;
+			}
+		}
+		
+		return !contradiction;
+	}
+	
+	/**
+	 * Runs the stages of the pipeline in order until one of them removes a
+	 * candidate or fills in a cell. While searching, only the stages that are
+	 * cheap enough to use between guesses are run.
+	 * @return true if a stage made progress or found a contradiction;
+	 *         otherwise false
+	 */
+	private boolean applyStage() {
+		final int changed = dirtyUnits;
+		
+		dirtyUnits = 0;
+		
+		if (emptyCells == 0) {
+			return false;
+		}
+		
+		if (changed != 0) {
+			for (int i = 0; i < stageUnits.length; i++) {
+				stageUnits[i] |= changed;
+			}
+		}
+		
+		for (int index : order) {
+			final TechniqueStage stage = stages[index];
+			final int units = stageUnits[index];
+			
+			if (units == 0 || searching && !stage.isUsedWhileSearching()) {
+				continue;
+			}
+			
+			final int mark = trailSize;
+			
+			stageUnits[index] = 0;
+			
+			if (timing) {
+				final long removedBefore = candidatesRemoved;
+				final long start = System.nanoTime();
+				
+				stage.apply(this, units);
+				stageTime[index] += System.nanoTime() - start;
+				stageRemoved[index] += candidatesRemoved - removedBefore;
+			} else {
+				stage.apply(this, units);
+			}
+			
+			if (trailSize != mark || contradiction) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Applies one of the built-in techniques to the grid loaded into the
+	 * solver, on behalf of a stage made by {@link TechniquePipeline#stage}.
+	 * @param technique the technique
+	 * @param units a mask of the units that have changed since the technique
+	 *              was last applied
+	 */
+	void applyTechnique(final Technique technique, final int units) {
+		switch (technique) {
+		case HIDDEN_SINGLE:
+			checkForHiddenSingles(units);
+			break;
+		case NAKED_PAIR:
+			checkForNakedPairs(units);
+			break;
+		case LOCKED_CANDIDATES:
+			checkForLockedCandidates(units);
+			break;
+		case HIDDEN_PAIR:
+		case HIDDEN_TRIPLE:
+		case HIDDEN_QUAD:
+		case NAKED_TRIPLE:
+		case NAKED_QUAD:
+			checkForSubsets(technique, units);
+			break;
+		case X_WING:
+		case SWORDFISH:
+			// A fish can be spread over every row and column
+			checkForFish(technique);
+			break;
+		default:
+			throw new IllegalArgumentException(technique + " isn't a stage");
+		}
+	}
+	
+	/**
+	 * Guesses each candidate of the empty cell with the fewest candidates in
+	 * turn, propagates the consequences and recurses. A guess that leads to a
+	 * contradiction is undone by rolling back the trail.
+	 * 
+	 * <p><strong>Note:</strong> Only use this after using propagate().
+	 * @return true if a solution was found; otherwise false
+	 */
+	private boolean search() {
+		final int cell = findCellWithFewestCandidates();
+		
+		// If there are no empty cells left, the grid has been solved
+		if (cell < 0) {
+			return true;
+		}
+		
+		metrics.searchNodes++;
+		
+		int remaining = candidates[cell];
+		
+		while (remaining != 0 && keepGoing && !isStopped()) {
+			final int bit = remaining & -remaining;
+			final int mark = trailSize;
+			
+			remaining &= remaining - 1;
+			
+			addSolutionToGrid(cell, CandidateList.lowestValue(bit));
+			
+			if (!contradiction && propagate() && search()) {
+				return true;
+			}
+			
+			metrics.backtracks++;
+			undo(mark);
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Like {@link #search()}, but carries on after finding a solution to count
+	 * the solutions, and always undoes every guess.
+	 * @param limit the number of solutions to stop searching at
+	 * @param solution an array to copy the first solution found into, or
+	 *                 null if it isn't needed
+	 */
+	private void countBranches(final int limit, final byte[] solution) {
+		final int cell = findCellWithFewestCandidates();
+		
+		if (cell < 0) {
+			if (solutionsFound++ == 0 && solution != null) {
+				System.arraycopy(values, 0, solution, 0, 81);
+			}
+			
+			return;
+		}
+		
+		metrics.searchNodes++;
+		
+		int remaining = candidates[cell];
+		
+		while (remaining != 0 && solutionsFound < limit && keepGoing && !isStopped()) {
+			final int bit = remaining & -remaining;
+			final int mark = trailSize;
+			final int before = solutionsFound;
+			
+			remaining &= remaining - 1;
+			
+			addSolutionToGrid(cell, CandidateList.lowestValue(bit));
+			
+			if (!contradiction && propagate()) {
+				countBranches(limit, solution);
+			}
+			
+			if (solutionsFound == before) {
+				metrics.backtracks++;
+			}
+			
+			undo(mark);
+		}
 	}
 	
 	/**
-	 * Goes through each cell in the grid to find all possible candidates.
+	 * Checks whether another thread has asked for the solver to stop.
+	 * @return true if the solver should stop; otherwise false
 	 */
-	private void listCandidates() {
-		// Loop through every cell
-		for (int x = 0; x < 9; x++) {
-			for (int y = 0; y < 9; y++) {
-				// We only want to add candidate lists to empty cells
-				if (grid.getCell(x, y).getValue() == CellValue.EMPTY) {
-					candidateLists[x][y] = new CandidateList();
+	private boolean isStopped() {
+		return cancelled || stop != null && stop.get();
+	}
+	
+	/**
+	 * Finds the empty cell with the fewest candidates, which gives the search
+	 * the fewest branches to try.
+	 * @return the index of the cell, or -1 if there are no empty cells
+	 */
+	int findCellWithFewestCandidates() {
+		int best = -1;
+		int bestCount = 10;
+		
+		for (int cell = 0; cell < 81; cell++) {
+			if (values[cell] == 0) {
+				final int count = Integer.bitCount(candidates[cell]);
+				
+				if (count < bestCount) {
+					best = cell;
+					bestCount = count;
 					
-					// Test if each cell value could be used in this empty cell
-					for (CellValue cellValue : CellValue.values()) {
-						if (isRowAvailable(x, y, cellValue)
-								&& isColAvailable(x, y, cellValue)
-								&& isSubGridAvailable(x, y, cellValue)) {
-							candidateLists[x][y].add(cellValue);
-						}
+					// A cell can't have fewer than two candidates after
+					// propagating, so we can stop looking.
+					if (count <= 2) {
+						break;
 					}
 				}
 			}
 		}
+		
+		return best;
+	}
+	
+	/**
+	 * Rolls the trail back, undoing every change made since it was a given
+	 * size.
+	 * @param mark the size of the trail to roll back to
+	 */
+	private void undo(final int mark) {
+		while (trailSize > mark) {
+			final int entry = trail[--trailSize];
+			
+			if ((entry & PLACEMENT) != 0) {
+				final int cell = entry & ~PLACEMENT;
+				final int units = cell * 3;
+				final int bit = CandidateList.bitFor(values[cell]);
+				
+				values[cell] = 0;
+				emptyCells++;
+				unitMasks[Units.CELL_UNITS[units]] &= ~bit;
+				unitMasks[Units.CELL_UNITS[units + 1]] &= ~bit;
+				unitMasks[Units.CELL_UNITS[units + 2]] &= ~bit;
+			} else {
+				candidates[entry >>> 9] = entry & CandidateList.ALL;
+			}
+		}
+		
+		// The grid is back to a state that had already been fully propagated
+		// when the guess was made, so there is nothing left to re-check.
+		contradiction = false;
+		dirtyUnits = 0;
+		singleCount = 0;
 	}
 	
 	/**
-	 * Checks if a number in a cell is equal to another cell in a given row.
-	 * @param thisX the x coordinate of the cell to be checked
-	 * @param y the y coordinate of the cell to be checked
-	 * @param value the number that you want to see if the row could have
-	 * @return true if the row doesn't have the number in it; otherwise false
+	 * Removes candidates from a cell and records the change on the trail. The
+	 * cell's units are marked as changed, and if the cell is left with one
+	 * candidate, it is queued for the naked singles technique.
+	 * @param cell the index of the cell
+	 * @param bits a mask of the candidates to remove
 	 */
-	private boolean isRowAvailable(final int thisX, final int y, final CellValue value) {
-		for (int x = 0; x < 9; x++) {
-			// Test if any cell in this row (excluding the given cell) equals
-			// the given cell value.
-			if (x != thisX && grid.getCell(x, y).getValue() == value) {
-				return false;
+	private void eliminate(final int cell, final int bits) {
+		final int mask = candidates[cell];
+		
+		if ((mask & bits) != 0) {
+			final int remaining = mask & ~bits;
+			
+			trail[trailSize++] = cell << 9 | mask;
+			candidatesRemoved += Integer.bitCount(mask & bits);
+			candidates[cell] = remaining;
+			dirtyUnits |= Units.CELL_UNIT_MASKS[cell];
+			
+			if (values[cell] == 0) {
+				if (remaining == 0) {
+					// An empty cell that can't hold any number means a guess
+					// (or the puzzle itself) was wrong.
+					contradiction = true;
+				} else if ((remaining & remaining - 1) == 0) {
+					singles[singleCount++] = cell;
+				}
 			}
 		}
+	}
+	
+	/**
+	 * Shows the step listener the numbers placed by the search, which are
+	 * kept away from it until a solution has been found. The replay stops as
+	 * soon as the listener or another thread asks for the solver to stop.
+	 */
+	private void replaySolution() {
+		if (!isReplaying()) {
+			return;
+		}
 		
-		return true;
+		for (int y = 0; y < 9; y++) {
+			for (int x = 0; x < 9; x++) {
+				if (!keepGoing || isStopped()) {
+					return;
+				}
+				
+				final int value = values[y * 9 + x];
+				
+				if (target == null || target.getCell(x, y).getValue().ordinal() != value) {
+					showSolution(x, y, value);
+				}
+			}
+		}
 	}
 	
 	/**
-	 * Checks if a number in a cell is equal to another cell in a given column.
-	 * @param x the x coordinate of the cell to be checked
-	 * @param thisY the y coordinate of the cell to be checked
-	 * @param value the number that you want to see if the column could have
-	 * @return true if the column doesn't have the number in it; otherwise false
+	 * Checks whether each number placed should be shown to the step listener
+	 * as soon as it is placed.
+	 * @return true if a step listener has been set; otherwise false
 	 */
-	private boolean isColAvailable(final int x, final int thisY, final CellValue value) {
+	private boolean isReplaying() {
+		return stepListener != StepListener.NONE;
+	}
+	
+	/**
+	 * Copies the values in a grid into the solver.
+	 * @param source the grid to copy
+	 */
+	private void loadGrid(Grid source) {
 		for (int y = 0; y < 9; y++) {
-			// Test if any cell in this column (excluding the given cell) equals
-			// the given cell value.
-			if (y != thisY && grid.getCell(x, y).getValue() == value) {
-				return false;
+			for (int x = 0; x < 9; x++) {
+				values[y * 9 + x] = (byte) source.getCell(x, y).getValue().ordinal();
 			}
 		}
 		
-		return true;
+		loadValues();
 	}
-
+	
 	/**
-	 * Checks if a number in a cell is equal to another cell within its
-	 * sub-grid.
-	 * @param thisX the x coordinate of the cell to be checked
-	 * @param thisY the y coordinate of the cell to be checked
-	 * @param value the number that you want to see if the sub-grid could have
-	 * @return true if the sub-grid doesn't have the number in it; otherwise
-	 *         false
-	 */
-	private boolean isSubGridAvailable(final int thisX, final int thisY, final CellValue value) {
-		final int subgridCoordinateX = calculateSubGridCoordinate(thisX);
-		final int subgridCoordinateY = calculateSubGridCoordinate(thisY);
-		
-		for (int x = subgridCoordinateX; x < subgridCoordinateX + 3; x++) {
-			for (int y = subgridCoordinateY; y < subgridCoordinateY + 3; y++) {
-				// Test if any cell in this sub-grid (excluding the given cell)
-				// equals the given cell value.
-				if (x != thisX && y != thisY && grid.getCell(x, y).getValue() == value) {
-					return false;
+	 * Resets the solver for the values that have just been copied into it and
+	 * records which numbers are used in each row, column and sub-grid. If a
+	 * number appears twice in a row, column or sub-grid, the grid is marked as
+	 * having a contradiction.
+	 */
+	private void loadValues() {
+		trailSize = 0;
+		contradiction = false;
+		trace.reset(values);
+		
+		for (int unit = 0; unit < Units.COUNT; unit++) {
+			unitMasks[unit] = 0;
+		}
+		
+		emptyCells = 81;
+		
+		for (int cell = 0; cell < 81; cell++) {
+			final int value = values[cell];
+			
+			candidates[cell] = 0;
+			
+			if (value != 0) {
+				emptyCells--;
+				
+				final int bit = CandidateList.bitFor(value);
+				
+				if ((usedBy(cell) & bit) != 0) {
+					contradiction = true;
 				}
+				
+				markUsed(cell, bit);
 			}
 		}
+	}
+	
+	/**
+	 * Goes through each cell in the grid to find all possible candidates. This
+	 * only needs to be done once, as placing a number removes it from the
+	 * candidates of the other cells straight away. Every unit is marked as
+	 * changed, and the cells with only one candidate are queued. The stages
+	 * being run are set up without being timed, and nothing measured before
+	 * is kept.
+	 */
+	void listCandidates() {
+		singleCount = 0;
 		
-		return true;
+		for (int cell = 0; cell < 81; cell++) {
+			// We only want to add candidates to empty cells. A number is a
+			// candidate if it is not used in the cell's row, column or
+			// sub-grid.
+			if (values[cell] == 0) {
+				final int mask = CandidateList.ALL & ~usedBy(cell);
+				
+				candidates[cell] = mask;
+				
+				if (Integer.bitCount(mask) == 1) {
+					singles[singleCount++] = cell;
+				}
+			}
+		}
+		
+		dirtyUnits = Units.ALL;
+		stages = pipeline.getAllStages();
+		order = pipeline.currentStages();
+		timing = false;
+		
+		if (stageUnits.length != stages.length) {
+			stageUnits = new int[stages.length];
+			stageTime = new long[stages.length];
+			stageRemoved = new long[stages.length];
+		}
+		
+		for (int i = 0; i < stageUnits.length; i++) {
+			stageUnits[i] = 0;
+			stageTime[i] = 0;
+			stageRemoved[i] = 0;
+		}
 	}
 	
 	/**
-	 * Checks for when a cell has two candidates and sees if any other cells in
-	 * the same row, column
+	 * Checks for when two cells in the same row, column or sub-grid have the
+	 * same two candidates. Neither number can then go anywhere else in that
+	 * row, column or sub-grid, so they are removed from the other cells.
 	 * 
-	 * <p><strong>Note:</strong> Only use this after using lookForCandidates().
+	 * <p><strong>Note:</strong> Only use this after using listCandidates().
+	 * @param units a mask of the units to check
 	 */
-	private void checkForNakedPairs() {
-		for (int x = 0; x < 9; x++) {
-			for (int y = 0; y < 9; y++) {
+	private void checkForNakedPairs(int units) {
+		while (units != 0 && !contradiction) {
+			final int unit = Integer.numberOfTrailingZeros(units);
+			final int base = unit * 9;
+			
+			units &= units - 1;
+			
+			for (int a = 0; a < 9; a++) {
+				final int cellA = Units.UNITS[base + a];
+				final int pair = candidates[cellA];
+				
 				// Test if this cell is empty and has only two candidates
-				if (grid.getCell(x, y).getValue() == CellValue.EMPTY
-						&& candidateLists[x][y].size() == 2) {
-					CellValue[] pair = candidateLists[x][y].getCandidates();
+				if (values[cellA] != 0 || Integer.bitCount(pair) != 2) {
+					continue;
+				}
+				
+				// Look for the matching cell later on in the unit
+				for (int b = a + 1; b < 9; b++) {
+					final int cellB = Units.UNITS[base + b];
 					
-					if (isEqualCandidateListInRow(x, y, pair)) {
-						// Loop through this row to find the matching
-						// candidate lists.
-						for (int x2 = 0; x2 < 9; x2++) {
-							// Is this the cell that matched?
-							if (grid.getCell(x2, y).getValue() == CellValue.EMPTY
-									&& x != x2
-									&& Arrays.equals(candidateLists[x2][y].getCandidates(), pair)) {
-								// Loop through the row again to remove
-								// candidates that contain any of the values in
-								// the naked pairs
-								for (int x3 = 0; x3 < 9; x3++) {
-									// Check that this cell is not one of the
-									// naked pairs
-									if (grid.getCell(x3, y).getValue() == CellValue.EMPTY
-											&& x3 != x && x3 != x2) {
-										if (candidateLists[x3][y].isCandidateInList(pair[0])) {
-											candidateLists[x3][y].remove(pair[0]);
-										}
-										
-										if (candidateLists[x3][y].isCandidateInList(pair[1])) {
-											candidateLists[x3][y].remove(pair[1]);
-										}
-									}
-								}
+					if (values[cellB] == 0 && candidates[cellB] == pair) {
+						// Remove both numbers from every other cell in the
+						// unit
+						for (int c = 0; c < 9; c++) {
+							final int cellC = Units.UNITS[base + c];
+							
+							if (c != a && c != b && values[cellC] == 0) {
+								final int removed = Integer.bitCount(candidates[cellC] & pair);
 								
-								// There can only be one other pair, so there's
-								// no need to continue the loop.
-								break;
-							}
-						}
-					} else if (isEqualCandidateListInCol(x, y, pair)) {
-						// Loop through this column to find the matching
-						// candidate lists.
-						for (int y2 = 0; y2 < 9; y2++) {
-							// Is this the cell that matched?
-							if (grid.getCell(x, y2).getValue() == CellValue.EMPTY
-									&& y != y2
-									&& Arrays.equals(candidateLists[x][y2].getCandidates(), pair)) {
-								// Loop through the column again to remove
-								// candidates that contain any of the values in
-								// the naked pairs
-								for (int y3 = 0; y3 < 9; y3++) {
-									// Check that this cell is not one of the
-									// naked pairs
-									if (grid.getCell(x, y3).getValue() == CellValue.EMPTY
-											&& y3 != y && y3 != y2) {
-										if (candidateLists[x][y3].isCandidateInList(pair[0])) {
-											candidateLists[x][y3].remove(pair[0]);
-										}
-										
-										if (candidateLists[x][y3].isCandidateInList(pair[1])) {
-											candidateLists[x][y3].remove(pair[1]);
-										}
-									}
+								metrics.pairEliminations += removed;
+								
+								if (!searching) {
+									trace.recordEliminations(Technique.NAKED_PAIR, removed);
 								}
 								
-								// There can only be one other pair, so there's
-								// no need to continue the loop.
-								break;
+								eliminate(cellC, pair);
 							}
 						}
-					} else if (isEqualCandidateListInSubGrid(x, y, pair)) {
-						final int subgridCoordinateX = calculateSubGridCoordinate(x);
-						final int subgridCoordinateY = calculateSubGridCoordinate(y);
 						
-						// Loop through this sub-grid to find the matching
-						// candidate lists.
-						for (int x2 = subgridCoordinateX; x2 < subgridCoordinateX + 3; x2++) {
-							for (int y2 = subgridCoordinateY; y2 < subgridCoordinateY + 3; y2++) {
-								// Is this the cell that matched?
-								if (grid.getCell(x2, y2).getValue() == CellValue.EMPTY
-										&& x2 != x
-										&& y2 != y
-										&& Arrays.equals(candidateLists[x2][y2].getCandidates(), pair)) {
-									// Loop through the sub-grid again to remove
-									// candidates that contain any of the values
-									// in the naked pairs
-									for (int x3 = subgridCoordinateX; x3 < subgridCoordinateX + 3; x3++) {
-										for (int y3 = subgridCoordinateY; y3 < subgridCoordinateY + 3; y3++) {
-											// Check that this cell is not one
-											// of the naked pairs
-											if (grid.getCell(x3, y3).getValue() == CellValue.EMPTY
-													&& x3 != x && x3 != x2
-													&& y3 != x && y3 != y2) {
-												if (candidateLists[x3][y3].isCandidateInList(pair[0])) {
-													candidateLists[x3][y3].remove(pair[0]);
-												}
-												
-												if (candidateLists[x3][y3].isCandidateInList(pair[1])) {
-													candidateLists[x3][y3].remove(pair[1]);
-												}
-											}
-										}
-									}
-									
-									// There can only be one other pair, so
-									// there's no need to continue the loop.
-									break;
-								}
-							}
-						}
+						// There can only be one other pair, so there's no
+						// need to continue the loop.
+						break;
 					}
 				}
 			}
@@ -270,48 +1110,85 @@ implements Runnable {
 	}
 	
 	/**
-	 * Checks for any empty cells that only have one possible candidate.
+	 * Places a number in each of the empty cells that have been left with only
+	 * one possible candidate.
 	 * 
-	 * <p><strong>Note:</strong> Only use this after using lookForCandidates().
+	 * <p><strong>Note:</strong> Only use this after using listCandidates().
 	 */
 	private void checkForNakedSingles() {
-		for (int x = 0; x < 9; x++) {
-			for (int y = 0; y < 9; y++) {
-				// Check if the cell is empty and it has only one possible
-				// candidate. If that's true, we can be certain of the cell's
-				// number and can safely put that number in the grid.
-				if (grid.getCell(x, y).getValue() == CellValue.EMPTY
-						&& candidateLists[x][y].size() == 1) {
-					addSolutionToGrid(x, y, candidateLists[x][y].getFirstCandidate());
+		while (singleCount > 0 && !contradiction) {
+			final int cell = singles[--singleCount];
+			
+			// Check the cell is still empty and still has only one possible
+			// candidate, as it may have been filled in since it was queued.
+			// If that's true, we can be certain of the cell's number and can
+			// safely put that number in the grid.
+			if (values[cell] == 0 && Integer.bitCount(candidates[cell]) == 1) {
+				metrics.nakedSingles++;
+				
+				if (!searching) {
+					trace.recordPlacement(cell, Technique.NAKED_SINGLE, (int) metrics.iterations);
 				}
+				
+				addSolutionToGrid(cell, CandidateList.lowestValue(candidates[cell]));
 			}
 		}
 	}
 	
 	/**
-	 * Check for cells that may contain more than one candidate but don't have
-	 * other cells of the same value in their row, column or sub-grid.
+	 * Check for cells that may contain more than one candidate but are the only
+	 * cell in their row, column or sub-grid that can hold one of them.
 	 * 
-	 * <p><strong>Note:</strong> Only use this after using lookForCandidates().
-	 */
-	private void checkForHiddenSingles() {
-		for (int x = 0; x < 9; x++) {
-			for (int y = 0; y < 9; y++) {
-				if (grid.getCell(x, y).getValue() == CellValue.EMPTY) {
-					// Check if each candidate appears only once in either a
-					// row, column or sub-grid. If that's true, we can be
-					// certain of the cell's number and can safely put that
-					// number in the grid.
-					for (CellValue candidate : candidateLists[x][y].getCandidates()) {
-						if (countNumberInRow(x, candidate) == 1
-								|| countNumberInCol(y, candidate) == 1
-								/* buggy: || countNumberInSubGrid(x, y, candidate) == 1 */) {
-							addSolutionToGrid(x, y, candidate);
-							
-							// We don't need to loop through the rest of the
-							// candidates
-							break;
+	 * <p><strong>Note:</strong> Only use this after using listCandidates().
+	 * @param units a mask of the units to check
+	 */
+	private void checkForHiddenSingles(int units) {
+		while (units != 0 && !contradiction) {
+			final int unit = Integer.numberOfTrailingZeros(units);
+			final int base = unit * 9;
+			
+			units &= units - 1;
+			
+			// Find the candidates that appear in exactly one cell of the unit
+			int once = 0;
+			int twice = 0;
+			
+			for (int k = 0; k < 9; k++) {
+				final int mask = candidates[Units.UNITS[base + k]];
+				
+				twice |= once & mask;
+				once |= mask;
+			}
+			
+			// A number that isn't in the unit and can't go anywhere in it
+			// means a guess (or the puzzle itself) was wrong.
+			if ((once | unitMasks[unit]) != CandidateList.ALL) {
+				contradiction = true;
+				return;
+			}
+			
+			int singles = once & ~twice;
+			
+			// Place each of those candidates in the only cell that can hold it
+			while (singles != 0 && !contradiction) {
+				final int bit = singles & -singles;
+				singles &= singles - 1;
+				
+				for (int k = 0; k < 9; k++) {
+					final int cell = Units.UNITS[base + k];
+					
+					// The candidate may have been removed by an earlier
+					// placement in this unit
+					if (values[cell] == 0 && (candidates[cell] & bit) != 0) {
+						metrics.hiddenSingles++;
+						
+						if (!searching) {
+							trace.recordPlacement(cell, Technique.HIDDEN_SINGLE,
+								(int) metrics.iterations);
 						}
+						
+						addSolutionToGrid(cell, CandidateList.lowestValue(bit));
+						break;
 					}
 				}
 			}
@@ -319,176 +1196,389 @@ implements Runnable {
 	}
 	
 	/**
-	 * Count the amount of times a number occurs in a given row either as a Cell
-	 * value or as a candidate.
-	 * @param x the x coordinate of the row to be checked
-	 * @param value the number that you want to see if the row contains
-	 * @return the amount of times a number occurs in a given row
+	 * Checks each row and column for where it crosses a sub-grid. A number
+	 * that can only go in one of the three crossings of a row or column can't
+	 * go anywhere else in that sub-grid ("claiming"), and a number that can
+	 * only go in one of the three rows or columns of a sub-grid can't go
+	 * anywhere else in that row or column ("pointing").
+	 * 
+	 * <p><strong>Note:</strong> Only use this after using listCandidates().
+	 * @param units a mask of the units to check; a row or column is checked
+	 *              against a sub-grid if either of them is in the mask
 	 */
-	private int countNumberInRow(final int x, final CellValue value) {
-		int count = 0;
-		
-		for (int y = 0; y < 9; y++) {
-			// Either the cell is empty and has the given cell in one of its
-			// candidates, or the cell has a value equal the given cell
-			if ((grid.getCell(x, y).getValue() == CellValue.EMPTY
-					&& candidateLists[x][y].isCandidateInList(value))
-					|| grid.getCell(x, y).getValue() == value) {
-				count++;
+	private void checkForLockedCandidates(final int units) {
+		for (int line = 0; line < 18; line++) {
+			crossings[line * 3] = 0;
+			crossings[line * 3 + 1] = 0;
+			crossings[line * 3 + 2] = 0;
+			
+			for (int k = 0; k < 9; k++) {
+				crossings[line * 3 + k / 3] |= candidates[Units.UNITS[line * 9 + k]];
 			}
 		}
 		
-		return count;
+		for (int line = 0; line < 18 && !contradiction; line++) {
+			// The rows (or columns) that cross the same sub-grids as this one
+			final int band = line / 3 * 3;
+			
+			for (int s = 0; s < 3 && !contradiction; s++) {
+				final int box = Units.CELL_UNITS[Units.UNITS[line * 9 + s * 3] * 3 + 2];
+				
+				if ((units & (1 << line | 1 << box)) == 0) {
+					continue;
+				}
+				
+				final int here = crossings[line * 3 + s];
+				int otherBands = 0;
+				
+				for (int j = band; j < band + 3; j++) {
+					if (j != line) {
+						otherBands |= crossings[j * 3 + s];
+					}
+				}
+				
+				final int pointing = here & ~otherBands;
+				final int claiming = here
+					& ~(crossings[line * 3 + (s + 1) % 3] | crossings[line * 3 + (s + 2) % 3]);
+				
+				for (int k = 0; k < 9; k++) {
+					if (pointing != 0 && k / 3 != s) {
+						removeCandidates(Units.UNITS[line * 9 + k], pointing, Technique.LOCKED_CANDIDATES);
+					}
+					
+					final int cell = Units.UNITS[box * 9 + k];
+					
+					if (claiming != 0 && Units.CELL_UNITS[cell * 3 + line / 9] != line) {
+						removeCandidates(cell, claiming, Technique.LOCKED_CANDIDATES);
+					}
+				}
+			}
+		}
 	}
-
+	
 	/**
-	 * Count the amount of times a number occurs in a given column either as a
-	 * Cell value or as a candidate.
-	 * @param y the y coordinate of the column to be checked
-	 * @param value the number that you want to see if the column contains
-	 * @return the amount of times a number occurs in a given column
+	 * Checks every unit for naked or hidden subsets. A naked subset is a set
+	 * of cells that can only hold as many numbers as there are cells, so
+	 * those numbers are removed from the rest of the unit. A hidden subset is
+	 * a set of numbers that can only go in as many cells as there are
+	 * numbers, so every other number is removed from those cells.
+	 * 
+	 * <p><strong>Note:</strong> Only use this after using listCandidates().
+	 * @param technique the kind and size of subset to look for
+	 * @param units a mask of the units to check
 	 */
-	private int countNumberInCol(final int y, final CellValue value) {
-		int count = 0;
+	private void checkForSubsets(final Technique technique, int units) {
+		final boolean naked = technique == Technique.NAKED_TRIPLE
+			|| technique == Technique.NAKED_QUAD;
+		final int size = subsetSize(technique);
+		
+		subsetTechnique = technique;
 		
-		for (int x = 0; x < 9; x++) {
-			// Either the cell is empty and has the given cell in one of its
-			// candidates, or the cell has a value equal the given cell
-			if ((grid.getCell(x, y).getValue() == CellValue.EMPTY
-					&& candidateLists[x][y].isCandidateInList(value))
-					|| grid.getCell(x, y).getValue() == value) {
-				count++;
+		while (units != 0 && !contradiction) {
+			final int unit = Integer.numberOfTrailingZeros(units);
+			final int used = unitMasks[unit];
+			
+			units &= units - 1;
+			
+			// There has to be something left over outside the subset
+			if (Integer.bitCount(used) >= 9 - size) {
+				continue;
+			}
+			
+			subsetBase = unit * 9;
+			
+			for (int i = 0; i < 9; i++) {
+				subsetMasks[i] = 0;
+			}
+			
+			for (int k = 0; k < 9; k++) {
+				final int mask = candidates[Units.UNITS[subsetBase + k]];
+				
+				if (naked) {
+					subsetMasks[k] = mask;
+				} else {
+					// Turn the candidates of each cell into the cells of each
+					// number
+					for (int rest = mask; rest != 0; rest &= rest - 1) {
+						subsetMasks[Integer.numberOfTrailingZeros(rest)] |= 1 << k;
+					}
+				}
 			}
+			
+			findSubsets();
 		}
-		
-		return count;
 	}
-
+	
 	/**
-	 * Count the amount of times a number occurs in a given sub-grid either as a
-	 * Cell value or as a candidate.
-	 * @param x the x coordinate of a cell in the sub-grid to be checked
-	 * @param y the y coordinate of a cell in the sub-grid to be checked
-	 * @param value the number that you want to see if the sub-grid contains
-	 * @return the amount of times a number occurs in a given sub-grid
-	 */
-	private int countNumberInSubGrid(final int x, final int y, final CellValue value) {
-		final int subgridCoordinateX = calculateSubGridCoordinate(x);
-		final int subgridCoordinateY = calculateSubGridCoordinate(y);
-		
-		int count = 0;
-		
-		// FIXME: Doesn't seem to be working properly
-		for (int subgridX = subgridCoordinateX; subgridX < subgridCoordinateX + 3; subgridX++) {
-			for (int subgridY = subgridCoordinateY; subgridY < subgridCoordinateY + 3; subgridY++) {
-				// Either the cell is empty and has the given cell in one of its
-				// candidates, or the cell has a value equal the given cell
-				if ((grid.getCell(subgridX, subgridY).getValue() == CellValue.EMPTY
-						&& candidateLists[subgridX][subgridY].isCandidateInList(value))
-						|| grid.getCell(subgridX, subgridX).getValue() == value) {
-					count++;
-				}
+	 * Checks every number for fish: a set of rows where the number can only
+	 * go in as many columns as there are rows. One of those rows has to hold
+	 * the number in each of the columns, so it is removed from the rest of
+	 * the columns. The same is then done with rows and columns swapped.
+	 * 
+	 * <p><strong>Note:</strong> Only use this after using listCandidates().
+	 * @param technique the size of fish to look for
+	 */
+	private void checkForFish(final Technique technique) {
+		subsetTechnique = technique;
+		
+		// Find the columns each number can go in in each row, and the rows
+		// it can go in in each column, in one pass over the grid
+		for (int i = 0; i < fishPositions.length; i++) {
+			fishPositions[i] = 0;
+		}
+		
+		for (int cell = 0; cell < 81; cell++) {
+			final int x = cell % 9;
+			final int y = cell / 9;
+			
+			for (int rest = candidates[cell]; rest != 0; rest &= rest - 1) {
+				final int digit = Integer.numberOfTrailingZeros(rest);
+				
+				fishPositions[digit * 18 + y] |= 1 << x;
+				fishPositions[digit * 18 + 9 + x] |= 1 << y;
 			}
 		}
 		
-		return count;
+		for (int digit = 0; digit < 9 && !contradiction; digit++) {
+			fishBit = 1 << digit;
+			
+			// Rows first, then columns
+			for (int base = 0; base < 18 && !contradiction; base += 9) {
+				subsetBase = base * 9;
+				System.arraycopy(fishPositions, digit * 18 + base, subsetMasks, 0, 9);
+				findSubsets();
+			}
+		}
 	}
 	
 	/**
-	 * Checks if there are two or more candidate lists with equal values on the
-	 * same row.
-	 * @param thisX the x coordinate of the cell to be compared
-	 * @param thisY the y coordinate of the row to be checked
-	 * @param an array of the candidate list to be compared
-	 * @return true if there is a candidate list in the row with the same value;
-	 *         otherwise false
+	 * Looks through the combinations of {@link #subsetMasks} for sets of
+	 * masks that only cover as many bits as there are masks in the set, and
+	 * removes the candidates they rule out. Masks with no bits set (filled in
+	 * cells, numbers already placed) or too many bits set to be part of a set
+	 * are skipped.
 	 */
-	private boolean isEqualCandidateListInRow(final int thisX, final int thisY, final CellValue[] list) {
-		for (int x = 0; x < 9; x++) {
-			if (grid.getCell(x, thisY).getValue() == CellValue.EMPTY
-					&& x != thisX
-					&& Arrays.equals(candidateLists[x][thisY].getCandidates(), list)) {
-				return true;
+	private void findSubsets() {
+		final int size = subsetSize(subsetTechnique);
+		
+		subsetCount = 0;
+		
+		for (int i = 0; i < 9; i++) {
+			final int mask = subsetMasks[i];
+			
+			if (mask != 0 && Integer.bitCount(mask) <= size) {
+				subsetItems[subsetCount++] = i;
 			}
 		}
 		
-		return false;
+		if (subsetCount >= size) {
+			findSubsets(size, 0, 0, 0, 0);
+		}
 	}
 	
 	/**
-	 * Checks if there are two or more candidate lists with equal values on the
-	 * same column.
-	 * @param thisX the x coordinate of the column to be checked
-	 * @param thisY the y coordinate of the cell to be compared
-	 * @param an array of the candidate list to be compared
-	 * @return true if there is a candidate list in the column with the same
-	 *         value; otherwise false
+	 * Adds each of the remaining masks in {@link #subsetItems} to a set in
+	 * turn, removing the candidates ruled out by each set that is complete.
+	 * @param size the number of masks in a complete set
+	 * @param start the index into {@link #subsetItems} of the first mask that
+	 *              can be added to the set
+	 * @param depth the number of masks in the set so far
+	 * @param chosen a bit for each mask in the set
+	 * @param union the bits covered by the masks in the set
 	 */
-	private boolean isEqualCandidateListInCol(final int thisX, final int thisY, final CellValue[] list) {
-		for (int y = 0; y < 9; y++) {
-			if (grid.getCell(thisX, y).getValue() == CellValue.EMPTY
-					&& y != thisY
-					&& Arrays.equals(candidateLists[thisX][y].getCandidates(), list)) {
-				return true;
+	private void findSubsets(final int size, final int start, final int depth, final int chosen,
+			final int union) {
+		for (int j = start; j <= subsetCount - size + depth && !contradiction; j++) {
+			final int i = subsetItems[j];
+			final int covered = union | subsetMasks[i];
+			final int count = Integer.bitCount(covered);
+			
+			if (count > size) {
+				continue;
+			}
+			
+			if (depth + 1 < size) {
+				findSubsets(size, j + 1, depth + 1, chosen | 1 << i, covered);
+			} else if (count < size) {
+				// More cells than numbers (or the other way round) means a
+				// guess (or the puzzle itself) was wrong.
+				contradiction = true;
+			} else {
+				removeSubset(chosen | 1 << i, covered);
 			}
 		}
-		
-		return false;
 	}
 	
-	private boolean isEqualCandidateListInSubGrid(final int thisX, final int thisY, final CellValue[] list) {
-		final int subgridCoordinateX = calculateSubGridCoordinate(thisX);
-		final int subgridCoordinateY = calculateSubGridCoordinate(thisY);
-		
-		for (int x = subgridCoordinateX; x < subgridCoordinateX + 3; x++) {
-			for (int y = subgridCoordinateY; y < subgridCoordinateY + 3; y++) {
-				if (grid.getCell(x, y).getValue() == CellValue.EMPTY
-						&& x != thisX
-						&& y != thisY
-						&& Arrays.equals(candidateLists[x][y].getCandidates(), list)) {
-					return true;
+	/**
+	 * Removes the candidates ruled out by a subset or fish.
+	 * @param chosen a bit for each mask in the set
+	 * @param covered the bits covered by the masks in the set
+	 */
+	private void removeSubset(final int chosen, final int covered) {
+		switch (subsetTechnique) {
+		case NAKED_TRIPLE:
+		case NAKED_QUAD:
+			// The numbers can't go in the rest of the unit
+			for (int k = 0; k < 9; k++) {
+				if ((chosen & 1 << k) == 0) {
+					removeCandidates(Units.UNITS[subsetBase + k], covered, subsetTechnique);
+				}
+			}
+			break;
+		case HIDDEN_PAIR:
+		case HIDDEN_TRIPLE:
+		case HIDDEN_QUAD:
+			// The cells can't hold any other numbers
+			for (int k = 0; k < 9; k++) {
+				if ((covered & 1 << k) != 0) {
+					removeCandidates(Units.UNITS[subsetBase + k], CandidateList.ALL & ~chosen,
+						subsetTechnique);
+				}
+			}
+			break;
+		default:
+			// The number can't go in the rest of the cover lines, which are
+			// columns if the base lines are rows and the other way round
+			final int cover = subsetBase == 0 ? 9 * 9 : 0;
+			
+			for (int line = 0; line < 9; line++) {
+				if ((covered & 1 << line) == 0) {
+					continue;
+				}
+				
+				for (int k = 0; k < 9; k++) {
+					if ((chosen & 1 << k) == 0) {
+						removeCandidates(Units.UNITS[cover + line * 9 + k], fishBit, subsetTechnique);
+					}
 				}
 			}
+			break;
 		}
+	}
+	
+	/**
+	 * Gets the number of cells, numbers or lines in the subsets or fish a
+	 * technique looks for.
+	 * @param technique a subset or fish technique
+	 * @return the size of the subset
+	 */
+	private static int subsetSize(final Technique technique) {
+		switch (technique) {
+		case HIDDEN_PAIR:
+		case X_WING:
+			return 2;
+		case NAKED_TRIPLE:
+		case HIDDEN_TRIPLE:
+		case SWORDFISH:
+			return 3;
+		default:
+			return 4;
+		}
+	}
+	
+	/**
+	 * Removes candidates from an empty cell on behalf of one of the harder
+	 * techniques or a {@link TechniqueStage}, and counts how many were
+	 * removed. The cell is filled in once it has one candidate left. This
+	 * should only be used while a stage is being applied.
+	 * @param cell the index of the cell, {@code y * 9 + x}
+	 * @param bits a mask of the candidates to remove (see
+	 *             {@link CandidateList}); any the cell doesn't have are
+	 *             ignored
+	 * @param technique the technique removing them
+	 */
+	public void removeCandidates(final int cell, final int bits, final Technique technique) {
+		final int removed = Integer.bitCount(candidates[cell] & bits);
 		
-		return false;
+		if (removed == 0 || values[cell] != 0) {
+			return;
+		}
+		
+		metrics.advancedEliminations += removed;
+		
+		if (!searching) {
+			trace.recordEliminations(technique, removed);
+		}
+		
+		eliminate(cell, bits);
 	}
 	
 	/**
-	 * Calculate the top left coordinate of a sub-grid, given an x or y
-	 * coordinate of a cell in it.
-	 * @param c an x or y coordinate
-	 * @return the top left coordinate of a sub-grid (either 0, 3 or 6)
+	 * Gets the numbers already used in the row, column and sub-grid of a cell.
+	 * @param cell the index of the cell
+	 * @return the mask of numbers used by the cell's units
 	 */
-	private int calculateSubGridCoordinate(int c) {
-		// If we divide a coordinate between 0 and 8 by 3, it will get floored
-		// to either 0, 1 or 2. Multiplying this by 3 will give us either 0, 3
-		// or 6. This can be used to determine the position of each box in the
-		// grid.
-		return c / 3 * 3;
+	private int usedBy(final int cell) {
+		final int units = cell * 3;
+		
+		return unitMasks[Units.CELL_UNITS[units]] | unitMasks[Units.CELL_UNITS[units + 1]]
+			| unitMasks[Units.CELL_UNITS[units + 2]];
+	}
+	
+	/**
+	 * Marks a number as used in the row, column and sub-grid of a cell.
+	 * @param cell the index of the cell
+	 * @param bit the number's bit
+	 */
+	private void markUsed(final int cell, final int bit) {
+		final int units = cell * 3;
+		
+		unitMasks[Units.CELL_UNITS[units]] |= bit;
+		unitMasks[Units.CELL_UNITS[units + 1]] |= bit;
+		unitMasks[Units.CELL_UNITS[units + 2]] |= bit;
 	}
 	
 	/**
 	 * Sets a new value for a cell in the grid and allows the loop to continue.
+	 * The number is removed from the candidates of the cell's 20 peers in the
+	 * same row, column and sub-grid. The change is recorded on the trail.
+	 * @param cell the index of the cell in the grid
+	 * @param value the new value of the cell in the grid
+	 */
+	private void addSolutionToGrid(final int cell, final int value) {
+		final int bit = CandidateList.bitFor(value);
+		final int peers = cell * Units.PEER_COUNT;
+		
+		trail[trailSize++] = cell << 9 | candidates[cell];
+		trail[trailSize++] = PLACEMENT | cell;
+		candidatesRemoved += Integer.bitCount(candidates[cell] & ~bit);
+		
+		values[cell] = (byte) value;
+		candidates[cell] = 0;
+		emptyCells--;
+		markUsed(cell, bit);
+		
+		for (int i = peers; i < peers + Units.PEER_COUNT; i++) {
+			eliminate(Units.PEERS[i], bit);
+		}
+		
+		// Now that the grid has changed, it's worth checking the cell's
+		// units again to see if there are any new candidates.
+		dirtyUnits |= Units.CELL_UNIT_MASKS[cell];
+		
+		// Guesses are kept away from the grid until a solution is found, and
+		// nothing is shown at all unless somebody is watching
+		if (searching || !isReplaying()) {
+			return;
+		}
+		
+		showSolution(cell % 9, cell / 9, value);
+	}
+	
+	/**
+	 * Puts a number in the grid and tells the step listener about it.
 	 * @param x the x coordinate of the cell in the grid
 	 * @param y the y coordinate of the cell in the grid
 	 * @param value the new value of the cell in the grid
 	 */
-	private void addSolutionToGrid(final int x, final int y, final CellValue value) {
-		grid.setCell(x, y, value);
-		
-		// This cell doesn't need to be checked for candidates any more, so we
-		// can remove the CandidateList from it to save memory.
-		candidateLists[x][y] = null;
+	private void showSolution(final int x, final int y, final int value) {
+		final CellValue cellValue = CandidateList.toCellValue(value);
 		
-		// Now that the grid has changed, it's worth checking it
-		// again to see if there are any new candidates.
-		morePossibleSolutions = true;
+		if (target != null) {
+			target.setCell(x, y, cellValue);
+		}
 		
-		// Show the user the solution process step-by-step.
-		try {
-			Thread.sleep(50);
-		} catch (InterruptedException e) {
+		if (!stepListener.cellSolved(x, y, cellValue)) {
 			keepGoing = false;
 		}
 	}
@@ -0,0 +1,210 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+/**
+ * Counts the work done by a {@link Solver} while solving one puzzle, to show
+ * why a puzzle was slow to solve. The solver resets its metrics at the start
+ * of each puzzle.
+ * 
+ * <p>The counters are plain fields that the solver adds to as it goes, and
+ * the phases are timed once each, so the metrics are cheap enough to always
+ * be kept. Like the solver, an instance should only be used by one thread at
+ * a time; {@link #copy()} takes a snapshot that can be handed to another.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class SolverMetrics {
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The number of passes of the logical techniques over the grid */
+	long iterations;
+	
+	/** The number of candidates removed by naked pairs */
+	long pairEliminations;
+	
+	/** The number of candidates removed by the techniques tried after naked pairs */
+	long advancedEliminations;
+	
+	/** The number of cells placed by naked singles */
+	long nakedSingles;
+	
+	/** The number of cells placed by hidden singles */
+	long hiddenSingles;
+	
+	/** The number of positions visited by the search */
+	long searchNodes;
+	
+	/** The number of guesses the search had to undo */
+	long backtracks;
+	
+	/** The time spent loading the puzzle, in nanoseconds */
+	long loadTime;
+	
+	/** The time spent listing the candidates, in nanoseconds */
+	long candidateTime;
+	
+	/** The time spent on the logical techniques before searching, in nanoseconds */
+	long logicTime;
+	
+	/** The time spent searching, in nanoseconds */
+	long searchTime;
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Gets the number of passes of the logical techniques over the grid,
+	 * including those made while searching.
+	 * @return the number of passes
+	 */
+	public long getIterations() {
+		return iterations;
+	}
+	
+	/**
+	 * Gets the number of candidates removed by the naked pairs technique.
+	 * @return the number of candidates removed
+	 */
+	public long getPairEliminations() {
+		return pairEliminations;
+	}
+	
+	/**
+	 * Gets the number of candidates removed by the harder techniques,
+	 * including those of any custom {@link TechniqueStage}s.
+	 * @return the number of candidates removed
+	 */
+	public long getAdvancedEliminations() {
+		return advancedEliminations;
+	}
+	
+	/**
+	 * Gets the number of cells placed by the naked singles technique,
+	 * including those placed while searching.
+	 * @return the number of cells placed
+	 */
+	public long getNakedSingles() {
+		return nakedSingles;
+	}
+	
+	/**
+	 * Gets the number of cells placed by the hidden singles technique,
+	 * including those placed while searching.
+	 * @return the number of cells placed
+	 */
+	public long getHiddenSingles() {
+		return hiddenSingles;
+	}
+	
+	/**
+	 * Gets the number of positions visited by the search, which is 0 if the
+	 * puzzle was solved without searching.
+	 * @return the number of search nodes
+	 */
+	public long getSearchNodes() {
+		return searchNodes;
+	}
+	
+	/**
+	 * Gets the number of guesses made by the search that turned out to be
+	 * wrong and were undone.
+	 * @return the number of backtracks
+	 */
+	public long getBacktracks() {
+		return backtracks;
+	}
+	
+	/**
+	 * Gets the time spent loading the puzzle into the solver.
+	 * @return the time in nanoseconds
+	 */
+	public long getLoadTime() {
+		return loadTime;
+	}
+	
+	/**
+	 * Gets the time spent listing the candidates of the empty cells.
+	 * @return the time in nanoseconds
+	 */
+	public long getCandidateTime() {
+		return candidateTime;
+	}
+	
+	/**
+	 * Gets the time spent applying the logical techniques before the search
+	 * started.
+	 * @return the time in nanoseconds
+	 */
+	public long getLogicTime() {
+		return logicTime;
+	}
+	
+	/**
+	 * Gets the time spent searching.
+	 * @return the time in nanoseconds
+	 */
+	public long getSearchTime() {
+		return searchTime;
+	}
+	
+	/**
+	 * Gets the total time spent solving the puzzle.
+	 * @return the time in nanoseconds
+	 */
+	public long getTotalTime() {
+		return loadTime + candidateTime + logicTime + searchTime;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Sets every counter and time back to 0.
+	 */
+	void reset() {
+		iterations = 0;
+		pairEliminations = 0;
+		advancedEliminations = 0;
+		nakedSingles = 0;
+		hiddenSingles = 0;
+		searchNodes = 0;
+		backtracks = 0;
+		loadTime = 0;
+		candidateTime = 0;
+		logicTime = 0;
+		searchTime = 0;
+	}
+	
+	/**
+	 * Creates a copy of the metrics, which won't change when the solver moves
+	 * on to another puzzle.
+	 * @return the copy
+	 */
+	public SolverMetrics copy() {
+		final SolverMetrics copy = new SolverMetrics();
+		
+		copy.iterations = iterations;
+		copy.pairEliminations = pairEliminations;
+		copy.advancedEliminations = advancedEliminations;
+		copy.nakedSingles = nakedSingles;
+		copy.hiddenSingles = hiddenSingles;
+		copy.searchNodes = searchNodes;
+		copy.backtracks = backtracks;
+		copy.loadTime = loadTime;
+		copy.candidateTime = candidateTime;
+		copy.logicTime = logicTime;
+		copy.searchTime = searchTime;
+		
+		return copy;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format(
+			"iterations=%d, pairEliminations=%d, advancedEliminations=%d, nakedSingles=%d, "
+			+ "hiddenSingles=%d, searchNodes=%d, backtracks=%d, load=%.1fus, candidates=%.1fus, "
+			+ "logic=%.1fus, search=%.1fus",
+			iterations, pairEliminations, advancedEliminations, nakedSingles, hiddenSingles,
+			searchNodes, backtracks, loadTime / 1e3, candidateTime / 1e3, logicTime / 1e3, searchTime / 1e3);
+	}
+}
@@ -0,0 +1,216 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Adds up the {@link SolverMetrics} of every puzzle solved by any
+ * {@link Solver} in the JVM, so that a long-running process can be watched
+ * through JMX (for example with JConsole).
+ * 
+ * <p>Nothing is recorded until {@link #register()} is called. After that,
+ * each solver adds its metrics once per puzzle. The totals are kept in
+ * {@link LongAdder}s, so solvers on many threads don't contend with each
+ * other.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class SolverStats
+implements SolverStatsMBean {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** The name the statistics are registered under. */
+	public static final String OBJECT_NAME = "uk.ac.aber.cs211.sudoku:type=SolverStats";
+	
+	// ///////////////// //
+	// Static variables. //
+	// ///////////////// //
+	/** The registered statistics, or null if they haven't been registered */
+	private static volatile SolverStats instance;
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The number of puzzles the solvers have been given */
+	private final LongAdder puzzles = new LongAdder();
+	
+	/** The number of puzzles that were solved */
+	private final LongAdder solved = new LongAdder();
+	
+	/** The passes of the logical techniques */
+	private final LongAdder iterations = new LongAdder();
+	
+	/** The candidates removed by naked pairs */
+	private final LongAdder pairEliminations = new LongAdder();
+	
+	/** The candidates removed by the techniques tried after naked pairs */
+	private final LongAdder advancedEliminations = new LongAdder();
+	
+	/** The cells placed by naked singles */
+	private final LongAdder nakedSingles = new LongAdder();
+	
+	/** The cells placed by hidden singles */
+	private final LongAdder hiddenSingles = new LongAdder();
+	
+	/** The positions visited by searches */
+	private final LongAdder searchNodes = new LongAdder();
+	
+	/** The guesses undone by searches */
+	private final LongAdder backtracks = new LongAdder();
+	
+	/** The time spent loading puzzles and listing candidates, in nanoseconds */
+	private final LongAdder setupTime = new LongAdder();
+	
+	/** The time spent on the logical techniques, in nanoseconds */
+	private final LongAdder logicTime = new LongAdder();
+	
+	/** The time spent searching, in nanoseconds */
+	private final LongAdder searchTime = new LongAdder();
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a set of statistics. Use {@link #register()} to get the ones
+	 * the solvers record to.
+	 */
+	private SolverStats() {
+	}
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	@Override
+	public long getPuzzles() {
+		return puzzles.sum();
+	}
+	
+	@Override
+	public long getSolved() {
+		return solved.sum();
+	}
+	
+	@Override
+	public long getIterations() {
+		return iterations.sum();
+	}
+	
+	@Override
+	public long getPairEliminations() {
+		return pairEliminations.sum();
+	}
+	
+	@Override
+	public long getAdvancedEliminations() {
+		return advancedEliminations.sum();
+	}
+	
+	@Override
+	public long getNakedSingles() {
+		return nakedSingles.sum();
+	}
+	
+	@Override
+	public long getHiddenSingles() {
+		return hiddenSingles.sum();
+	}
+	
+	@Override
+	public long getSearchNodes() {
+		return searchNodes.sum();
+	}
+	
+	@Override
+	public long getBacktracks() {
+		return backtracks.sum();
+	}
+	
+	@Override
+	public long getSetupTimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(setupTime.sum());
+	}
+	
+	@Override
+	public long getLogicTimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(logicTime.sum());
+	}
+	
+	@Override
+	public long getSearchTimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(searchTime.sum());
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Starts recording the metrics of every solver and registers the
+	 * statistics with the platform MBean server under {@link #OBJECT_NAME}.
+	 * Calling this again returns the statistics already registered.
+	 * @return the statistics
+	 * @throws JMException if the statistics can't be registered
+	 */
+	public static synchronized SolverStats register() throws JMException {
+		if (instance == null) {
+			final SolverStats stats = new SolverStats();
+			
+			ManagementFactory.getPlatformMBeanServer().registerMBean(
+				stats, new ObjectName(OBJECT_NAME));
+			instance = stats;
+		}
+		
+		return instance;
+	}
+	
+	/**
+	 * Adds the metrics of a puzzle to the statistics, if they have been
+	 * registered.
+	 * @param metrics the work done to solve the puzzle
+	 * @param wasSolved whether the puzzle was solved
+	 */
+	static void record(SolverMetrics metrics, boolean wasSolved) {
+		final SolverStats stats = instance;
+		
+		if (stats == null) {
+			return;
+		}
+		
+		stats.puzzles.increment();
+		
+		if (wasSolved) {
+			stats.solved.increment();
+		}
+		
+		stats.iterations.add(metrics.iterations);
+		stats.pairEliminations.add(metrics.pairEliminations);
+		stats.advancedEliminations.add(metrics.advancedEliminations);
+		stats.nakedSingles.add(metrics.nakedSingles);
+		stats.hiddenSingles.add(metrics.hiddenSingles);
+		stats.searchNodes.add(metrics.searchNodes);
+		stats.backtracks.add(metrics.backtracks);
+		stats.setupTime.add(metrics.loadTime + metrics.candidateTime);
+		stats.logicTime.add(metrics.logicTime);
+		stats.searchTime.add(metrics.searchTime);
+	}
+	
+	@Override
+	public void reset() {
+		puzzles.reset();
+		solved.reset();
+		iterations.reset();
+		pairEliminations.reset();
+		advancedEliminations.reset();
+		nakedSingles.reset();
+		hiddenSingles.reset();
+		searchNodes.reset();
+		backtracks.reset();
+		setupTime.reset();
+		logicTime.reset();
+		searchTime.reset();
+	}
+}
@@ -0,0 +1,87 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+/**
+ * The management interface of {@link SolverStats}, which shows the totals of
+ * the {@link SolverMetrics} of every puzzle solved in the JVM through JMX.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public interface SolverStatsMBean {
+	/**
+	 * Gets the number of puzzles the solvers have been given.
+	 * @return the number of puzzles
+	 */
+	long getPuzzles();
+	
+	/**
+	 * Gets the number of puzzles that were solved.
+	 * @return the number of solved puzzles
+	 */
+	long getSolved();
+	
+	/**
+	 * Gets the total number of passes of the logical techniques.
+	 * @return the number of passes
+	 */
+	long getIterations();
+	
+	/**
+	 * Gets the total number of candidates removed by naked pairs.
+	 * @return the number of candidates removed
+	 */
+	long getPairEliminations();
+	
+	/**
+	 * Gets the total number of candidates removed by the techniques tried
+	 * once singles and naked pairs stall.
+	 * @return the number of candidates removed
+	 */
+	long getAdvancedEliminations();
+	
+	/**
+	 * Gets the total number of cells placed by naked singles.
+	 * @return the number of cells placed
+	 */
+	long getNakedSingles();
+	
+	/**
+	 * Gets the total number of cells placed by hidden singles.
+	 * @return the number of cells placed
+	 */
+	long getHiddenSingles();
+	
+	/**
+	 * Gets the total number of positions visited by searches.
+	 * @return the number of search nodes
+	 */
+	long getSearchNodes();
+	
+	/**
+	 * Gets the total number of guesses undone by searches.
+	 * @return the number of backtracks
+	 */
+	long getBacktracks();
+	
+	/**
+	 * Gets the total time spent loading puzzles and listing candidates.
+	 * @return the time in milliseconds
+	 */
+	long getSetupTimeMillis();
+	
+	/**
+	 * Gets the total time spent on the logical techniques before searching.
+	 * @return the time in milliseconds
+	 */
+	long getLogicTimeMillis();
+	
+	/**
+	 * Gets the total time spent searching.
+	 * @return the time in milliseconds
+	 */
+	long getSearchTimeMillis();
+	
+	/**
+	 * Sets every total back to 0.
+	 */
+	void reset();
+}
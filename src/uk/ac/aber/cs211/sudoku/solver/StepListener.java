@@ -0,0 +1,31 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+import uk.ac.aber.cs211.sudoku.model.CellValue;
+
+
+/**
+ * Listens for each number placed in the grid by a {@link Solver}. This can be
+ * used to show the solution process step-by-step, or to pace the solver.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public interface StepListener {
+	/**
+	 * A listener that does nothing, for when nobody is watching the solver.
+	 */
+	StepListener NONE = new StepListener() {
+		@Override
+		public boolean cellSolved(int x, int y, CellValue value) {
+			return true;
+		}
+	};
+	
+	/**
+	 * Called after the solver has placed a number in the grid.
+	 * @param x the x coordinate of the cell
+	 * @param y the y coordinate of the cell
+	 * @param value the number placed in the cell
+	 * @return true if the solver should keep going; false to stop it
+	 */
+	boolean cellSolved(int x, int y, CellValue value);
+}
@@ -0,0 +1,65 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+/**
+ * The techniques the {@link Solver} uses to fill in cells or remove
+ * candidates, recorded in a {@link SolveTrace}. They are listed in the order
+ * the solver tries them, from the cheapest to the most expensive, which is
+ * also roughly how hard a person finds them.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public enum Technique {
+	/** A cell with only one candidate left is filled in. */
+	NAKED_SINGLE,
+	
+	/** A number that can only go in one cell of a unit is placed there. */
+	HIDDEN_SINGLE,
+	
+	/**
+	 * Two cells of a unit with the same two candidates rule those numbers out
+	 * of the rest of the unit. This only removes candidates.
+	 */
+	NAKED_PAIR,
+	
+	/**
+	 * A number that can only go in one row or column of a sub-grid is ruled
+	 * out of the rest of that row or column ("pointing"), and a number that
+	 * can only go in one sub-grid of a row or column is ruled out of the rest
+	 * of that sub-grid ("claiming").
+	 */
+	LOCKED_CANDIDATES,
+	
+	/**
+	 * Two numbers that can only go in the same two cells of a unit rule the
+	 * other candidates out of those cells.
+	 */
+	HIDDEN_PAIR,
+	
+	/**
+	 * A number that can only go in the same two columns of two rows is ruled
+	 * out of the rest of those columns, and the same with rows and columns
+	 * swapped.
+	 */
+	X_WING,
+	
+	/** Like {@link #NAKED_PAIR}, but with three cells and three numbers. */
+	NAKED_TRIPLE,
+	
+	/** Like {@link #HIDDEN_PAIR}, but with three numbers and three cells. */
+	HIDDEN_TRIPLE,
+	
+	/** Like {@link #X_WING}, but with three rows and three columns. */
+	SWORDFISH,
+	
+	/** Like {@link #NAKED_PAIR}, but with four cells and four numbers. */
+	NAKED_QUAD,
+	
+	/** Like {@link #HIDDEN_PAIR}, but with four numbers and four cells. */
+	HIDDEN_QUAD,
+	
+	/** A cell is filled in by guessing and backtracking. */
+	SEARCH;
+	
+	/** All the techniques, indexed by their ordinal. */
+	static final Technique[] VALUES = values();
+}
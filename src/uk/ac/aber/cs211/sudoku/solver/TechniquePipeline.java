@@ -0,0 +1,477 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * The logical techniques a {@link Solver} uses, as an ordered list of
+ * {@link TechniqueStage}s. The solver places naked singles itself, then runs
+ * the stages in order, going back to the start as soon as one of them makes
+ * progress, so the cheapest stages should come first. While searching, only
+ * the stages that are {@linkplain TechniqueStage#isUsedWhileSearching() used
+ * while searching} are run between guesses.
+ * 
+ * <p>A fixed pipeline always runs its stages in the order given, so the
+ * {@link SolveTrace} of a puzzle, and so its grade, is always the same. An
+ * adaptive pipeline measures how many candidates each stage removes per
+ * microsecond on the puzzles it is used for, and every few hundred puzzles
+ * reorders its stages by that rate. Stages that remove far fewer candidates
+ * for their time than the best stage are skipped, except on one puzzle in
+ * {@value #PROBE_INTERVAL}, so that they are brought back if the puzzles
+ * change. Stages that are used while searching are never skipped, as they
+ * are cheap and a solver that only uses logic relies on them to finish
+ * puzzles it could otherwise solve. The measurements are shared by every
+ * solver using the pipeline, and can be made from any number of threads.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public final class TechniquePipeline {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** Hidden singles only, for quickly screening puzzles. */
+	public static final TechniquePipeline SINGLES = of(Technique.HIDDEN_SINGLE);
+	
+	/** Singles and naked pairs, which are cheap enough to use between guesses. */
+	public static final TechniquePipeline BASIC =
+		of(Technique.HIDDEN_SINGLE, Technique.NAKED_PAIR);
+	
+	/** Every built-in technique, cheapest first. */
+	public static final TechniquePipeline ALL = of(
+		Technique.HIDDEN_SINGLE, Technique.NAKED_PAIR, Technique.LOCKED_CANDIDATES,
+		Technique.HIDDEN_PAIR, Technique.X_WING, Technique.NAKED_TRIPLE,
+		Technique.HIDDEN_TRIPLE, Technique.SWORDFISH, Technique.NAKED_QUAD,
+		Technique.HIDDEN_QUAD);
+	
+	/** The number of puzzles measured between each reordering of the stages. */
+	private static final int ADAPT_INTERVAL = 256;
+	
+	/** How many times lower than the best rate a stage's rate is to be skipped. */
+	private static final int SKIP_RATIO = 32;
+	
+	/** One puzzle in this many is solved with the skipped stages as well. */
+	public static final int PROBE_INTERVAL = 16;
+	
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The stages in the order they were given */
+	private final TechniqueStage[] stages;
+	
+	/** Whether the stages are reordered by how productive they are */
+	private final boolean adaptive;
+	
+	/** The time spent in each stage, in nanoseconds, indexed by position */
+	private final LongAdder[] time;
+	
+	/** The candidates removed by each stage, indexed by position */
+	private final LongAdder[] removed;
+	
+	/** The number of puzzles the pipeline has been measured on */
+	private final AtomicLong puzzles = new AtomicLong();
+	
+	/** The positions of the stages that are run, in the order they are run in */
+	private volatile int[] active;
+	
+	/** The positions of the stages that are run, then of the skipped ones */
+	private volatile int[] probing;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a pipeline. Each stage is known by its position in the list it
+	 * is first given in, however the stages are later reordered.
+	 * @param stages the stages, in the order they are first run in
+	 * @param adaptive whether to reorder the stages by how productive they are
+	 */
+	private TechniquePipeline(TechniqueStage[] stages, boolean adaptive) {
+		final int[] order = new int[stages.length];
+		
+		this.stages = stages.clone();
+		this.adaptive = adaptive;
+		this.time = new LongAdder[stages.length];
+		this.removed = new LongAdder[stages.length];
+		
+		for (int i = 0; i < stages.length; i++) {
+			final Technique technique = this.stages[i].getTechnique();
+			
+			if (technique == Technique.NAKED_SINGLE || technique == Technique.SEARCH) {
+				throw new IllegalArgumentException(technique + " can't be a stage");
+			}
+			
+			if (indexOf(this.stages[i]) != i) {
+				throw new IllegalArgumentException(this.stages[i] + " is in the pipeline twice");
+			}
+			
+			order[i] = i;
+			time[i] = new LongAdder();
+			removed[i] = new LongAdder();
+		}
+		
+		this.active = order;
+		this.probing = order;
+	}
+	
+	/**
+	 * Creates a fixed pipeline of built-in techniques.
+	 * @param techniques the techniques, in the order they are run in
+	 * @return the pipeline
+	 */
+	public static TechniquePipeline of(Technique... techniques) {
+		return new TechniquePipeline(stages(techniques), false);
+	}
+	
+	/**
+	 * Creates a fixed pipeline.
+	 * @param stages the stages, in the order they are run in
+	 * @return the pipeline
+	 */
+	public static TechniquePipeline of(TechniqueStage... stages) {
+		return new TechniquePipeline(stages, false);
+	}
+	
+	/**
+	 * Creates an adaptive pipeline of built-in techniques.
+	 * @param techniques the techniques, in the order they are first run in
+	 * @return the pipeline
+	 */
+	public static TechniquePipeline adaptive(Technique... techniques) {
+		return new TechniquePipeline(stages(techniques), true);
+	}
+	
+	/**
+	 * Creates an adaptive pipeline.
+	 * @param stages the stages, in the order they are first run in
+	 * @return the pipeline
+	 */
+	public static TechniquePipeline adaptive(TechniqueStage... stages) {
+		return new TechniquePipeline(stages, true);
+	}
+	
+	// ///////////////////// //
+	// Read-only properties. //
+	// ///////////////////// //
+	/**
+	 * Checks whether the stages are reordered by how productive they are.
+	 * @return true if the pipeline is adaptive; otherwise false
+	 */
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+	
+	/**
+	 * Gets the stages that are being run, in the order they are run in.
+	 * @return the stages
+	 */
+	public List<TechniqueStage> getStages() {
+		final int[] run = active;
+		
+		return stagesAt(run, 0, run.length);
+	}
+	
+	/**
+	 * Gets the stages that are being skipped because they haven't been
+	 * productive enough. A fixed pipeline never skips any stages.
+	 * @return the stages
+	 */
+	public List<TechniqueStage> getSkippedStages() {
+		final int[] all = probing;
+		
+		return stagesAt(all, active.length, all.length);
+	}
+	
+	/**
+	 * Gets the techniques used by every stage, whether or not it is skipped.
+	 * @return the techniques
+	 */
+	public Set<Technique> getTechniques() {
+		final Set<Technique> techniques = EnumSet.noneOf(Technique.class);
+		
+		for (TechniqueStage stage : stages) {
+			techniques.add(stage.getTechnique());
+		}
+		
+		return techniques;
+	}
+	
+	/**
+	 * Gets the number of candidates a stage has removed per microsecond,
+	 * including the other candidates of the cells it has filled in, as last
+	 * measured. Only adaptive pipelines measure their stages, and older
+	 * measurements count for less.
+	 * @param stage the stage
+	 * @return the rate, or 0 if the stage hasn't been measured
+	 * @throws IllegalArgumentException if the stage isn't in the pipeline
+	 */
+	public double getRate(TechniqueStage stage) {
+		final int i = indexOf(stage);
+		
+		if (i < 0) {
+			throw new IllegalArgumentException(stage + " isn't in the pipeline");
+		}
+		
+		return rate(time[i].sum(), removed[i].sum());
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	/**
+	 * Creates a stage for one of the built-in techniques.
+	 * @param technique the technique
+	 * @return the stage
+	 * @throws IllegalArgumentException if the technique is naked singles or
+	 *                                  the search, which aren't stages
+	 */
+	public static TechniqueStage stage(Technique technique) {
+		if (technique == Technique.NAKED_SINGLE || technique == Technique.SEARCH) {
+			throw new IllegalArgumentException(technique + " can't be a stage");
+		}
+		
+		return new BuiltInStage(technique);
+	}
+	
+	/**
+	 * Creates a stage for each of a list of built-in techniques.
+	 * @param techniques the techniques
+	 * @return the stages
+	 */
+	private static TechniqueStage[] stages(Technique[] techniques) {
+		final TechniqueStage[] stages = new TechniqueStage[techniques.length];
+		
+		for (int i = 0; i < techniques.length; i++) {
+			stages[i] = stage(techniques[i]);
+		}
+		
+		return stages;
+	}
+	
+	/**
+	 * Gets the position of a stage in the list the pipeline was made with.
+	 * @param stage the stage
+	 * @return the position, or -1 if the stage isn't in the pipeline
+	 */
+	private int indexOf(TechniqueStage stage) {
+		for (int i = 0; i < stages.length; i++) {
+			if (stages[i] == stage) {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Gets the stages at some of the positions in an ordering.
+	 * @param order the positions of the stages
+	 * @param from the first position to include
+	 * @param to the position after the last to include
+	 * @return the stages
+	 */
+	private List<TechniqueStage> stagesAt(int[] order, int from, int to) {
+		final List<TechniqueStage> list = new ArrayList<TechniqueStage>(to - from);
+		
+		for (int i = from; i < to; i++) {
+			list.add(stages[order[i]]);
+		}
+		
+		return Collections.unmodifiableList(list);
+	}
+	
+	/**
+	 * Gets every stage, whether or not it is skipped, in the order the
+	 * pipeline was made with. The array must not be changed.
+	 * @return the stages, indexed by position
+	 */
+	TechniqueStage[] getAllStages() {
+		return stages;
+	}
+	
+	/**
+	 * Gets the stages to run on a puzzle that isn't being measured, which
+	 * doesn't count towards the puzzles that are.
+	 * @return the positions of the stages, in the order to run them in
+	 */
+	int[] currentStages() {
+		return active;
+	}
+	
+	/**
+	 * Gets the stages to run on the next puzzle to be measured, whose
+	 * measurements must then be passed to {@link #record(long[], long[])}.
+	 * Every so often, the skipped stages are included, so they keep being
+	 * measured.
+	 * @return the positions of the stages, in the order to run them in
+	 */
+	int[] nextStages() {
+		if (adaptive && puzzles.get() % PROBE_INTERVAL == 0) {
+			return probing;
+		}
+		
+		return active;
+	}
+	
+	/**
+	 * Adds the measurements made by a solver on a puzzle, and reorders the
+	 * stages if enough puzzles have been measured since they last were.
+	 * @param stageTime the time spent in each stage, in nanoseconds, indexed
+	 *                  by position
+	 * @param stageRemoved the candidates removed by each stage, indexed by
+	 *                     position
+	 */
+	void record(long[] stageTime, long[] stageRemoved) {
+		for (int i = 0; i < stages.length; i++) {
+			if (stageTime[i] != 0) {
+				time[i].add(stageTime[i]);
+				removed[i].add(stageRemoved[i]);
+			}
+		}
+		
+		if (puzzles.incrementAndGet() % ADAPT_INTERVAL == 0) {
+			adapt();
+		}
+	}
+	
+	/**
+	 * Reorders the stages by the number of candidates they remove per
+	 * microsecond, and skips the ones far behind the best, apart from those
+	 * used while searching. The measurements are then halved, so that the
+	 * pipeline follows changes in the puzzles.
+	 */
+	private synchronized void adapt() {
+		final double[] rates = new double[stages.length];
+		double best = 0;
+		
+		for (int i = 0; i < stages.length; i++) {
+			final long t = time[i].sumThenReset();
+			final long r = removed[i].sumThenReset();
+			
+			rates[i] = rate(t, r);
+			best = Math.max(best, rates[i]);
+			time[i].add(t / 2);
+			removed[i].add(r / 2);
+		}
+		
+		final List<Integer> run = new ArrayList<Integer>();
+		final List<Integer> skip = new ArrayList<Integer>();
+		
+		for (int i = 0; i < stages.length; i++) {
+			if (rates[i] * SKIP_RATIO < best && !stages[i].isUsedWhileSearching()) {
+				skip.add(i);
+			} else {
+				run.add(i);
+			}
+		}
+		
+		// The sort is stable, so stages with the same rate keep their order
+		final Comparator<Integer> byRate = new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(rates[b], rates[a]);
+			}
+		};
+		
+		Collections.sort(run, byRate);
+		
+		final int[] nextActive = toArray(run);
+		
+		run.addAll(skip);
+		probing = toArray(run);
+		active = nextActive;
+	}
+	
+	/**
+	 * Copies a list of positions into an array.
+	 * @param positions the positions
+	 * @return the array
+	 */
+	private static int[] toArray(List<Integer> positions) {
+		final int[] array = new int[positions.size()];
+		
+		for (int i = 0; i < array.length; i++) {
+			array[i] = positions.get(i);
+		}
+		
+		return array;
+	}
+	
+	/**
+	 * Works out the number of candidates removed per microsecond.
+	 * @param nanos the time taken, in nanoseconds
+	 * @param count the number of candidates removed
+	 * @return the rate, or 0 if no time was taken
+	 */
+	private static double rate(long nanos, long count) {
+		return nanos == 0 ? 0 : count * 1e3 / nanos;
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder out = new StringBuilder(adaptive ? "adaptive[" : "[");
+		final int[] all = probing;
+		
+		for (int i = 0; i < all.length; i++) {
+			if (i > 0) {
+				out.append(", ");
+			}
+			
+			if (i == active.length) {
+				out.append("skipped: ");
+			}
+			
+			out.append(stages[all[i]]);
+		}
+		
+		return out.append(']').toString();
+	}
+	
+	// ////////////// //
+	// Inner classes. //
+	// ////////////// //
+	/**
+	 * A stage for one of the techniques built into the {@link Solver}.
+	 * 
+	 * @author Josh Tumath (jmt14@aber.ac.uk)
+	 */
+	private static final class BuiltInStage
+	implements TechniqueStage {
+		/** The technique */
+		private final Technique technique;
+		
+		/**
+		 * Creates a stage.
+		 * @param technique the technique
+		 */
+		BuiltInStage(Technique technique) {
+			this.technique = technique;
+		}
+		
+		@Override
+		public Technique getTechnique() {
+			return technique;
+		}
+		
+		@Override
+		public boolean isUsedWhileSearching() {
+			return technique == Technique.HIDDEN_SINGLE || technique == Technique.NAKED_PAIR;
+		}
+		
+		@Override
+		public void apply(Solver solver, int units) {
+			solver.applyTechnique(technique, units);
+		}
+		
+		@Override
+		public String toString() {
+			return technique.toString();
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+
+/**
+ * One stage of a {@link TechniquePipeline}: a logical technique that removes
+ * candidates from the grid loaded into a {@link Solver}. The solver runs the
+ * stages of its pipeline in order, and goes back to the first stage as soon
+ * as one of them removes a candidate or fills in a cell.
+ * 
+ * <p>The built-in techniques are made with {@link TechniquePipeline#stage}.
+ * Other stages can read the grid through {@link Solver#getCandidates(int)}
+ * and remove candidates with
+ * {@link Solver#removeCandidates(int, int, Technique)}; cells are filled in
+ * by the solver once they are left with one candidate.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public interface TechniqueStage {
+	/**
+	 * Gets the technique the stage's work is recorded as in the solver's
+	 * {@link SolveTrace}. A stage that isn't built in can use whichever
+	 * technique it is closest to, as each stage of a pipeline is measured on
+	 * its own whatever technique it uses.
+	 * @return the technique
+	 */
+	Technique getTechnique();
+	
+	/**
+	 * Checks whether the stage is cheap enough to run between the guesses of
+	 * a search, where it is run far more often than before the search
+	 * starts. An adaptive pipeline never skips these stages. The answer
+	 * shouldn't change.
+	 * @return true if the stage is run while searching; otherwise false
+	 */
+	boolean isUsedWhileSearching();
+	
+	/**
+	 * Applies the technique to the grid loaded into a solver.
+	 * @param solver the solver
+	 * @param units a mask of the units that have changed since the stage last
+	 *              ran, where bits 0 to 8 are the rows, 9 to 17 are the
+	 *              columns and 18 to 26 are the sub-grids. Nothing can have
+	 *              changed in the other units, so a technique that only looks
+	 *              within one unit at a time can skip them.
+	 */
+	void apply(Solver solver, int units);
+}
@@ -0,0 +1,87 @@
+package uk.ac.aber.cs211.sudoku.solver;
+
+
+/**
+ * Lookup tables for the 27 units (rows, columns and sub-grids) of a 9 x 9
+ * grid and the cells in them, worked out once so that the solvers never need
+ * to do any coordinate arithmetic while solving.
+ * 
+ * <p>Cells are indexed by {@code y * 9 + x}. Units 0 to 8 are the rows, 9 to
+ * 17 are the columns and 18 to 26 are the sub-grids, numbered from left to
+ * right and then top to bottom. Every table is a flat array, so the cells of
+ * unit {@code u} are found at {@code UNITS[u * 9]} to
+ * {@code UNITS[u * 9 + 8]}.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+final class Units {
+	// ////////// //
+	// Constants. //
+	// ////////// //
+	/** The number of units in the grid. */
+	static final int COUNT = 27;
+	
+	/** The number of peers each cell has. */
+	static final int PEER_COUNT = 20;
+	
+	/** A mask with a bit set for each of the 27 units of the grid. */
+	static final int ALL = (1 << COUNT) - 1;
+	
+	/** The 9 cells of each unit, in order from the top left. */
+	static final int[] UNITS = new int[COUNT * 9];
+	
+	/** The row, column and sub-grid unit of each cell, in that order. */
+	static final int[] CELL_UNITS = new int[81 * 3];
+	
+	/** A mask with a bit set for each of the three units of each cell. */
+	static final int[] CELL_UNIT_MASKS = new int[81];
+	
+	/**
+	 * The 20 other cells in the same row, column or sub-grid as each cell,
+	 * which are the only cells affected when a number is placed.
+	 */
+	static final int[] PEERS = new int[81 * PEER_COUNT];
+	
+	static {
+		for (int i = 0; i < 9; i++) {
+			for (int k = 0; k < 9; k++) {
+				UNITS[i * 9 + k] = i * 9 + k;
+				UNITS[(9 + i) * 9 + k] = k * 9 + i;
+				UNITS[(18 + i) * 9 + k] = (i / 3 * 3 + k / 3) * 9 + i % 3 * 3 + k % 3;
+			}
+		}
+		
+		for (int cell = 0; cell < 81; cell++) {
+			final int x = cell % 9;
+			final int y = cell / 9;
+			final int row = y;
+			final int col = 9 + x;
+			final int box = 18 + y / 3 * 3 + x / 3;
+			int count = 0;
+			
+			CELL_UNITS[cell * 3] = row;
+			CELL_UNITS[cell * 3 + 1] = col;
+			CELL_UNITS[cell * 3 + 2] = box;
+			CELL_UNIT_MASKS[cell] = 1 << row | 1 << col | 1 << box;
+			
+			for (int other = 0; other < 81; other++) {
+				final int otherX = other % 9;
+				final int otherY = other / 9;
+				
+				if (other != cell && (otherX == x || otherY == y
+						|| (otherX / 3 == x / 3 && otherY / 3 == y / 3))) {
+					PEERS[cell * PEER_COUNT + count++] = other;
+				}
+			}
+		}
+	}
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * The tables are only used statically.
+	 */
+	private Units() {
+	}
+}
@@ -0,0 +1,151 @@
+package uk.ac.aber.cs211.sudoku.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import uk.ac.aber.cs211.sudoku.batch.BatchSolver;
+import uk.ac.aber.cs211.sudoku.batch.BatchSummary;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+import uk.ac.aber.cs211.sudoku.solver.DancingLinksSolver;
+import uk.ac.aber.cs211.sudoku.solver.Engine;
+import uk.ac.aber.cs211.sudoku.solver.TechniquePipeline;
+
+public class BatchSolverTest {
+	private static final String EASY_PUZZLE =
+			"53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+	
+	private static final String EASY_SOLUTION =
+			"534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+	
+	/** A puzzle that singles can only fill in part of. */
+	private static final String X_WING_PUZZLE =
+			"....8...72.....6...7.....4...2..5.398..2.91..59..14.6.........39..7.....1..5.2...";
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Test
+	public void testWritesSolutionsInOrderAcrossThreads() throws Exception {
+		List<String> puzzles = new ArrayList<String>();
+		
+		// Each puzzle has a different set of clues taken from the same grid
+		for (int i = 0; i < 500; i++) {
+			char[] puzzle = EASY_SOLUTION.toCharArray();
+			
+			for (int cell = 0; cell < 81; cell++) {
+				if ((cell * 31 + i * 17) % 81 < 45) {
+					puzzle[cell] = '.';
+				}
+			}
+			
+			puzzles.add(new String(puzzle));
+		}
+		
+		BatchSummary summary = run(String.join("\n", puzzles) + "\n", Engine.DLX, 4, null);
+		List<String> output = Files.readAllLines(folder.getRoot().toPath().resolve("out.txt"));
+		DancingLinksSolver solver = new DancingLinksSolver();
+		
+		assertEquals(500, summary.getPuzzles());
+		assertEquals(0, summary.getUnsolved());
+		assertEquals(500, output.size());
+		
+		for (int i = 0; i < 500; i++) {
+			assertEquals("Line " + (i + 1) + " is out of order.",
+					solver.solve(PackedGrid.parse(puzzles.get(i))).toString(), output.get(i));
+		}
+	}
+	
+	@Test
+	public void testWritesUnsolvedPuzzlesAsReadAndReportsMalformedLines() throws Exception {
+		String input =
+				EASY_PUZZLE + "\n" +
+				X_WING_PUZZLE.replace('.', '0') + " 4.5\r\n" +
+				"# A comment\n" +
+				EASY_PUZZLE.substring(1) + "\n" +
+				EASY_PUZZLE;
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+		PrintStream err = System.err;
+		BatchSummary summary;
+		
+		System.setErr(new PrintStream(errors, true, "UTF-8"));
+		
+		try {
+			summary = run(input, Engine.LOGIC, 2, TechniquePipeline.SINGLES);
+		} finally {
+			System.setErr(err);
+		}
+		
+		List<String> output = Files.readAllLines(folder.getRoot().toPath().resolve("out.txt"));
+		
+		assertEquals(3, summary.getPuzzles());
+		assertEquals(1, summary.getUnsolved());
+		assertEquals(1, summary.getMalformed());
+		assertEquals(3, output.size());
+		assertEquals(EASY_SOLUTION, output.get(0));
+		assertEquals(X_WING_PUZZLE, output.get(1));
+		assertEquals(EASY_SOLUTION, output.get(2));
+		
+		String reported = new String(errors.toByteArray(), StandardCharsets.UTF_8);
+		
+		assertTrue(reported, reported.startsWith("Skipped line 4: "));
+	}
+	
+	@Test
+	public void testDoesNotCountCompleteButClashingPuzzlesAsSolved() throws Exception {
+		// Every cell is filled in, but the first row has two 4s
+		String clashing = "4" + EASY_SOLUTION.substring(1);
+		
+		for (Engine engine : Engine.values()) {
+			BatchSummary summary = run(clashing + "\n" + EASY_PUZZLE + "\n", engine, 1, null);
+			List<String> output = Files.readAllLines(folder.getRoot().toPath().resolve("out.txt"));
+			
+			assertEquals(engine.toString(), 1, summary.getUnsolved());
+			assertEquals(engine.toString(), clashing, output.get(0));
+			assertEquals(engine.toString(), EASY_SOLUTION, output.get(1));
+		}
+	}
+	
+	@Test
+	public void testLeavesPuzzlesSolvedTogetherOutOfLatency() throws Exception {
+		String input = EASY_PUZZLE + "\n" + X_WING_PUZZLE + "\n";
+		BatchSummary summary = run(input, Engine.LOCKSTEP, 1, null);
+		
+		assertEquals(2, summary.getPuzzles());
+		assertEquals(0, summary.getTimedPuzzles());
+		assertEquals(0, summary.getLatencyPercentile(50));
+		assertFalse(summary.toString(), summary.toString().contains("Latency"));
+		assertTrue(summary.toString(), summary.toString().contains("Not timed:   2"));
+		
+		summary = run(input, Engine.DLX, 1, null);
+		
+		assertEquals(2, summary.getTimedPuzzles());
+		assertTrue(summary.toString(), summary.toString().contains("Latency p99"));
+		assertFalse(summary.toString(), summary.toString().contains("Not timed"));
+	}
+	
+	/**
+	 * Solves a file of puzzles, writing the solutions to out.txt.
+	 */
+	private BatchSummary run(String input, Engine engine, int threads,
+			TechniquePipeline pipeline) throws Exception {
+		File in = new File(folder.getRoot(), "in.txt");
+		File out = new File(folder.getRoot(), "out.txt");
+		BatchSolver solver = new BatchSolver(in, out, threads, engine);
+		
+		Files.write(in.toPath(), input.getBytes(StandardCharsets.US_ASCII));
+		solver.setPipeline(pipeline);
+		
+		return solver.run();
+	}
+}
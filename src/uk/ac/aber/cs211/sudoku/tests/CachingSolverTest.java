@@ -0,0 +1,93 @@
+package uk.ac.aber.cs211.sudoku.tests;
+
+import static org.junit.Assert.*;
+import static uk.ac.aber.cs211.sudoku.tests.SolverTest.assertValidAndKeepsClues;
+import static uk.ac.aber.cs211.sudoku.tests.SolverTest.createGrid;
+
+import org.junit.Test;
+
+import uk.ac.aber.cs211.sudoku.model.Grid;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+import uk.ac.aber.cs211.sudoku.solver.CachingSolver;
+import uk.ac.aber.cs211.sudoku.solver.CanonicalForm;
+import uk.ac.aber.cs211.sudoku.solver.DancingLinksSolver;
+import uk.ac.aber.cs211.sudoku.solver.SolutionCache;
+
+public class CachingSolverTest {
+	private static final String PUZZLE =
+			"8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+	
+	@Test
+	public void testRearrangedPuzzlesShareCanonicalForm() {
+		PackedGrid puzzle = PackedGrid.parse(PUZZLE);
+		PackedGrid expected = CanonicalForm.of(puzzle).getGrid();
+		
+		for (String variant : variants(PUZZLE)) {
+			assertEquals("Different form for " + variant,
+					expected, CanonicalForm.of(PackedGrid.parse(variant)).getGrid());
+		}
+	}
+	
+	@Test
+	public void testCacheHitsAreMappedBackToEachVariant() {
+		SolutionCache cache = new SolutionCache(10);
+		CachingSolver solver = new CachingSolver(new DancingLinksSolver(), cache);
+		
+		assertTrue(solver.solve(createGrid(PUZZLE)));
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		
+		for (String variant : variants(PUZZLE)) {
+			Grid grid = createGrid(variant);
+			
+			assertTrue("Variant was not solved: " + variant, solver.solve(grid));
+			assertValidAndKeepsClues(variant, grid, true);
+		}
+		
+		assertEquals(variants(PUZZLE).length, cache.getHits());
+		assertEquals(1, cache.getSize());
+	}
+	
+	@Test
+	public void testLeastRecentlyUsedSolutionIsEvicted() {
+		SolutionCache cache = new SolutionCache(1);
+		CachingSolver solver = new CachingSolver(new DancingLinksSolver(), cache);
+		
+		solver.solve(PackedGrid.parse(PUZZLE));
+		solver.solve(PackedGrid.parse(
+				"53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79"));
+		solver.solve(PackedGrid.parse(PUZZLE));
+		
+		assertEquals(0, cache.getHits());
+		assertEquals(2, cache.getEvictions());
+		assertEquals(1, cache.getSize());
+	}
+	
+	/**
+	 * Rearranges a puzzle in ways that keep it valid: relabelling, transposing,
+	 * and swapping rows within a band, bands and stacks.
+	 */
+	private static String[] variants(String puzzle) {
+		char[] relabelled = new char[81];
+		char[] transposed = new char[81];
+		char[] rowsSwapped = new char[81];
+		char[] bandsSwapped = new char[81];
+		char[] stacksSwapped = new char[81];
+		
+		for (int i = 0; i < 81; i++) {
+			int x = i % 9, y = i / 9;
+			char c = puzzle.charAt(i);
+			
+			relabelled[i] = c == '.' ? c : (char) ('1' + (c - '1' + 4) % 9);
+			transposed[x * 9 + y] = c;
+			rowsSwapped[(y / 3 * 3 + 2 - y % 3) * 9 + x] = c;
+			bandsSwapped[((y + 3) % 9) * 9 + x] = c;
+			stacksSwapped[y * 9 + (x + 6) % 9] = c;
+		}
+		
+		return new String[] {
+			new String(relabelled), new String(transposed), new String(rowsSwapped),
+			new String(bandsSwapped), new String(stacksSwapped),
+		};
+	}
+}
@@ -0,0 +1,47 @@
+package uk.ac.aber.cs211.sudoku.tests;
+
+import static org.junit.Assert.*;
+import static uk.ac.aber.cs211.sudoku.tests.SolverTest.assertValidAndKeepsClues;
+import static uk.ac.aber.cs211.sudoku.tests.SolverTest.createGrid;
+
+import org.junit.Test;
+
+import uk.ac.aber.cs211.sudoku.model.Grid;
+import uk.ac.aber.cs211.sudoku.solver.DancingLinksSolver;
+
+public class DancingLinksSolverTest {
+	@Test
+	public void testSolvesSeveralPuzzlesWithOneInstance() {
+		DancingLinksSolver solver = new DancingLinksSolver();
+		String[] puzzles = {
+			"8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..",
+			// A 17 clue puzzle
+			"...8.1..........435............7.8........1...2..3....6......75..34........2..6..",
+			"53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79",
+		};
+		
+		for (String puzzle : puzzles) {
+			Grid grid = createGrid(puzzle);
+			
+			assertTrue("Puzzle was not solved: " + puzzle, solver.solve(grid));
+			assertValidAndKeepsClues(puzzle, grid, true);
+		}
+	}
+	
+	@Test
+	public void testRejectsClashingClues() {
+		DancingLinksSolver solver = new DancingLinksSolver();
+		String clashing =
+				"11...............................................................................";
+		String puzzle =
+				"53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+		
+		assertFalse("Puzzle with clashing clues was solved.", solver.solve(createGrid(clashing)));
+		
+		// The matrix must be restored for the next puzzle
+		Grid grid = createGrid(puzzle);
+		
+		assertTrue("Puzzle was not solved after a failure.", solver.solve(grid));
+		assertValidAndKeepsClues(puzzle, grid, true);
+	}
+}
@@ -0,0 +1,150 @@
+package uk.ac.aber.cs211.sudoku.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.ac.aber.cs211.sudoku.model.GeneralGrid;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+import uk.ac.aber.cs211.sudoku.solver.GeneralSolver;
+
+public class GeneralSolverTest {
+	@Test
+	public void testSolvesFourByFour() {
+		GeneralGrid puzzle = GeneralGrid.parse("1....2...3.....4");
+		GeneralGrid solution = new GeneralSolver(2).solve(puzzle);
+		
+		assertValidSolution(puzzle, solution);
+	}
+	
+	@Test
+	public void testSolvesNineByNineWithSolver() {
+		GeneralGrid puzzle = GeneralGrid.parse(
+				"8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..");
+		GeneralGrid solution = new GeneralSolver(3).solve(puzzle);
+		
+		assertValidSolution(puzzle, solution);
+		assertEquals(puzzle, GeneralGrid.of(puzzle.toPackedGrid()));
+		assertTrue(solution.toPackedGrid().isComplete());
+	}
+	
+	@Test
+	public void testSolvesLargerGrids() {
+		for (int boxSize = 4; boxSize <= 5; boxSize++) {
+			GeneralGrid puzzle = createPuzzle(boxSize, new Random(boxSize));
+			GeneralGrid solution = new GeneralSolver(boxSize).solve(puzzle);
+			
+			assertValidSolution(puzzle, solution);
+			assertEquals(puzzle, GeneralGrid.parse(puzzle.toString()));
+		}
+	}
+	
+	@Test
+	public void testRejectsPuzzleWithNoSolution() {
+		GeneralGrid puzzle = GeneralGrid.parse("11..............");
+		
+		assertSame(puzzle, new GeneralSolver(2).solve(puzzle));
+		
+		// The one in the top left sub-grid leaves nowhere for a one in the top
+		// row
+		byte[] cells = new byte[256];
+		
+		for (int x = 2; x < 16; x++) {
+			cells[x] = (byte) x;
+		}
+		
+		cells[16 + 2] = 1;
+		cells[15] = 16;
+		puzzle = GeneralGrid.of(4, cells);
+		
+		assertFalse(new GeneralSolver(4).solve(puzzle).isComplete());
+		
+		// The 9x9 solver fills in some of the cells of this puzzle before it
+		// finds that the 1 in the top row leaves no solution
+		puzzle = GeneralGrid.parse(
+				"531.7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79");
+		
+		assertSame(puzzle, new GeneralSolver(3).solve(puzzle));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsWrongBoxSize() {
+		new GeneralSolver(4).solve(GeneralGrid.of(PackedGrid.EMPTY));
+	}
+	
+	/**
+	 * Creates a puzzle by removing three quarters of the cells of a solved
+	 * grid, shuffled so that it isn't a simple pattern.
+	 * @param boxSize the width and height of each sub-grid
+	 * @param random chooses the cells to remove and how to shuffle the grid
+	 * @return the puzzle
+	 */
+	private static GeneralGrid createPuzzle(int boxSize, Random random) {
+		int size = boxSize * boxSize;
+		byte[] cells = new byte[size * size];
+		int[] relabel = new int[size];
+		
+		for (int i = 0; i < size; i++) {
+			relabel[i] = i;
+		}
+		
+		for (int i = size - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = relabel[i];
+			
+			relabel[i] = relabel[j];
+			relabel[j] = swap;
+		}
+		
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				int value = (y % boxSize * boxSize + y / boxSize + x) % size;
+				
+				if (random.nextInt(4) == 0) {
+					cells[y * size + x] = (byte) (relabel[value] + 1);
+				}
+			}
+		}
+		
+		return GeneralGrid.of(boxSize, cells);
+	}
+	
+	/**
+	 * Checks that a grid is a complete, valid solution of a puzzle.
+	 * @param puzzle the puzzle
+	 * @param solution the solution
+	 */
+	private static void assertValidSolution(GeneralGrid puzzle, GeneralGrid solution) {
+		int boxSize = puzzle.getBoxSize();
+		int size = puzzle.getSize();
+		
+		assertTrue("Puzzle was not solved: " + puzzle, solution.isComplete());
+		
+		for (int cell = 0; cell < puzzle.getCellCount(); cell++) {
+			if (puzzle.get(cell) != 0) {
+				assertEquals("Clue " + cell + " was changed.", puzzle.get(cell), solution.get(cell));
+			}
+		}
+		
+		for (int i = 0; i < size; i++) {
+			boolean[] row = new boolean[size + 1];
+			boolean[] column = new boolean[size + 1];
+			boolean[] box = new boolean[size + 1];
+			
+			for (int k = 0; k < size; k++) {
+				int x = i % boxSize * boxSize + k % boxSize;
+				int y = i / boxSize * boxSize + k / boxSize;
+				
+				assertFalse("Row " + i + " repeats a number.", row[solution.get(k, i)]);
+				assertFalse("Column " + i + " repeats a number.", column[solution.get(i, k)]);
+				assertFalse("Sub-grid " + i + " repeats a number.", box[solution.get(x, y)]);
+				
+				row[solution.get(k, i)] = true;
+				column[solution.get(i, k)] = true;
+				box[solution.get(x, y)] = true;
+			}
+		}
+	}
+}
@@ -2,10 +2,18 @@ package uk.ac.aber.cs211.sudoku.tests;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+
 import org.junit.Test;
 
+import uk.ac.aber.cs211.sudoku.model.Cell;
 import uk.ac.aber.cs211.sudoku.model.CellValue;
 import uk.ac.aber.cs211.sudoku.model.Grid;
+import uk.ac.aber.cs211.sudoku.model.GridChange;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
 
 public class GridTest {
 	@Test
@@ -39,4 +47,50 @@ public class GridTest {
 			// Expected behaviour
 		}
 	}
+	
+	@Test
+	public void testBatchedChangesNotifyOnce() {
+		Grid grid = new Grid();
+		final List<Object> events = new ArrayList<Object>();
+		
+		grid.addObserver(new Observer() {
+			@Override
+			public void update(Observable o, Object arg) {
+				events.add(arg);
+			}
+		});
+		
+		grid.setCell(0, 0, CellValue.ONE);
+		assertEquals(1, events.size());
+		assertTrue(events.get(0) instanceof Cell);
+		
+		grid.beginChanges();
+		grid.setCell(1, 0, CellValue.TWO);
+		grid.beginChanges();
+		grid.setCell(8, 8, CellValue.THREE);
+		grid.commitChanges();
+		assertEquals(1, events.size());
+		grid.commitChanges();
+		
+		assertEquals(2, events.size());
+		GridChange change = (GridChange) events.get(1);
+		
+		assertEquals(2, change.size());
+		assertTrue(change.isChanged(1, 0));
+		assertTrue(change.isChanged(8, 8));
+		assertFalse(change.isChanged(0, 0));
+		
+		// Only the cells that differ are set
+		grid.setCells(PackedGrid.EMPTY.with(0, 1).with(80, 4));
+		
+		assertEquals(3, events.size());
+		assertEquals(2, ((GridChange) events.get(2)).size());
+		assertEquals(CellValue.EMPTY, grid.getCell(1, 0).getValue());
+		assertEquals(CellValue.FOUR, grid.getCell(8, 8).getValue());
+		
+		// An empty batch sends nothing
+		grid.beginChanges();
+		grid.commitChanges();
+		assertEquals(3, events.size());
+	}
 }
@@ -0,0 +1,41 @@
+package uk.ac.aber.cs211.sudoku.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+import uk.ac.aber.cs211.sudoku.solver.DancingLinksSolver;
+import uk.ac.aber.cs211.sudoku.solver.LockstepSolver;
+
+public class LockstepSolverTest {
+	@Test
+	public void testSolvesMixedBatch() {
+		String[] lines = {
+			// Singles alone
+			"53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79",
+			// Needs a search
+			"8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..",
+			// A 17 clue puzzle
+			"...8.1..........435............7.8........1...2..3....6......75..34........2..6..",
+			// No solution, because a one has nowhere to go in the top row
+			".23456789..1" + ".....................................................................",
+		};
+		PackedGrid[] puzzles = new PackedGrid[lines.length * 5];
+		
+		for (int i = 0; i < puzzles.length; i++) {
+			puzzles[i] = PackedGrid.parse(lines[i % lines.length]);
+		}
+		
+		// Use fewer lanes than puzzles so that the last group isn't full
+		PackedGrid[] solutions = new LockstepSolver(8).solve(puzzles);
+		DancingLinksSolver reference = new DancingLinksSolver();
+		
+		for (int i = 0; i < puzzles.length; i++) {
+			assertEquals("Puzzle " + i + " was solved wrongly.",
+					reference.solve(puzzles[i]), solutions[i]);
+		}
+		
+		assertFalse(solutions[3].isComplete());
+	}
+}
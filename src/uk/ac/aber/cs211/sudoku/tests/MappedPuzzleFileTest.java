@@ -0,0 +1,98 @@
+package uk.ac.aber.cs211.sudoku.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import uk.ac.aber.cs211.sudoku.model.InvalidSudFileException;
+import uk.ac.aber.cs211.sudoku.model.MappedPuzzleFile;
+
+public class MappedPuzzleFileTest {
+	private static final String PUZZLE =
+			"53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+	
+	/** The line of the file that isn't a valid puzzle. */
+	private static final int MALFORMED_LINE = 8;
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Test
+	public void testChunksReadEveryLineOnceWhereverTheyAreSplit()
+	throws IOException, InvalidSudFileException {
+		StringBuilder text = new StringBuilder();
+		
+		// Every other line ends in CRLF, and the last line has no line break
+		for (int line = 1; line <= 20; line++) {
+			if (line == MALFORMED_LINE) {
+				text.append(PUZZLE.substring(1));
+			} else {
+				text.append((char) ('0' + (line - 1) % 9 + 1)).append(PUZZLE.substring(1));
+			}
+			
+			if (line < 20) {
+				text.append(line % 2 == 0 ? "\r\n" : "\n");
+			}
+		}
+		
+		File file = folder.newFile("puzzles.txt");
+		
+		Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.US_ASCII));
+		
+		try (MappedPuzzleFile puzzles = new MappedPuzzleFile(file)) {
+			// Most of the boundaries asked for are in the middle of a line
+			for (int count = 1; count <= 40; count++) {
+				List<MappedPuzzleFile.Chunk> chunks = puzzles.split(count);
+				List<Long> read = new ArrayList<Long>();
+				List<Long> malformed = new ArrayList<Long>();
+				byte[] cells = new byte[81];
+				long linesBefore = 0;
+				long bytes = 0;
+				
+				for (MappedPuzzleFile.Chunk chunk : chunks) {
+					while (chunk.hasNext()) {
+						try {
+							chunk.next(cells);
+						} catch (InvalidSudFileException e) {
+							malformed.add(linesBefore + e.getLineNumber());
+							continue;
+						}
+						
+						long line = linesBefore + chunk.getLineNumber();
+						
+						read.add(line);
+						assertEquals("Line " + line + " split " + count + " ways.",
+								(line - 1) % 9 + 1, cells[0]);
+						assertEquals(9, cells[80]);
+					}
+					
+					chunk.close();
+					assertFalse(chunk.hasNext());
+					linesBefore += chunk.getLinesRead();
+					bytes += chunk.getSize();
+				}
+				
+				assertEquals(puzzles.getSize(), bytes);
+				assertEquals(20, linesBefore);
+				assertEquals(19, read.size());
+				assertFalse(read.contains((long) MALFORMED_LINE));
+				assertEquals(20L, (long) read.get(read.size() - 1));
+				assertEquals(1, malformed.size());
+				assertEquals(MALFORMED_LINE, (long) malformed.get(0));
+				
+				for (int i = 1; i < read.size(); i++) {
+					assertTrue(read.get(i) > read.get(i - 1));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package uk.ac.aber.cs211.sudoku.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import uk.ac.aber.cs211.sudoku.model.CellValue;
+import uk.ac.aber.cs211.sudoku.model.Grid;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+import uk.ac.aber.cs211.sudoku.solver.DancingLinksSolver;
+import uk.ac.aber.cs211.sudoku.solver.PuzzleSolver;
+import uk.ac.aber.cs211.sudoku.solver.SolveMode;
+import uk.ac.aber.cs211.sudoku.solver.Solver;
+
+public class PackedGridTest {
+	private static final String PUZZLE =
+			"53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+	
+	@Test
+	public void testPackAndUnpack() {
+		PackedGrid grid = PackedGrid.parse(PUZZLE);
+		byte[] cells = new byte[81];
+		
+		grid.copyTo(cells);
+		
+		for (int i = 0; i < 81; i++) {
+			char c = PUZZLE.charAt(i);
+			int expected = c == '.' ? 0 : c - '0';
+			
+			assertEquals("Cell " + i + " was not packed.", expected, grid.get(i));
+			assertEquals("Cell " + i + " was not unpacked.", expected, cells[i]);
+		}
+		
+		assertEquals(30, grid.getClueCount());
+		assertFalse(grid.isComplete());
+		assertEquals(PUZZLE, grid.toString());
+		assertEquals(grid, PackedGrid.of(cells));
+		assertEquals(grid.hashCode(), PackedGrid.of(cells).hashCode());
+		assertNotEquals(grid, grid.with(80, 0));
+		assertEquals(0, grid.with(80, 0).get(80));
+	}
+	
+	@Test
+	public void testConvertToAndFromGrid() {
+		PackedGrid packed = PackedGrid.parse(PUZZLE);
+		Grid grid = packed.toGrid();
+		
+		assertEquals(CellValue.FIVE, grid.getCell(0, 0).getValue());
+		assertEquals(CellValue.SEVEN, grid.getCell(4, 0).getValue());
+		assertEquals(CellValue.NINE, grid.getCell(8, 8).getValue());
+		assertEquals(packed, PackedGrid.fromGrid(grid));
+	}
+	
+	@Test
+	public void testSolversAcceptPackedGrids() {
+		PackedGrid puzzle = PackedGrid.parse(PUZZLE);
+		PuzzleSolver[] solvers = {
+			new Solver(SolveMode.LOGIC_AND_SEARCH), new DancingLinksSolver()
+		};
+		
+		for (PuzzleSolver solver : solvers) {
+			PackedGrid solution = solver.solve(puzzle);
+			
+			assertTrue("Puzzle was not solved.", solution.isComplete());
+			SolverTest.assertValidAndKeepsClues(PUZZLE, solution.toGrid(), true);
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsInvalidCells() {
+		PackedGrid.of(new byte[] { 10 });
+	}
+}
@@ -0,0 +1,56 @@
+package uk.ac.aber.cs211.sudoku.tests;
+
+import static org.junit.Assert.*;
+import static uk.ac.aber.cs211.sudoku.tests.SolverTest.assertValidAndKeepsClues;
+import static uk.ac.aber.cs211.sudoku.tests.SolverTest.createGrid;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import uk.ac.aber.cs211.sudoku.model.Grid;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+import uk.ac.aber.cs211.sudoku.solver.ParallelSolver;
+
+public class ParallelSolverTest {
+	@Test
+	public void testSolvesHardPuzzles() {
+		ParallelSolver solver = new ParallelSolver(new ForkJoinPool(4));
+		String[] puzzles = {
+			"8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..",
+			// A 17 clue puzzle
+			"...8.1..........435............7.8........1...2..3....6......75..34........2..6..",
+		};
+		
+		for (String puzzle : puzzles) {
+			Grid grid = createGrid(puzzle);
+			
+			assertTrue("Puzzle was not solved: " + puzzle, solver.solve(grid));
+			assertValidAndKeepsClues(puzzle, grid, true);
+		}
+	}
+	
+	@Test
+	public void testCountsSolutions() {
+		ParallelSolver solver = new ParallelSolver(new ForkJoinPool(4));
+		
+		assertTrue(solver.hasUniqueSolution(PackedGrid.parse(
+				"...8.1..........435............7.8........1...2..3....6......75..34........2..6..")));
+		
+		// Removing a clue from a 17 clue puzzle leaves it with many solutions
+		PackedGrid ambiguous = PackedGrid.parse(
+				"...8.1..........435............7.8........1...2..3....6......75..34........2..6..")
+				.with(3, 0);
+		
+		assertFalse(solver.hasUniqueSolution(ambiguous));
+		assertEquals(2, solver.countSolutions(ambiguous, 2));
+		assertEquals(5, solver.countSolutions(PackedGrid.EMPTY, 5));
+		
+		// Both cells at (0,0) and (1,0) can only be a one
+		PackedGrid impossible = PackedGrid.parse(
+				"..23456789.......................................................................");
+		
+		assertEquals(0, solver.countSolutions(impossible, 2));
+		assertEquals(impossible, solver.solve(impossible));
+	}
+}
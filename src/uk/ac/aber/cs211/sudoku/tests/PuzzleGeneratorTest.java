@@ -0,0 +1,77 @@
+package uk.ac.aber.cs211.sudoku.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.ac.aber.cs211.sudoku.generator.Difficulty;
+import uk.ac.aber.cs211.sudoku.generator.DifficultyGrader;
+import uk.ac.aber.cs211.sudoku.generator.PuzzleGenerator;
+import uk.ac.aber.cs211.sudoku.generator.Symmetry;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+import uk.ac.aber.cs211.sudoku.solver.SolveMode;
+import uk.ac.aber.cs211.sudoku.solver.SolveTrace;
+import uk.ac.aber.cs211.sudoku.solver.Solver;
+
+public class PuzzleGeneratorTest {
+	@Test
+	public void testGeneratesSymmetricPuzzlesOfEachDifficulty() {
+		PuzzleGenerator generator = new PuzzleGenerator(new Random(42));
+		Solver solver = new Solver(SolveMode.LOGIC_AND_SEARCH);
+		
+		for (Difficulty difficulty : Difficulty.values()) {
+			for (int i = 0; i < 5; i++) {
+				PackedGrid puzzle = generator.generate(difficulty, Symmetry.ROTATIONAL);
+				
+				assertEquals("Puzzle doesn't have one solution: " + puzzle,
+						1, solver.countSolutions(puzzle, 2));
+				assertEquals(difficulty, generator.grade(puzzle));
+				
+				for (int cell = 0; cell < 81; cell++) {
+					assertEquals("Clues aren't symmetric: " + puzzle,
+							puzzle.get(cell) == 0, puzzle.get(80 - cell) == 0);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testGraderRatesHarderPuzzlesHigher() {
+		PuzzleGenerator generator = new PuzzleGenerator(new Random(3));
+		DifficultyGrader grader = new DifficultyGrader();
+		Solver solver = new Solver(SolveMode.LOGIC_AND_SEARCH);
+		int lastRating = -1;
+		
+		for (Difficulty difficulty : new Difficulty[] { Difficulty.EASY, Difficulty.EXPERT }) {
+			PackedGrid puzzle = generator.generate(difficulty, Symmetry.NONE);
+			SolveTrace trace = solver.solveWithMetrics(puzzle).getTrace();
+			int rating = grader.rate(trace);
+			
+			assertEquals(difficulty, grader.grade(trace));
+			assertTrue(difficulty + " rated " + rating, rating > lastRating);
+			
+			// The rating only depends on the puzzle, not on timing
+			assertEquals(rating, grader.rate(solver.solveWithMetrics(puzzle).getTrace()));
+			lastRating = rating;
+		}
+		
+		assertEquals(0, grader.rate(solver.solveWithMetrics(
+				solver.solve(generator.generate(Difficulty.EASY, Symmetry.NONE))).getTrace()));
+	}
+	
+	@Test
+	public void testNoClueCanBeRemoved() {
+		PuzzleGenerator generator = new PuzzleGenerator(new Random(7));
+		Solver solver = new Solver(SolveMode.LOGIC_AND_SEARCH);
+		PackedGrid puzzle = generator.generate(Difficulty.EXPERT, Symmetry.NONE);
+		
+		for (int cell = 0; cell < 81; cell++) {
+			if (puzzle.get(cell) != 0) {
+				assertEquals("Clue at " + cell + " could be removed from " + puzzle,
+						2, solver.countSolutions(puzzle.with(cell, 0), 2));
+			}
+		}
+	}
+}
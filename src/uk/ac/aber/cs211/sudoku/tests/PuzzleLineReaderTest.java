@@ -0,0 +1,64 @@
+package uk.ac.aber.cs211.sudoku.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import uk.ac.aber.cs211.sudoku.model.InvalidSudFileException;
+import uk.ac.aber.cs211.sudoku.model.PuzzleLineReader;
+
+public class PuzzleLineReaderTest {
+	private static final String PUZZLE =
+			"53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+	
+	@Test
+	public void testReadsPuzzlesAndReportsMalformedLines()
+	throws IOException, InvalidSudFileException {
+		String file =
+				"# A comment\n" +
+				PUZZLE + "\n" +
+				"\n" +
+				PUZZLE.replace('.', '0') + " 4.5\r\n" +
+				PUZZLE.substring(1) + "\n" +
+				PUZZLE.replace('.', 'x') + "\n" +
+				PUZZLE;
+		byte[] cells = new byte[81];
+		
+		try (PuzzleLineReader reader = new PuzzleLineReader(
+				new ByteArrayInputStream(file.getBytes("US-ASCII")))) {
+			assertTrue(reader.hasNext());
+			reader.next(cells);
+			assertEquals(2, reader.getLineNumber());
+			assertCells(cells);
+			
+			reader.next(cells);
+			assertEquals(4, reader.getLineNumber());
+			assertCells(cells);
+			
+			for (int line = 5; line <= 6; line++) {
+				try {
+					reader.next(cells);
+					fail("Malformed line " + line + " was read.");
+				} catch (InvalidSudFileException e) {
+					assertEquals(line, e.getLineNumber());
+				}
+			}
+			
+			reader.next(cells);
+			assertEquals(7, reader.getLineNumber());
+			assertCells(cells);
+			assertFalse(reader.hasNext());
+		}
+	}
+	
+	private static void assertCells(byte[] cells) {
+		for (int i = 0; i < 81; i++) {
+			char c = PUZZLE.charAt(i);
+			
+			assertEquals("Cell " + i + " was not read.", c == '.' ? 0 : c - '0', cells[i]);
+		}
+	}
+}
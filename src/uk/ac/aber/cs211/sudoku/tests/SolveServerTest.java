@@ -0,0 +1,160 @@
+package uk.ac.aber.cs211.sudoku.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+import uk.ac.aber.cs211.sudoku.server.SolveServer;
+
+public class SolveServerTest {
+	private static final String PUZZLE =
+			"53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+	
+	private static final String SOLUTION =
+			"534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+	
+	private SolveServer server;
+	
+	@Before
+	public void startServer() throws IOException {
+		server = new SolveServer(new InetSocketAddress("localhost", 0), 2, 1,
+				TimeUnit.MILLISECONDS, 100);
+		server.start();
+	}
+	
+	@After
+	public void stopServer() {
+		server.stop();
+	}
+	
+	@Test
+	public void testSolvesSinglePuzzle() throws IOException {
+		String response = post("{\"puzzle\": \"" + PUZZLE + "\"}", 200);
+		
+		assertTrue(response, response.startsWith("{\"puzzle\":\"" + PUZZLE + "\""));
+		assertTrue(response, response.contains("\"solution\":\"" + SOLUTION + "\""));
+		assertTrue(response, response.contains("\"solved\":true,\"unique\":true"));
+		assertTrue(response, response.contains("\"searchNodes\":0"));
+	}
+	
+	@Test
+	public void testSolvesBatch() throws IOException {
+		// An empty grid has many solutions
+		String ambiguous = PackedGrid.EMPTY.toString();
+		String response = post("[\"" + PUZZLE + "\", \"" + ambiguous + "\"]", 200);
+		
+		assertTrue(response, response.startsWith("{\"results\":[{\"puzzle\":\"" + PUZZLE + "\""));
+		assertTrue(response, response.contains("\"solved\":true,\"unique\":true"));
+		assertTrue(response, response.contains("\"solved\":true,\"unique\":false"));
+	}
+	
+	@Test
+	public void testAnswersManyRequestsAtOnce() throws Exception {
+		// More requests than there are threads to handle them
+		ExecutorService clients = Executors.newFixedThreadPool(64);
+		List<Future<String>> responses = new ArrayList<Future<String>>();
+		
+		try {
+			for (int i = 0; i < 64; i++) {
+				responses.add(clients.submit(new Callable<String>() {
+					@Override
+					public String call() throws IOException {
+						return post("{\"puzzle\": \"" + PUZZLE + "\"}", 200);
+					}
+				}));
+			}
+			
+			for (Future<String> response : responses) {
+				assertTrue(response.get().contains("\"solution\":\"" + SOLUTION + "\""));
+			}
+		} finally {
+			clients.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void testAdmitsWholeBatchesOnly() throws IOException {
+		StringBuilder full = new StringBuilder("[");
+		
+		// The server's queue holds 100 puzzles
+		for (int i = 0; i < 100; i++) {
+			full.append(i > 0 ? ",\"" : "\"").append(PUZZLE).append('"');
+		}
+		
+		String tooLarge = full + ",\"" + PUZZLE + "\"]";
+		String response = post(full.append(']').toString(), 200);
+		
+		assertEquals(response, 100, response.split("\"solution\"", -1).length - 1);
+		
+		response = post(tooLarge, 413);
+		
+		assertTrue(response, response.contains("at most 100 puzzles"));
+	}
+	
+	@Test
+	public void testRejectsBadRequests() throws IOException {
+		post("{\"puzzles\": [\"123\"]}", 400);
+		post("{\"puzzle\": ", 400);
+		post("{}", 400);
+		
+		// Nesting too deeply is a bad request rather than a stack overflow
+		char[] nested = new char[20000];
+		
+		Arrays.fill(nested, '[');
+		assertTrue(post(new String(nested), 400).contains("Too deeply nested"));
+	}
+	
+	/**
+	 * Sends a request to the server.
+	 * @param body the body of the request
+	 * @param expectedStatus the status the response should have
+	 * @return the body of the response
+	 * @throws IOException if the request fails
+	 */
+	private String post(String body, int expectedStatus) throws IOException {
+		URL url = new URL("http://localhost:" + server.getPort() + "/solve");
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		
+		try (OutputStream out = connection.getOutputStream()) {
+			out.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+		
+		assertEquals(expectedStatus, connection.getResponseCode());
+		
+		try (InputStream in = expectedStatus == 200
+				? connection.getInputStream() : connection.getErrorStream()) {
+			ByteArrayOutputStream response = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int read;
+			
+			while ((read = in.read(buffer)) > 0) {
+				response.write(buffer, 0, read);
+			}
+			
+			return new String(response.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+}
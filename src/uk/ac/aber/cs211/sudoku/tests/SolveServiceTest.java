@@ -0,0 +1,130 @@
+package uk.ac.aber.cs211.sudoku.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+import uk.ac.aber.cs211.sudoku.service.SolveOptions;
+import uk.ac.aber.cs211.sudoku.service.SolveService;
+import uk.ac.aber.cs211.sudoku.solver.SolveMode;
+import uk.ac.aber.cs211.sudoku.solver.SolveResult;
+import uk.ac.aber.cs211.sudoku.solver.Solver;
+import uk.ac.aber.cs211.sudoku.solver.TechniquePipeline;
+
+public class SolveServiceTest {
+	/** A 17 clue puzzle. */
+	private static final PackedGrid PUZZLE = PackedGrid.parse(
+			"...8.1..........435............7.8........1...2..3....6......75..34........2..6..");
+	
+	@Test
+	public void testSolvesPuzzles() throws Exception {
+		try (SolveService service = new SolveService(2, 10)) {
+			SolveResult result = service.solve(PUZZLE, SolveOptions.DEFAULT).get();
+			
+			assertTrue(result.isSolved());
+			
+			// This puzzle can't be solved without searching
+			PackedGrid hard = PackedGrid.parse(
+					"8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..");
+			SolveOptions logicOnly = new SolveOptions(SolveMode.LOGIC_ONLY, 0, TimeUnit.SECONDS);
+			
+			assertFalse(service.solve(hard, logicOnly).get().isSolved());
+			
+			// Each puzzle can be given its own techniques
+			PackedGrid xWing = PackedGrid.parse(
+					"....8...72.....6...7.....4...2..5.398..2.91..59..14.6.........39..7.....1..5.2...");
+			
+			assertTrue(service.solve(xWing, logicOnly).get().isSolved());
+			assertFalse(service.solve(xWing,
+					logicOnly.withPipeline(TechniquePipeline.SINGLES)).get().isSolved());
+		}
+	}
+	
+	@Test
+	public void testRejectsPuzzlesOnceFull() throws Exception {
+		try (SolveService service = new SolveService(1, 1)) {
+			List<CompletableFuture<SolveResult>> futures = submit(service, SolveOptions.DEFAULT);
+			int rejected = 0;
+			
+			for (CompletableFuture<SolveResult> future : futures) {
+				try {
+					assertTrue(future.get().isSolved());
+				} catch (ExecutionException e) {
+					assertTrue(e.getCause() instanceof RejectedExecutionException);
+					rejected++;
+				}
+			}
+			
+			assertTrue("No puzzles were rejected.", rejected > 0);
+			assertTrue("Every puzzle was rejected.", rejected < futures.size());
+		}
+	}
+	
+	@Test
+	public void testMissedDeadlinesTimeOut() throws Exception {
+		try (SolveService service = new SolveService(1, 100)) {
+			// The puzzles at the back of the queue can't all be solved in time
+			List<CompletableFuture<SolveResult>> futures = submit(
+					service, SolveOptions.DEFAULT.withTimeout(1, TimeUnit.MILLISECONDS));
+			int timedOut = 0;
+			
+			for (CompletableFuture<SolveResult> future : futures) {
+				try {
+					assertTrue(future.get().isSolved());
+				} catch (ExecutionException e) {
+					assertTrue(e.getCause() instanceof TimeoutException);
+					timedOut++;
+				}
+			}
+			
+			assertTrue("No puzzles timed out.", timedOut > 0);
+		}
+	}
+	
+	@Test
+	public void testCancelStopsSolver() throws Exception {
+		Solver solver = new Solver(SolveMode.LOGIC_AND_SEARCH);
+		
+		solver.cancel();
+		
+		assertFalse(solver.solve(PUZZLE).isComplete());
+		
+		try (SolveService service = new SolveService(1, 100)) {
+			List<CompletableFuture<SolveResult>> futures = submit(service, SolveOptions.DEFAULT);
+			
+			for (CompletableFuture<SolveResult> future : futures) {
+				future.cancel(true);
+			}
+			
+			for (CompletableFuture<SolveResult> future : futures) {
+				assertTrue(future.isCancelled() || future.get().isSolved());
+			}
+		}
+	}
+	
+	/**
+	 * Submits a hundred copies of the puzzle as quickly as possible.
+	 * @param service the service
+	 * @param options the options for each puzzle
+	 * @return the futures of the results
+	 */
+	private static List<CompletableFuture<SolveResult>> submit(SolveService service,
+			SolveOptions options) {
+		List<CompletableFuture<SolveResult>> futures = new ArrayList<CompletableFuture<SolveResult>>();
+		
+		for (int i = 0; i < 100; i++) {
+			futures.add(service.solve(PUZZLE, options));
+		}
+		
+		return futures;
+	}
+}
@@ -2,11 +2,26 @@ package uk.ac.aber.cs211.sudoku.tests;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+
 import org.junit.Test;
 
 import uk.ac.aber.cs211.sudoku.model.CellValue;
 import uk.ac.aber.cs211.sudoku.model.Grid;
+import uk.ac.aber.cs211.sudoku.model.GridChange;
+import uk.ac.aber.cs211.sudoku.model.PackedGrid;
+import uk.ac.aber.cs211.sudoku.solver.SolveMode;
+import uk.ac.aber.cs211.sudoku.solver.SolveResult;
+import uk.ac.aber.cs211.sudoku.solver.SolveTrace;
 import uk.ac.aber.cs211.sudoku.solver.Solver;
+import uk.ac.aber.cs211.sudoku.solver.StepListener;
+import uk.ac.aber.cs211.sudoku.solver.Technique;
+import uk.ac.aber.cs211.sudoku.solver.TechniquePipeline;
+import uk.ac.aber.cs211.sudoku.solver.TechniqueStage;
 
 public class SolverTest {
 	@Test
@@ -38,5 +53,432 @@ public class SolverTest {
 			fail("Solver thread did not finish.");
 		}
 	}
-
+	
+	@Test
+	public void testLogicOnlyLeavesHardPuzzleUnsolved() {
+		Grid grid = createGrid(HARD_PUZZLE);
+		Solver solver = new Solver(grid);
+		
+		solver.run();
+		
+		assertFalse("Hard puzzle was solved without searching.", solver.isSolved());
+		assertValidAndKeepsClues(HARD_PUZZLE, grid, false);
+	}
+	
+	@Test
+	public void testSearchSolvesHardPuzzle() {
+		Grid grid = createGrid(HARD_PUZZLE);
+		Solver solver = new Solver(grid, SolveMode.LOGIC_AND_SEARCH);
+		
+		solver.run();
+		
+		assertTrue("Hard puzzle was not solved.", solver.isSolved());
+		assertValidAndKeepsClues(HARD_PUZZLE, grid, true);
+	}
+	
+	@Test
+	public void testCheckingOtherPuzzlesKeepsGridToSolve() {
+		Grid grid = createGrid(HARD_PUZZLE);
+		Grid other = createGrid(EASY_PUZZLE);
+		Solver solver = new Solver(grid, SolveMode.LOGIC_AND_SEARCH);
+		
+		assertTrue(solver.hasUniqueSolution(PackedGrid.parse(EASY_PUZZLE)));
+		assertEquals(1, solver.countSolutions(other, 2));
+		assertNotNull(solver.solve(PackedGrid.parse(EASY_PUZZLE)));
+		
+		solver.run();
+		
+		assertTrue("Hard puzzle was not solved.", solver.isSolved());
+		assertValidAndKeepsClues(HARD_PUZZLE, grid, true);
+		assertEquals(CellValue.EMPTY, other.getCell(2, 0).getValue());
+	}
+	
+	@Test
+	public void testSearchRejectsPuzzleWithNoSolution() {
+		// Both cells at (0,0) and (1,0) can only be a one
+		Grid grid = createGrid(
+				"..23456789........1...............................................................");
+		Solver solver = new Solver(grid, SolveMode.LOGIC_AND_SEARCH);
+		
+		solver.run();
+		
+		assertFalse("Puzzle with no solution was solved.", solver.isSolved());
+	}
+	
+	@Test
+	public void testMetricsShowHowPuzzleWasSolved() {
+		Solver solver = new Solver(SolveMode.LOGIC_AND_SEARCH);
+		SolveResult easy = solver.solveWithMetrics(PackedGrid.parse(EASY_PUZZLE));
+		
+		assertTrue("Easy puzzle was not solved.", easy.isSolved());
+		assertEquals(81 - 30, easy.getMetrics().getNakedSingles()
+				+ easy.getMetrics().getHiddenSingles());
+		assertEquals(0, easy.getMetrics().getSearchNodes());
+		assertTrue(easy.getMetrics().getIterations() > 0);
+		
+		SolveResult hard = solver.solveWithMetrics(PackedGrid.parse(HARD_PUZZLE));
+		
+		assertTrue("Hard puzzle was not solved.", hard.isSolved());
+		assertTrue(hard.getMetrics().getSearchNodes() > 0);
+		assertTrue(hard.getMetrics().getBacktracks() > 0);
+		
+		// The metrics of the first puzzle are kept
+		assertEquals(0, easy.getMetrics().getSearchNodes());
+	}
+	
+	@Test
+	public void testTraceShowsHowEachCellWasFilledIn() {
+		Solver solver = new Solver(SolveMode.LOGIC_AND_SEARCH);
+		SolveTrace easy = solver.solveWithMetrics(PackedGrid.parse(EASY_PUZZLE)).getTrace();
+		
+		assertTrue(easy.isClue(0));
+		assertNull(easy.getTechnique(0));
+		assertNotNull(easy.getTechnique(2));
+		assertTrue(easy.getRound(2) > 0);
+		assertEquals(81 - 30, easy.getCount(Technique.NAKED_SINGLE)
+				+ easy.getCount(Technique.HIDDEN_SINGLE));
+		assertFalse(easy.isSearchUsed());
+		assertEquals(0, easy.getUnsolvedCount());
+		
+		SolveTrace hard = solver.solveWithMetrics(PackedGrid.parse(HARD_PUZZLE)).getTrace();
+		
+		assertTrue(hard.isSearchUsed());
+		assertEquals(Technique.SEARCH, hard.getHardestTechnique());
+		assertEquals(0, hard.getUnsolvedCount());
+		
+		solver = new Solver(SolveMode.LOGIC_ONLY);
+		solver.solve(PackedGrid.parse(HARD_PUZZLE));
+		
+		assertFalse(solver.getTrace().isSearchUsed());
+		assertTrue(solver.getTrace().getUnsolvedCount() > 0);
+	}
+	
+	@Test
+	public void testHarderTechniquesCanBeTurnedOff() {
+		Solver solver = new Solver(SolveMode.LOGIC_ONLY);
+		PackedGrid puzzle = PackedGrid.parse(X_WING_PUZZLE);
+		
+		assertEquals(EnumSet.allOf(Technique.class), solver.getTechniques());
+		assertTrue(solver.solve(puzzle).isComplete());
+		assertTrue(solver.getTrace().getCount(Technique.X_WING) > 0);
+		assertTrue(solver.getTrace().getCount(Technique.LOCKED_CANDIDATES) > 0);
+		assertEquals(Technique.X_WING, solver.getTrace().getHardestTechnique());
+		
+		solver.setTechniques(EnumSet.of(Technique.HIDDEN_SINGLE, Technique.NAKED_PAIR));
+		
+		assertFalse(solver.solve(puzzle).isComplete());
+		assertEquals(0, solver.getTrace().getCount(Technique.LOCKED_CANDIDATES));
+		assertEquals(EnumSet.of(Technique.NAKED_SINGLE, Technique.HIDDEN_SINGLE,
+				Technique.NAKED_PAIR, Technique.SEARCH), solver.getTechniques());
+		
+		// Searching solvers leave the harder techniques off unless asked
+		assertFalse(new Solver(SolveMode.LOGIC_AND_SEARCH).getTechniques()
+				.contains(Technique.X_WING));
+	}
+	
+	@Test
+	public void testPipelineCanHaveCustomStages() {
+		Solver solver = new Solver(SolveMode.LOGIC_ONLY);
+		PackedGrid puzzle = PackedGrid.parse(X_WING_PUZZLE);
+		
+		solver.setPipeline(TechniquePipeline.SINGLES);
+		
+		assertFalse(solver.solve(puzzle).isComplete());
+		assertEquals(0, solver.getMetrics().getAdvancedEliminations());
+		
+		// Hidden singles written against the public API, run before the
+		// built-in X-wing stage
+		final int[] calls = new int[1];
+		TechniqueStage hiddenSingles = new TechniqueStage() {
+			@Override
+			public Technique getTechnique() {
+				return Technique.HIDDEN_SINGLE;
+			}
+			
+			@Override
+			public boolean isUsedWhileSearching() {
+				return true;
+			}
+			
+			@Override
+			public void apply(Solver solver, int units) {
+				calls[0]++;
+				
+				for (int unit = 0; unit < 27; unit++) {
+					for (int bit = 1; bit < 1 << 9; bit <<= 1) {
+						int count = 0;
+						int found = -1;
+						
+						for (int k = 0; k < 9; k++) {
+							int cell = cellOf(unit, k);
+							
+							if ((solver.getCandidates(cell) & bit) != 0) {
+								count++;
+								found = cell;
+							}
+						}
+						
+						if (count == 1) {
+							solver.removeCandidates(found, ~bit, getTechnique());
+						}
+					}
+				}
+			}
+		};
+		
+		solver.setPipeline(TechniquePipeline.of(hiddenSingles,
+				TechniquePipeline.stage(Technique.LOCKED_CANDIDATES),
+				TechniquePipeline.stage(Technique.X_WING)));
+		
+		assertTrue(solver.solve(puzzle).isComplete());
+		assertTrue(calls[0] > 0);
+		assertTrue(solver.getTrace().getCount(Technique.X_WING) > 0);
+		
+		// The custom stage is its own stage, even with the same technique
+		TechniqueStage builtIn = TechniquePipeline.stage(Technique.HIDDEN_SINGLE);
+		TechniquePipeline both = TechniquePipeline.adaptive(hiddenSingles, builtIn);
+		
+		assertEquals(2, both.getStages().size());
+		assertEquals(0, both.getRate(builtIn), 0);
+		
+		try {
+			TechniquePipeline.of(builtIn, builtIn);
+			fail("A stage was used twice.");
+		} catch (IllegalArgumentException e) {
+		}
+		
+		try {
+			TechniquePipeline.stage(Technique.NAKED_SINGLE);
+			fail("Naked singles were made into a stage.");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+	
+	@Test
+	public void testAdaptivePipelineSkipsUnproductiveStages() {
+		TechniqueStage singles = TechniquePipeline.stage(Technique.HIDDEN_SINGLE);
+		TechniqueStage hiddenQuads = TechniquePipeline.stage(Technique.HIDDEN_QUAD);
+		TechniquePipeline pipeline = TechniquePipeline.adaptive(singles,
+				TechniquePipeline.stage(Technique.NAKED_QUAD), hiddenQuads);
+		Solver solver = new Solver(SolveMode.LOGIC_AND_SEARCH);
+		PackedGrid puzzle = PackedGrid.parse(HARD_PUZZLE);
+		PackedGrid solution = new Solver(SolveMode.LOGIC_AND_SEARCH).solve(puzzle);
+		
+		solver.setPipeline(pipeline);
+		
+		assertTrue(pipeline.isAdaptive());
+		assertEquals(3, pipeline.getStages().size());
+		
+		for (int i = 0; i < 1024; i++) {
+			assertEquals(solution, solver.solve(puzzle));
+		}
+		
+		// Quads hardly ever find anything, so they aren't worth their time
+		assertSame(singles, pipeline.getStages().get(0));
+		assertFalse(pipeline.getSkippedStages().isEmpty());
+		assertTrue(pipeline.getRate(singles) > pipeline.getRate(hiddenQuads));
+	}
+	
+	@Test
+	public void testAdaptivePipelineKeepsStagesUsedWhileSearching() {
+		PackedGrid puzzle = PackedGrid.parse(HIDDEN_SINGLES_PUZZLE);
+		final PackedGrid solution = new Solver(SolveMode.LOGIC_AND_SEARCH).solve(puzzle);
+		final boolean[] cheating = { true };
+		
+		// While it is turned on, a stage that knows the solution does all of
+		// the work, so hidden singles never get to remove anything
+		TechniqueStage cheat = new TechniqueStage() {
+			@Override
+			public Technique getTechnique() {
+				return Technique.LOCKED_CANDIDATES;
+			}
+			
+			@Override
+			public boolean isUsedWhileSearching() {
+				return false;
+			}
+			
+			@Override
+			public void apply(Solver solver, int units) {
+				for (int cell = 0; cell < 81 && cheating[0]; cell++) {
+					int bit = 1 << solution.get(cell) - 1;
+					
+					solver.removeCandidates(cell, ~bit, getTechnique());
+				}
+			}
+		};
+		TechniqueStage hiddenSingles = TechniquePipeline.stage(Technique.HIDDEN_SINGLE);
+		TechniquePipeline pipeline = TechniquePipeline.adaptive(cheat, hiddenSingles);
+		Solver solver = new Solver(SolveMode.LOGIC_ONLY);
+		
+		solver.setPipeline(pipeline);
+		
+		for (int i = 0; i < 1024; i++) {
+			assertEquals(solution, solver.solve(puzzle));
+		}
+		
+		assertEquals(0, pipeline.getRate(hiddenSingles), 0);
+		assertTrue(pipeline.getSkippedStages().isEmpty());
+		
+		// Logic alone still solves the puzzle, on every puzzle and not just
+		// the ones that probe the skipped stages
+		cheating[0] = false;
+		
+		for (int i = 0; i < TechniquePipeline.PROBE_INTERVAL * 2; i++) {
+			assertEquals(solution, solver.solve(puzzle));
+		}
+	}
+	
+	@Test
+	public void testCountsSolutionsWithoutChangingGrid() {
+		Solver solver = new Solver(SolveMode.LOGIC_ONLY);
+		Grid grid = createGrid(HARD_PUZZLE);
+		
+		assertEquals(1, solver.countSolutions(grid, 2));
+		assertValidAndKeepsClues(HARD_PUZZLE, grid, false);
+		assertEquals(CellValue.EMPTY, grid.getCell(1, 0).getValue());
+		
+		assertTrue(solver.hasUniqueSolution(PackedGrid.parse(EASY_PUZZLE)));
+		assertEquals(2, solver.countSolutions(PackedGrid.parse(HARD_PUZZLE).with(0, 0), 2));
+		assertEquals(10, solver.countSolutions(PackedGrid.EMPTY, 10));
+		assertEquals(0, solver.countSolutions(PackedGrid.parse(
+				"..23456789......................................................................."), 2));
+	}
+	
+	@Test
+	public void testPublishesSolutionOnceUnlessReplaying() {
+		Grid grid = createGrid(HARD_PUZZLE);
+		final List<Object> events = new ArrayList<Object>();
+		
+		grid.addObserver(new Observer() {
+			@Override
+			public void update(Observable o, Object arg) {
+				events.add(arg);
+			}
+		});
+		
+		Solver solver = new Solver(grid, SolveMode.LOGIC_AND_SEARCH);
+		
+		solver.run();
+		
+		assertTrue(solver.isSolved());
+		assertEquals(1, events.size());
+		assertEquals(81 - 21, ((GridChange) events.get(0)).size());
+		assertValidAndKeepsClues(HARD_PUZZLE, grid, true);
+		
+		// A step listener sees each number as it's put in the grid
+		final int[] steps = new int[1];
+		
+		grid = createGrid(EASY_PUZZLE);
+		solver = new Solver(grid, SolveMode.LOGIC_AND_SEARCH);
+		solver.setStepListener(new StepListener() {
+			@Override
+			public boolean cellSolved(int x, int y, CellValue value) {
+				steps[0]++;
+				return true;
+			}
+		});
+		solver.run();
+		
+		assertEquals(81 - 30, steps[0]);
+		assertValidAndKeepsClues(EASY_PUZZLE, grid, true);
+		
+		// Once the listener asks to stop, the rest of a search's solution
+		// isn't shown
+		steps[0] = 0;
+		grid = createGrid(HARD_PUZZLE);
+		solver = new Solver(grid, SolveMode.LOGIC_AND_SEARCH);
+		solver.setStepListener(new StepListener() {
+			@Override
+			public boolean cellSolved(int x, int y, CellValue value) {
+				steps[0]++;
+				return false;
+			}
+		});
+		solver.run();
+		
+		assertEquals(1, steps[0]);
+		assertValidAndKeepsClues(HARD_PUZZLE, grid, false);
+	}
+	
+	/** A puzzle with 30 clues that can be solved by singles alone. */
+	private static final String EASY_PUZZLE =
+			"53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+	
+	/** A puzzle that needs hidden singles as well as naked singles. */
+	private static final String HIDDEN_SINGLES_PUZZLE =
+			"..5......1...8........6.78.2.1.9....8.....3...4..718...2.6...199....367......4...";
+	
+	/** A puzzle that can't be solved by naked/hidden singles and naked pairs. */
+	private static final String HARD_PUZZLE =
+			"8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+	
+	/** A puzzle that needs locked candidates and an X-wing to solve by logic. */
+	private static final String X_WING_PUZZLE =
+			"....8...72.....6...7.....4...2..5.398..2.91..59..14.6.........39..7.....1..5.2...";
+	
+	/**
+	 * Gets a cell of a unit, where units 0 to 8 are the rows, 9 to 17 are the
+	 * columns and 18 to 26 are the sub-grids.
+	 */
+	static int cellOf(int unit, int k) {
+		int i = unit % 9;
+		
+		if (unit < 9) {
+			return i * 9 + k;
+		} else if (unit < 18) {
+			return k * 9 + i;
+		} else {
+			return (i / 3 * 3 + k / 3) * 9 + i % 3 * 3 + k % 3;
+		}
+	}
+	
+	/**
+	 * Creates a grid from a string of 81 characters, read left to right and
+	 * top to bottom, where '.' is an empty cell.
+	 */
+	static Grid createGrid(String puzzle) {
+		Grid grid = new Grid();
+		
+		for (int i = 0; i < 81; i++) {
+			char c = puzzle.charAt(i);
+			
+			if (c != '.') {
+				grid.setCell(i % 9, i / 9, CellValue.values()[c - '0']);
+			}
+		}
+		
+		return grid;
+	}
+	
+	/**
+	 * Checks that a grid keeps the puzzle's clues and has no number repeated
+	 * in a row, column or sub-grid.
+	 */
+	static void assertValidAndKeepsClues(String puzzle, Grid grid, boolean complete) {
+		for (int i = 0; i < 81; i++) {
+			CellValue value = grid.getCell(i % 9, i / 9).getValue();
+			char c = puzzle.charAt(i);
+			
+			if (c != '.') {
+				assertEquals("Clue at " + i + " was changed.", c - '0', value.ordinal());
+			} else if (complete) {
+				assertNotEquals("Cell at " + i + " is empty.", CellValue.EMPTY, value);
+			}
+		}
+		
+		for (int a = 0; a < 81; a++) {
+			for (int b = a + 1; b < 81; b++) {
+				int ax = a % 9, ay = a / 9, bx = b % 9, by = b / 9;
+				boolean peers = ax == bx || ay == by
+						|| (ax / 3 == bx / 3 && ay / 3 == by / 3);
+				CellValue value = grid.getCell(ax, ay).getValue();
+				
+				if (peers && value != CellValue.EMPTY) {
+					assertNotEquals("Cells " + a + " and " + b + " clash.",
+							value, grid.getCell(bx, by).getValue());
+				}
+			}
+		}
+	}
 }
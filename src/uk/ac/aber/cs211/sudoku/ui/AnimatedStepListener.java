@@ -0,0 +1,45 @@
+package uk.ac.aber.cs211.sudoku.ui;
+
+import uk.ac.aber.cs211.sudoku.model.CellValue;
+import uk.ac.aber.cs211.sudoku.solver.StepListener;
+
+
+/**
+ * Paces a solver so that the user can watch the puzzle being solved
+ * step-by-step. The solver is stopped if its thread is interrupted.
+ * 
+ * @author Josh Tumath (jmt14@aber.ac.uk)
+ */
+public class AnimatedStepListener
+implements StepListener {
+	// /////////////////// //
+	// Instance variables. //
+	// /////////////////// //
+	/** The time to wait after each step, in milliseconds */
+	private final long delay;
+	
+	// ///////////// //
+	// Constructors. //
+	// ///////////// //
+	/**
+	 * Creates a listener that waits after each step.
+	 * @param delay the time to wait after each step, in milliseconds
+	 */
+	public AnimatedStepListener(long delay) {
+		this.delay = delay;
+	}
+	
+	// //////// //
+	// Methods. //
+	// //////// //
+	@Override
+	public boolean cellSolved(int x, int y, CellValue value) {
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			return false;
+		}
+		
+		return true;
+	}
+}
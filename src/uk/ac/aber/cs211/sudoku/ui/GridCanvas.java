@@ -10,6 +10,7 @@ import javax.swing.JPanel;
 
 import uk.ac.aber.cs211.sudoku.model.Cell;
 import uk.ac.aber.cs211.sudoku.model.Grid;
+import uk.ac.aber.cs211.sudoku.model.GridChange;
 
 
 /**
@@ -122,6 +123,16 @@ implements Observer {
 				Cell cell = (Cell) arg;
 				
 				repaintCell(cell.getX(), cell.getY());
+			} else if (arg instanceof GridChange) {
+				GridChange change = (GridChange) arg;
+				
+				for (int x = 0; x < 9; x++) {
+					for (int y = 0; y < 9; y++) {
+						if (change.isChanged(x, y)) {
+							repaintCell(x, y);
+						}
+					}
+				}
 			} else {
 				repaintGrid();
 			}
@@ -12,11 +12,15 @@ import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 import javax.swing.JToolBar;
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+import javax.swing.UnsupportedLookAndFeelException;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 import uk.ac.aber.cs211.sudoku.model.Grid;
 import uk.ac.aber.cs211.sudoku.model.InvalidSudFileException;
 import uk.ac.aber.cs211.sudoku.model.SudFileImporter;
+import uk.ac.aber.cs211.sudoku.solver.SolveMode;
 import uk.ac.aber.cs211.sudoku.solver.Solver;
 
 
@@ -34,6 +38,9 @@ implements ActionListener {
 	private static final String CMD_SOLVE = "solve";
 	private static final String CMD_STOP = "stop";
 	
+	/** The time to wait after each number is placed, in milliseconds. */
+	private static final long STEP_DELAY = 50;
+	
 	// /////////////////// //
 	// Instance variables. //
 	// /////////////////// //
@@ -43,6 +50,9 @@ implements ActionListener {
 	/** Contains the thread that solves the sudoku puzzles. */
 	private Thread solverThread;
 	
+	/** The solver running on {@link #solverThread}. */
+	private Solver solver;
+	
 	// ///////////// //
 	// Constructors. //
 	// ///////////// //
@@ -68,6 +78,30 @@ implements ActionListener {
 	// //////// //
 	// Methods. //
 	// //////// //
+	/**
+	 * Sets the look and feel to a native system UI and opens the main window
+	 * on the event dispatch thread.
+	 */
+	public static void open() {
+		// Set the look and feel to a native system UI.
+		try {
+			UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+		} catch (UnsupportedLookAndFeelException
+				|ClassNotFoundException
+				|InstantiationException
+				|IllegalAccessException e) {
+			System.err.println(e);
+		}
+		
+		// Open the main window.
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				new MainWindow();
+			}
+		});
+	}
+	
 	/**
 	 * Creates a toolbar with buttons for the user interaction with the
 	 * application.
@@ -162,7 +196,11 @@ implements ActionListener {
 	 */
 	private void solvePuzzle() {
 		if (gridCanvas.getGrid() != null) {
-			solverThread = new Thread(new Solver(gridCanvas.getGrid()));
+			solver = new Solver(gridCanvas.getGrid(), SolveMode.LOGIC_AND_SEARCH);
+			
+			// Show the user the solution process step-by-step.
+			solver.setStepListener(new AnimatedStepListener(STEP_DELAY));
+			solverThread = new Thread(solver);
 			
 			solverThread.start();
 		} else {
@@ -182,6 +220,9 @@ implements ActionListener {
 					"No sudoku puzzle to solve",
 					JOptionPane.ERROR_MESSAGE);
 		} else if (solverThread.isAlive()) {
+			// Cancelling stops the solver's loops, and the interrupt wakes it
+			// if it is waiting between steps
+			solver.cancel();
 			solverThread.interrupt();
 		}
 	}